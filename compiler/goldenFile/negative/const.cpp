@@ -0,0 +1,3 @@
+res/negative/const.sc(18,5): Const error
+res/negative/const.sc(23,5): Const error
+res/negative/const.sc(26,5): Const error
@@ -0,0 +1,5 @@
+res/negative/move.sc(4,1): Static var must be const
+res/negative/move.sc(5,1): Non-nullable pointer must inited
+res/negative/move.sc(5,1): Static var must be const
+res/negative/move.sc(10,9): Miss move keyword
+res/negative/move.sc(13,9): Can't move
@@ -0,0 +1,2 @@
+res/negative/multiInherit.sc(9,12): Base struct must be abstract or virutal
+res/negative/multiInherit.sc(9,15): Unsupport multi struct inheritance
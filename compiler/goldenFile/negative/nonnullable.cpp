@@ -0,0 +1,2 @@
+res/negative/nonnullable.sc(8,5): Non-nullable pointer must inited
+res/negative/nonnullable.sc(10,9): Type mismatch:own* Int32 => const ref* Int32
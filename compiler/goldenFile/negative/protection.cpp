@@ -0,0 +1,4 @@
+res/negative/protection.sc(13,9): Unknow symbol foo1
+res/negative/protection.sc(13,9): Resolved fail
+res/negative/protection.sc(13,9): Resolved fail
+res/negative/protection.sc(27,5): It's private
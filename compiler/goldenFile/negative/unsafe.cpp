@@ -0,0 +1,2 @@
+res/negative/unsafe.sc(8,14): Expect unsafe block
+res/negative/unsafe.sc(9,5): Expect unsafe block
@@ -0,0 +1,7 @@
+enum class Color {
+    Red = 1;,
+    Green,
+    Blue
+};
+fun foo(c : const Color);
+fun main();
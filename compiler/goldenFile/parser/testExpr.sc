@@ -0,0 +1,3 @@
+fun print(x : const Int32);
+fun foo() : Int32;
+fun literal();
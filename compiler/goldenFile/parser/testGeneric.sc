@@ -0,0 +1,9 @@
+abstract struct NT {
+    abstract operator fun plus(that : const ref* NT) : ref* NT;
+}
+struct A$<T> {
+    var i : T;
+    fun foo() : ref* T;
+    fun foo2() : T;
+}
+fun main();
@@ -0,0 +1,10 @@
+struct A : B, I {
+    override fun foo();
+}
+abstract struct I {
+    abstract fun foo();
+}
+virtual struct B {
+    var a : Int32;
+    fun bar();
+}
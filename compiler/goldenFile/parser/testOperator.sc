@@ -0,0 +1,7 @@
+struct Vector {
+    operator fun plus(other : const Vector) : Vector;
+    operator fun get(a : const Int32) : Vector;
+    operator fun set(a : const Int32, b : const Vector);
+    operator fun compare(b : const Vector) : Int32;
+}
+fun main();
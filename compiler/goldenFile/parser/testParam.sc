@@ -0,0 +1,2 @@
+fun foo(a : const Int32, b : const Int32 = 0);
+fun main();
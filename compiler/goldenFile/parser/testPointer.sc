@@ -0,0 +1,9 @@
+struct A {
+    var a : own* Int32;
+    var b : ref* Int32;
+    var c : raw* Int32;
+    var d : WeakPtr$<Int32>;
+}
+fun foo(c : const ref* Int32);
+fun foo2(c : const own* Int32);
+fun main();
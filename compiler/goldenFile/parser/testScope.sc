@@ -0,0 +1,2 @@
+fun main1();
+fun main2();
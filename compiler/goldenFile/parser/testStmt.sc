@@ -0,0 +1 @@
+fun foo() : Int32;
@@ -0,0 +1,7 @@
+struct A {
+    var i : Int32;
+    var j : Int32;
+    fun foo() : Int32;
+    fun init();
+}
+fun main();
@@ -0,0 +1,12 @@
+
+void testClosure::foo(const std::function<int32_t(const int32_tconst int32_t)> a) {
+    int32_t r = a(1, 2);
+    printf((const char* const)"%d\n", r);
+}
+
+void main() {
+    testClosure::foo(([](const int32_t a, const int32_t b)->int32_t{
+        return (a - b);
+    }
+    ));
+}
@@ -0,0 +1,10 @@
+
+void testEnum::foo(const testEnum::Color c) {
+    int32_t i = ((int32_t)(c));
+    printf((const char* const)"%d\n", i);
+}
+
+void main() {
+    testEnum::Color c = Color::Red;
+    testEnum::foo(c);
+}
@@ -0,0 +1,7 @@
+
+void testInherit::A::foo() {
+    bar();
+}
+
+void testInherit::B::bar() {
+}
@@ -0,0 +1,26 @@
+
+int32_t testStruct::A::foo() {
+    return i;
+}
+
+void testStruct::A::init() {
+    {
+        this->i = 2;
+        this->j = 3;
+    }
+    ;
+}
+
+void main() {
+    testStruct::A a ;{
+        a.i = 1;
+        a.j = 2;
+    }
+    ;
+    a.i = 10;
+    int32_t i = a.foo();
+    testStruct::A b ;{
+        b.init();
+    }
+    ;
+}
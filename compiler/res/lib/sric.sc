@@ -0,0 +1,107 @@
+extern struct DArray$<T> {
+    fun data() : raw* T;
+    fun size() : Int32;
+    fun add(d : const T);
+    operator fun get(i : const Int32) : ref* T;
+    operator fun set(i : const Int32, d : const T);
+    fun resize(size : const Int32);
+    fun reserve(capacity : const Int32);
+    fun removeAt(i : const Int32);
+}
+struct Tuple2$<T1, T2> {
+    var _0 : T1;
+    var _1 : T2;
+}
+struct Tuple3$<T1, T2, T3> {
+    var _0 : T1;
+    var _1 : T2;
+    var _2 : T3;
+}
+struct Tuple4$<T1, T2, T3, T4> {
+    var _0 : T1;
+    var _1 : T2;
+    var _2 : T3;
+    var _3 : T4;
+}
+struct Comment {
+    readonly var type : Int32;
+    readonly var content : raw* const Int8;
+}
+struct Field {
+    readonly var flags : Int32;
+    readonly var comments : DArray$<Comment>;
+    readonly var name : raw* const Int8;
+    readonly var offset : Int32;
+    readonly var pointer : raw* Void;
+    readonly var fieldType : raw* const Int8;
+    readonly var hasDefaultValue : Bool;
+    readonly var enumValue : Int32;
+}
+struct Func {
+    readonly var flags : Int32;
+    readonly var comments : DArray$<Comment>;
+    readonly var name : raw* const Int8;
+    readonly var pointer : raw* Void;
+    readonly var returnType : raw* const Int8;
+    readonly var params : DArray$<Field>;
+    readonly var genericParams : DArray$<raw* const Int8>;
+}
+struct Struct {
+    readonly var flags : Int32;
+    readonly var comments : DArray$<Comment>;
+    readonly var name : raw* const Int8;
+    readonly var fields : DArray$<Field>;
+    readonly var funcs : DArray$<Func>;
+    readonly var inheritances : DArray$<raw* const Int8>;
+    readonly var genericParams : DArray$<raw* const Int8>;
+}
+struct Module {
+    readonly var name : raw* const Int8;
+    readonly var version : raw* const Int8;
+    readonly var fields : DArray$<Field>;
+    readonly var funcs : DArray$<Func>;
+    readonly var structs : DArray$<Struct>;
+}
+extern fun findModule(name : const raw* const Int8) : ref* Module;
+extern struct WeakPtr$<T> {
+    fun init(p : const own* T);
+    fun lock() : own* T;
+}
+externc fun printf(format : const raw* const Int8, args : ...) : Int32;
+extern fun alloc$<T>() : own* T;
+extern fun share$<T>(p : const own* T) : own* T;
+extern unsafe fun rawToOwn$<T>(p : const raw* T) : own* T;
+extern fun refToOwn$<T>(p : const ref* T) : own* T;
+extern unsafe fun rawToRef$<T>(p : const raw* T) : ref* T;
+extern struct String {
+    fun c_str() : raw* Int8;
+    fun size() : Int32;
+    operator fun get(i : const Int32) : Int8;
+    fun hashCode() : Int32;
+    fun iequals(other : const ref* String) : Bool;
+    fun contains(other : const ref* String) : Bool;
+    fun startsWith(other : const ref* String) : Bool;
+    fun endsWith(other : const ref* String) : Bool;
+    fun find(other : const ref* String, start : const Int32 = 0) : Int32;
+    fun replace(src : const ref* String, dst : const ref* String);
+    fun split(sep : const ref* String) : DArray$<String>;
+    fun substr(pos : const Int32, len : const Int32 = (-1)) : String;
+    operator fun plus(other : const ref* String) : String;
+    fun add(cstr : const raw* const Int8);
+    fun trimEnd();
+    fun trimStart();
+    fun trim();
+    fun removeLastChar();
+    fun toLower() : String;
+    fun toUpper() : String;
+    fun toInt() : Int32;
+    fun toLong() : Int64;
+    fun toFloat() : Float32;
+    fun toDouble() : Float64;
+}
+extern fun String_fromInt(i : const Int32) : String;
+extern fun String_fromLong(i : const Int64) : String;
+extern fun String_fromDouble(f : const Float64) : String;
+extern fun String_fromFloat(f : const Float64) : String;
+extern fun String_format(format : const raw* const Int8, args : ...) : String;
+extern fun asStr(cstr : const raw* const Int8) : String;
@@ -0,0 +1,45 @@
+struct C : B, I {
+    override fun foo();
+}
+abstract struct I {
+    abstract fun foo();
+}
+virtual struct B {
+    var a : Int32;
+    virtual fun foo();
+}
+fun testInherit();
+fun testDector();
+struct A {
+    var i : Int32 = 1;
+    operator fun compare(b : const ref* A) : Int32;
+}
+struct CP {
+    var p : own*? Int32;
+}
+fun testA(a : const ref* A);
+fun testPtr();
+fun testNullable();
+fun testCompare();
+fun testMove();
+fun testRaw();
+reflect struct ReflectionTest {
+    var a : Int32;
+    var b : Int32 = 0;
+    fun foo(arg : const Int32) : Int32;
+}
+reflect enum class Color {
+    Red,
+    Green = 3;,
+    Blue
+};
+fun foo(c : const Color);
+reflect fun testReflection();
+fun testEnum();
+var globalValue : const Int32 = 1;
+constexpr var arraySize : Int32 = 10;
+fun testDArray();
+fun testGlobal();
+fun testArray();
+fun testString();
+fun main();
@@ -0,0 +1,14 @@
+#include "sric.h"
+
+
+
+//////////////////////////////////////////// reflect
+void registReflection_sric() {
+    sric::Module m;
+    m.name = "sric";
+    m.version = "1.0";
+
+    sric::registModule(&m);
+}
+SC_AUTO_REGIST_MODULE(sric);
+
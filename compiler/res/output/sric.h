@@ -0,0 +1,132 @@
+#ifndef SRIC_H_
+#define SRIC_H_
+
+#include "sc_runtime.h"
+
+#include "DArray.h"
+#include "Str.h"
+namespace sric {
+    template <typename T>
+    struct DArray;
+    template <typename T1, typename T2>
+    struct Tuple2;
+    template <typename T1, typename T2, typename T3>
+    struct Tuple3;
+    template <typename T1, typename T2, typename T3, typename T4>
+    struct Tuple4;
+    struct Comment;
+    struct Field;
+    struct Func;
+    struct Struct;
+    struct Module;
+    template <typename T>
+    struct WeakPtr;
+    struct String;
+
+} //ns
+extern "C" {
+    int32_t printf(const char* const format, ...);
+} //ns
+namespace sric {
+
+    template <typename T1, typename T2>
+    struct Tuple2 {
+        T1 _0;
+        T2 _1;
+
+
+    };
+
+    template <typename T1, typename T2, typename T3>
+    struct Tuple3 {
+        T1 _0;
+        T2 _1;
+        T3 _2;
+
+
+    };
+
+    template <typename T1, typename T2, typename T3, typename T4>
+    struct Tuple4 {
+        T1 _0;
+        T2 _1;
+        T3 _2;
+        T4 _3;
+
+
+    };
+
+    struct Comment {
+        int32_t type;
+        const char* content;
+
+
+    };
+
+    struct Field {
+        int32_t flags;
+        sric::DArray<sric::Comment> comments;
+        const char* name;
+        int32_t offset;
+        void* pointer;
+        const char* fieldType;
+        bool hasDefaultValue;
+        int32_t enumValue;
+
+
+    };
+
+    struct Func {
+        int32_t flags;
+        sric::DArray<sric::Comment> comments;
+        const char* name;
+        void* pointer;
+        const char* returnType;
+        sric::DArray<sric::Field> params;
+        sric::DArray<const char*> genericParams;
+
+
+    };
+
+    struct Struct {
+        int32_t flags;
+        sric::DArray<sric::Comment> comments;
+        const char* name;
+        sric::DArray<sric::Field> fields;
+        sric::DArray<sric::Func> funcs;
+        sric::DArray<const char*> inheritances;
+        sric::DArray<const char*> genericParams;
+
+
+    };
+
+    struct Module {
+        const char* name;
+        const char* version;
+        sric::DArray<sric::Field> fields;
+        sric::DArray<sric::Func> funcs;
+        sric::DArray<sric::Struct> structs;
+
+
+    };
+
+    sric::RefPtr<sric::Module> findModule(const char* const name);
+    template <typename T>
+    sric::OwnPtr<T> alloc();
+    template <typename T>
+    sric::OwnPtr<T> share(const sric::OwnPtr<T> p);
+    template <typename T>
+    sric::OwnPtr<T> rawToOwn(T* const p);
+    template <typename T>
+    sric::OwnPtr<T> refToOwn(const sric::RefPtr<T> p);
+    template <typename T>
+    sric::RefPtr<T> rawToRef(T* const p);
+    sric::String String_fromInt(const int32_t i);
+    sric::String String_fromLong(const int64_t i);
+    sric::String String_fromDouble(const double f);
+    sric::String String_fromFloat(const double f);
+    sric::String String_format(const char* const format, ...);
+    sric::String asStr(const char* const cstr);
+} //ns
+
+#endif //SRIC_H_
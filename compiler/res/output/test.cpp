@@ -0,0 +1,244 @@
+#include "test.h"
+
+
+void test::C::foo() {
+    printf((const char* const)"C::foo\n");
+}
+
+void test::B::foo() {
+    printf((const char* const)"B::foo\n");
+}
+
+void test::testInherit() {
+    sric::OwnPtr<test::C> x = sric::alloc<test::C >();
+    x->foo();
+    sric::RefPtr<test::B> p1 = sric::RefPtr<test::B >(x);
+    sric::RefPtr<test::I> p3 = ((sric::RefPtr<test::I>)nonNullable(p1.dynamicCastTo<test::I >()));
+    p3->foo();
+    sric::RefPtr<test::I> p4 = ((sric::RefPtr<test::I>)nonNullable(sric::RefPtr<test::C >(x).dynamicCastTo<test::I >()));
+    p4->foo();
+    bool b1 = (sric::ptrIs<test::I >(p1));
+    printf((const char* const)"x is I: %d\n", b1);
+}
+
+void test::testDector() {
+    sric::OwnPtr<test::I> x = (sric::OwnPtr<test::I>)sric::alloc<test::C >();
+    x->foo();
+}
+
+int32_t test::A::compare(const sric::RefPtr<test::A> b) {
+    return (i - b->i);
+}
+
+void test::testA(const sric::RefPtr<test::A> a) {
+    printf((const char* const)"%d\n", a->i);
+}
+
+void test::testPtr() {
+    test::A a;
+    test::testA((sric::RefPtr<test::A >(&a)));
+    sric::OwnPtr<test::A> p = (sric::OwnPtr<test::A>)sric::alloc<test::A >();
+    test::testA(sric::RefPtr<test::A >(p));
+    if ((p != nullptr)) {
+        printf((const char* const)"%d\n", p->i);
+    }
+    sric::RefPtr<test::A> rp = sric::RefPtr<test::A >(p);
+    p = (sric::OwnPtr<test::A>)sric::OwnPtr<test::A>();
+}
+
+void test::testNullable() {
+    sric::RefPtr<test::A> p;
+    int32_t i = nonNullable(p)->i;
+}
+
+void test::testCompare() {
+    test::A a ;{
+        a.i = 1;
+    }
+    ;
+    test::A b ;{
+        b.i = 2;
+    }
+    ;
+    if ((a.compare((sric::RefPtr<test::A >(&b))) < 0)) {
+        printf((const char* const)"compare OK\n");
+    }
+}
+
+void test::testMove() {
+    test::CP b;
+    test::CP a = (std::move(b));
+}
+
+void test::testRaw() {
+    int32_t a = 1;
+    int32_t* p = ((int32_t*)&a);
+    /*unsafe*/ {
+        int32_t* p1 = (p + 1);
+        p1 = (p1 - 1);
+        (*p1) = 2;
+    }
+    printf((const char* const)"%d\n", a);
+}
+
+int32_t test::ReflectionTest::foo(const int32_t arg) {
+    return arg;
+}
+
+void test::foo(const test::Color c) {
+    int32_t i = ((int32_t)(c));
+    printf((const char* const)"%d\n", i);
+}
+
+void test::testReflection() {
+    sric::RefPtr<sric::Module> m = sric::findModule((const char* const)"test");
+    printf((const char* const)"%s\n", nonNullable(m)->name);
+}
+
+void test::testEnum() {
+    test::foo(Color::Blue);
+}
+const int32_t test::globalValue = 1;
+
+void test::testDArray() {
+    sric::DArray<int32_t> a;
+    a.add(1);
+    a.add(2);
+    for (int32_t i = 0; (i < a.size()); (++i)) {
+        sric::RefPtr<int32_t> v = (a.get(i));
+        printf((const char* const)"%d\n", (*v));
+    }
+}
+
+void test::testGlobal() {
+    printf((const char* const)"%d\n", test::globalValue);
+}
+
+void test::testArray() {
+    int32_t a[4]  = {1, 2, 3, 4};
+    for (int32_t i = 0; (i < 4); (++i)) {
+        int32_t v = (a[i]);
+        printf((const char* const)"%d\n", v);
+    }
+    int32_t* p = ((int32_t*)&a);
+    for (int32_t i = 0; (i < 4); (++i)) {
+        /*unsafe*/ {
+            int32_t v = (p[i]);
+            printf((const char* const)"%d\n", v);
+        }
+    }
+    int32_t b[test::arraySize];
+    b[0] = 1;
+}
+
+void test::testString() {
+    const char* cstr = "Hello";
+    sric::String str = sric::asStr((const char* const)cstr);
+    str.add((const char* const)"World");
+    printf((const char* const)"%s\n", str.c_str());
+}
+
+void main() {
+    test::testPtr();
+    test::testInherit();
+    test::testCompare();
+    test::testMove();
+    test::testRaw();
+}
+
+
+//////////////////////////////////////////// reflect
+int32_t test_ReflectionTest_foo(test::ReflectionTest* self, const int32_t arg) {
+    return self->foo(arg);
+}
+void registReflection_test() {
+    sric::Module m;
+    m.name = "test";
+    m.version = "1.0";
+    {
+        sric::Struct s;
+        s.flags = 134217728;
+        s.name = "ReflectionTest";
+        {
+            sric::Field f;
+            f.flags = 0;
+            f.name = "a";
+            f.offset = offsetof(test::ReflectionTest,a);
+            f.pointer = nullptr;
+            f.fieldType = "Int32";
+            f.hasDefaultValue = 0;
+            f.enumValue = -1;
+            s.fields.add(f);
+        }
+        {
+            sric::Field f;
+            f.flags = 0;
+            f.name = "b";
+            f.offset = offsetof(test::ReflectionTest,b);
+            f.pointer = nullptr;
+            f.fieldType = "Int32";
+            f.hasDefaultValue = 1;
+            f.enumValue = -1;
+            s.fields.add(f);
+        }
+        {
+            sric::Func f;
+            f.flags = 0;
+            f.name = "foo";
+            f.pointer = &test_ReflectionTest_foo;
+            f.returnType = "Int32";
+            {sric::Field param;param.name = "arg";param.fieldType = "const Int32";param.hasDefaultValue = 0;f.params.add(param);}
+            s.funcs.add(f);
+        }
+    }
+    {
+        sric::Struct s;
+        s.flags = 134217736;
+        s.name = "Color";
+        {
+            sric::Field f;
+            f.flags = 0;
+            f.name = "Red";
+            f.offset = 0;
+            f.pointer = nullptr;
+            f.fieldType = "Color";
+            f.hasDefaultValue = 0;
+            f.enumValue = 0;
+            s.fields.add(f);
+        }
+        {
+            sric::Field f;
+            f.flags = 0;
+            f.name = "Green";
+            f.offset = 0;
+            f.pointer = nullptr;
+            f.fieldType = "Color";
+            f.hasDefaultValue = 1;
+            f.enumValue = 3;
+            s.fields.add(f);
+        }
+        {
+            sric::Field f;
+            f.flags = 0;
+            f.name = "Blue";
+            f.offset = 0;
+            f.pointer = nullptr;
+            f.fieldType = "Color";
+            f.hasDefaultValue = 0;
+            f.enumValue = 4;
+            s.fields.add(f);
+        }
+    }
+    {
+        sric::Func f;
+        f.flags = 134217728;
+        f.name = "testReflection";
+        f.pointer = &test::testReflection;
+        f.returnType = "Void";
+        m.funcs.add(f);
+    }
+
+    sric::registModule(&m);
+}
+SC_AUTO_REGIST_MODULE(test);
+
@@ -0,0 +1,86 @@
+#ifndef TEST_H_
+#define TEST_H_
+
+#include "sc_runtime.h"
+#include "sric.h"
+
+namespace test {
+    struct C;
+    struct I;
+    struct B;
+    struct A;
+    struct CP;
+    struct ReflectionTest;
+    enum struct Color;
+
+} //ns
+extern "C" {
+} //ns
+namespace test {
+
+    struct B {
+        int32_t a;
+
+        virtual void foo();
+        virtual ~B(){}
+    };
+
+    struct I {
+
+        virtual void foo() = 0;
+        virtual ~I(){}
+    };
+
+    struct C : public test::B, public test::I {
+
+        void foo();
+
+    };
+
+    void testInherit();
+    void testDector();
+    struct A {
+        int32_t i = 1;
+
+        int32_t compare(const sric::RefPtr<test::A> b);
+
+    };
+
+    struct CP {
+        sric::OwnPtr<int32_t> p;
+
+
+    };
+
+    void testA(const sric::RefPtr<test::A> a);
+    void testPtr();
+    void testNullable();
+    void testCompare();
+    void testMove();
+    void testRaw();
+    struct ReflectionTest {
+        int32_t a;
+        int32_t b = 0;
+
+        int32_t foo(const int32_t arg);
+
+    };
+
+    enum struct Color {
+        Red,
+        Green = 3,
+        Blue
+    };
+
+    void foo(const test::Color c);
+    void testReflection();
+    void testEnum();extern const int32_t globalValue;
+    constexpr int32_t arraySize = 10;
+
+    void testDArray();
+    void testGlobal();
+    void testArray();
+    void testString();
+} //ns
+
+#endif //TEST_H_
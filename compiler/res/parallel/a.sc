@@ -0,0 +1,14 @@
+var ga : Int = unknownA;
+
+fun fa() {
+    var x = unknownB;
+}
+
+struct SA {
+    var f : Int = unknownC;
+    fun m() {
+        unknownD;
+    }
+}
+
+var gb : Int = unknownE;
@@ -0,0 +1,9 @@
+fun fb(a: Int) {
+    var y : Int = a;
+    y = unknownF;
+}
+
+fun fc() {
+    fa();
+    unknownG;
+}
@@ -0,0 +1,162 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sric.compiler.Compiler;
+import sric.compiler.backend.CppGenerator;
+import sric.compiler.resolve.ErrorChecker;
+import sric.compiler.resolve.ExprTypeResolver;
+import sric.compiler.resolve.TopLevelTypeResolver;
+
+/**
+ * The type check passes and the code generator.
+ * Every pass runs on fresh modules prepared up to the previous pass.
+ *
+ * @author yangjiandong
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BackEndBench {
+
+    @Param({Corpus.CODE, Corpus.SYNTHETIC})
+    public String input;
+
+    @Param({"1", "16"})
+    public int scale;
+
+    public Corpus corpus;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        corpus = Corpus.load(input, scale);
+    }
+
+    //the passes done before the measured one
+    public static final int PARSE = 0;
+    public static final int TOP_LEVEL = 1;
+    public static final int EXPR = 2;
+    public static final int CHECK = 3;
+
+    public static ArrayList<Compiler> prepare(Corpus corpus, int pass) throws IOException {
+        ArrayList<Compiler> list = new ArrayList<>();
+        for (int i = 0; i < corpus.modules.size(); ++i) {
+            Compiler compiler = corpus.newCompiler(i);
+            Corpus.parse(compiler);
+            if (pass >= TOP_LEVEL) {
+                new TopLevelTypeResolver(compiler.log, compiler.module, compiler).run();
+            }
+            if (pass >= EXPR) {
+                new ExprTypeResolver(compiler.log, compiler.module).run();
+            }
+            if (pass >= CHECK) {
+                new ErrorChecker(compiler.log, compiler.module).run();
+            }
+            list.add(compiler);
+        }
+        return list;
+    }
+
+    @State(Scope.Thread)
+    public static class Parsed {
+        public ArrayList<Compiler> compilers;
+
+        @Setup(Level.Invocation)
+        public void setup(BackEndBench bench) throws IOException {
+            compilers = prepare(bench.corpus, PARSE);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class TopLevelResolved {
+        public ArrayList<Compiler> compilers;
+
+        @Setup(Level.Invocation)
+        public void setup(BackEndBench bench) throws IOException {
+            compilers = prepare(bench.corpus, TOP_LEVEL);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ExprResolved {
+        public ArrayList<Compiler> compilers;
+
+        @Setup(Level.Invocation)
+        public void setup(BackEndBench bench) throws IOException {
+            compilers = prepare(bench.corpus, EXPR);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Checked {
+        public ArrayList<Compiler> compilers;
+
+        @Setup(Level.Trial)
+        public void setup(BackEndBench bench) throws IOException {
+            compilers = prepare(bench.corpus, CHECK);
+        }
+    }
+
+    @Benchmark
+    public void topLevelTypeResolver(Parsed state, LineCounter counter) {
+        for (Compiler c : state.compilers) {
+            new TopLevelTypeResolver(c.log, c.module, c).run();
+        }
+        counter.lines += corpus.lines;
+    }
+
+    @Benchmark
+    public void exprTypeResolver(TopLevelResolved state, LineCounter counter) {
+        for (Compiler c : state.compilers) {
+            new ExprTypeResolver(c.log, c.module).run();
+        }
+        counter.lines += corpus.lines;
+    }
+
+    @Benchmark
+    public void errorChecker(ExprResolved state, LineCounter counter) {
+        for (Compiler c : state.compilers) {
+            new ErrorChecker(c.log, c.module).run();
+        }
+        counter.lines += corpus.lines;
+    }
+
+    //the generator only reads the AST, the modules are reused
+    @Benchmark
+    public long cppGenerator(Checked state, LineCounter counter) {
+        long size = 0;
+        for (Compiler c : state.compilers) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            PrintStream writer = new PrintStream(out);
+            new CppGenerator(c.log, writer).run(c.module);
+            CppGenerator impl = new CppGenerator(c.log, writer);
+            impl.headMode = false;
+            impl.run(c.module);
+            size += out.size();
+        }
+        counter.lines += corpus.lines;
+        return size;
+    }
+}
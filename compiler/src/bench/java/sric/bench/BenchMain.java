@@ -0,0 +1,37 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.bench;
+
+import java.io.IOException;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the benchmarks with the allocation profiler.
+ * Run in the compiler dir, after the std lib is built into res/lib:
+ *   mvn -Pbench compile exec:exec -Dbench.args=FrontEndBench
+ * The args are the JMH command line options, or "scaling" to run the ScalingCheck.
+ * 
+ * lines/s is the "lines" counter, bytes allocated per operation is "gc.alloc.rate.norm".
+ *
+ * @author yangjiandong
+ */
+public class BenchMain {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        if (args.length > 0 && args[0].equals("scaling")) {
+            ScalingCheck.main(args);
+            return;
+        }
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(cmd);
+        options.addProfiler(GCProfiler.class);
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,80 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sric.compiler.Compiler;
+
+/**
+ * Full Compiler.run with code generation.
+ * The outputs are written to a temp dir, with a copy of the std lib.
+ *
+ * @author yangjiandong
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompilerBench {
+
+    @Param({Corpus.CODE, Corpus.SYNTHETIC})
+    public String input;
+
+    @Param({"1", "16"})
+    public int scale;
+
+    public Corpus corpus;
+    public String libPath;
+    public String outputDir;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        corpus = Corpus.load(input, scale);
+        Path tempDir = Files.createTempDirectory("sric-bench");
+        libPath = tempDir.resolve("lib").toString();
+        outputDir = tempDir.resolve("output").toString();
+        new File(libPath).mkdirs();
+        for (String ext : new String[]{".sc", ".meta", ".scb"}) {
+            Path file = Path.of(Corpus.libPath, "sric" + ext);
+            if (Files.exists(file)) {
+                Files.copy(file, Path.of(libPath, "sric" + ext), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean run(LineCounter counter) throws IOException {
+        boolean res = true;
+        for (int i = 0; i < corpus.modules.size(); ++i) {
+            //depends on the std lib only, not on the outputs of other files
+            Compiler compiler = corpus.newCompiler(i);
+            compiler.libPath = libPath;
+            compiler.outputDir = outputDir;
+            compiler.genCode = true;
+            res &= compiler.run();
+        }
+        counter.lines += corpus.lines;
+        return res;
+    }
+}
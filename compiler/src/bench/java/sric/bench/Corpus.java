@@ -0,0 +1,88 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import sric.compiler.Compiler;
+import sric.compiler.Util;
+import sric.compiler.ast.AstNode;
+
+/**
+ * Benchmark input: the res/code files repeated scale times,
+ * or a synthetic module of 4*scale files.
+ * Every res/code file is compiled as a module with the std lib in res/lib.
+ *
+ * @author yangjiandong
+ */
+public class Corpus {
+    public static final String codeDir = "res/code";
+    public static final String libPath = "res/lib";
+
+    public static final String CODE = "code";
+    public static final String SYNTHETIC = "synthetic";
+
+    public ArrayList<File> files = new ArrayList<>();
+    public ArrayList<String> sources = new ArrayList<>();
+    //the source path of modules
+    public ArrayList<String> modules = new ArrayList<>();
+    public long lines = 0;
+    public long bytes = 0;
+
+    public static Corpus load(String input, int scale) throws IOException {
+        Corpus corpus = new Corpus();
+        if (input.equals(SYNTHETIC)) {
+            SyntheticCode code = new SyntheticCode();
+            code.files = 4 * scale;
+            File dir = Files.createTempDirectory("sric-synthetic").toFile();
+            code.write(dir);
+            File moduleDir = new File(dir, code.moduleName(0));
+            corpus.modules.add(moduleDir.getPath());
+            corpus.addFiles(moduleDir, 1);
+        }
+        else {
+            corpus.addFiles(new File(codeDir), scale);
+            for (File file : corpus.files) {
+                corpus.modules.add(file.getPath());
+            }
+        }
+        return corpus;
+    }
+
+    private void addFiles(File dir, int times) throws IOException {
+        ArrayList<File> list = Util.listFile(dir);
+        list.sort((a, b) -> a.getPath().compareTo(b.getPath()));
+        for (int i = 0; i < times; ++i) {
+            for (File file : list) {
+                String src = Files.readString(file.toPath());
+                files.add(file);
+                sources.add(src);
+                lines += src.lines().count();
+                bytes += src.length();
+            }
+        }
+    }
+
+    public Compiler newCompiler(int i) {
+        Compiler compiler = Compiler.makeDefault(modules.get(i), libPath);
+        compiler.genCode = false;
+        compiler.incremental = false;
+        compiler.parallelism = 1;
+        return compiler;
+    }
+
+    /**
+     * parse the sources of compiler, same as Compiler.run
+     */
+    public static void parse(Compiler compiler) throws IOException {
+        for (File file : compiler.sources) {
+            AstNode.FileUnit funit = compiler.parse(file);
+            funit.module = compiler.module;
+            compiler.module.fileUnits.add(funit);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.bench;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sric.compiler.CompilerLog;
+import sric.compiler.ast.AstNode;
+import sric.compiler.parser.DeepParser;
+import sric.compiler.parser.Tokenizer;
+
+/**
+ * Tokenizer and parser throughput over the whole corpus
+ *
+ * @author yangjiandong
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrontEndBench {
+
+    @Param({Corpus.CODE, Corpus.SYNTHETIC})
+    public String input;
+
+    @Param({"1", "16"})
+    public int scale;
+
+    public Corpus corpus;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        corpus = Corpus.load(input, scale);
+    }
+
+    //the parser tokenizes in constructor, so create them before the measure
+    @State(Scope.Thread)
+    public static class Parsers {
+        public ArrayList<DeepParser> parsers = new ArrayList<>();
+
+        @Setup(Level.Invocation)
+        public void setup(FrontEndBench bench) {
+            parsers.clear();
+            Corpus corpus = bench.corpus;
+            for (int i = 0; i < corpus.sources.size(); ++i) {
+                AstNode.FileUnit unit = new AstNode.FileUnit(corpus.files.get(i).getPath());
+                parsers.add(new DeepParser(new CompilerLog(), corpus.sources.get(i), unit));
+            }
+        }
+    }
+
+    @Benchmark
+    public void tokenize(LineCounter counter, Blackhole bh) {
+        for (int i = 0; i < corpus.sources.size(); ++i) {
+            Tokenizer toker = new Tokenizer(new CompilerLog(), corpus.files.get(i).getPath(), corpus.sources.get(i));
+            bh.consume(toker.tokenize());
+        }
+        counter.lines += corpus.lines;
+    }
+
+    @Benchmark
+    public void parse(Parsers state, LineCounter counter, Blackhole bh) {
+        for (DeepParser parser : state.parsers) {
+            parser.parse();
+            bh.consume(parser);
+        }
+        counter.lines += corpus.lines;
+    }
+}
@@ -0,0 +1,84 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import sric.compiler.Compiler;
+import sric.compiler.CompilerStats;
+
+/**
+ * Check that the compile work grows near linearly with the source size.
+ * The work is measured by the counters of CompilerStats, not by time, so the result is same on every run.
+ *   mvn -Pbench compile exec:exec -Dbench.args=scaling
+ *
+ * @author yangjiandong
+ */
+public class ScalingCheck {
+    private static final String[] counterNames = {"tokens", "astNodes", "scopes", "genericInstances", "fitHits", "fitMisses"};
+
+    //counters of compile the module, on current thread only
+    private static long[] compileWork(File moduleDir) throws IOException {
+        Compiler compiler = Compiler.makeDefault(moduleDir.getPath(), Corpus.libPath);
+        compiler.genCode = false;
+        compiler.incremental = false;
+        compiler.parallelism = 1;
+        long[] begin = CompilerStats.snapshot();
+        if (!compiler.run()) {
+            throw new RuntimeException("Compile fail: " + moduleDir);
+        }
+        long[] work = CompilerStats.snapshot();
+        for (int i = 0; i < work.length; ++i) {
+            work[i] -= begin[i];
+        }
+        return work;
+    }
+
+    private static long[] generateAndCompile(Path dir, int files) throws IOException {
+        SyntheticCode code = new SyntheticCode();
+        code.files = files;
+        code.write(dir.toFile());
+        return compileWork(new File(dir.toFile(), code.moduleName(0)));
+    }
+
+    private static void deleteDir(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    /**
+     * return true if 4x source costs at most 5x work for every counter
+     */
+    public static boolean run() throws IOException {
+        boolean oldEnabled = CompilerStats.enabled;
+        CompilerStats.enabled = true;
+        Path dir = Files.createTempDirectory("sric-scaling");
+        try {
+            long[] small = generateAndCompile(dir.resolve("small"), 8);
+            long[] large = generateAndCompile(dir.resolve("large"), 32);
+
+            boolean ok = true;
+            for (int i = 0; i < counterNames.length; ++i) {
+                boolean linear = large[i] <= small[i] * 5;
+                System.out.println(counterNames[i] + ": " + small[i] + " -> " + large[i] + (linear ? "" : ", not linear"));
+                ok &= linear;
+            }
+            return ok;
+        }
+        finally {
+            CompilerStats.enabled = oldEnabled;
+            deleteDir(dir);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.exit(run() ? 0 : 1);
+    }
+}
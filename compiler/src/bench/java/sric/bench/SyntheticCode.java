@@ -0,0 +1,227 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+/**
+ * Generate large Sric code for the scaling check and benchmarks.
+ * The names are prefixed by module and file, e.g. m1F2S3 is the struct 3 of file 2 in module 1.
+ *
+ * @author yangjiandong
+ */
+public class SyntheticCode {
+
+    public static final String CHAIN = "chain";
+    public static final String STAR = "star";
+    public static final String TREE = "tree";
+    public static final String NONE = "none";
+
+    public int modules = 1;
+    public int files = 4;
+    //structs per file
+    public int structs = 8;
+    //the first structs of file inherit each other
+    public int inheritDepth = 2;
+    //instantiations of the generic struct per file
+    public int genericFanout = 2;
+    //statements per function
+    public int bodySize = 10;
+    //functions per file
+    public int funcs = 4;
+    //module depends: chain, star, tree or none
+    public String importShape = CHAIN;
+
+    private String prefix(int module, int file) {
+        return "m" + module + "F" + file;
+    }
+
+    /**
+     * the depended modules, always before the module
+     */
+    public ArrayList<Integer> depends(int module) {
+        ArrayList<Integer> list = new ArrayList<>();
+        if (module == 0) {
+            return list;
+        }
+        switch (importShape) {
+            case CHAIN:
+                list.add(module - 1);
+                break;
+            case STAR:
+                list.add(0);
+                break;
+            case TREE:
+                list.add((module - 1) / 2);
+                break;
+            case NONE:
+                break;
+            default:
+                throw new RuntimeException("Unknow import shape: " + importShape);
+        }
+        return list;
+    }
+
+    public String moduleName(int module) {
+        return "m" + module;
+    }
+
+    public String genModuleProps(int module) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("name = ").append(moduleName(module)).append('\n');
+        sb.append("version = 1.0\n");
+        sb.append("depends = sric 1.0");
+        for (int d : depends(module)) {
+            sb.append(", ").append(moduleName(d)).append(" 1.0");
+        }
+        sb.append('\n');
+        sb.append("srcDirs = ./\n");
+        return sb.toString();
+    }
+
+    public String genFile(int module, int file) {
+        String p = prefix(module, file);
+        StringBuilder sb = new StringBuilder();
+        for (int d : depends(module)) {
+            sb.append("import ").append(moduleName(d)).append("::*;\n");
+        }
+        sb.append('\n');
+
+        //the inheritance chain
+        int depth = Math.min(inheritDepth, structs);
+        for (int i = 0; i < depth; ++i) {
+            if (i < depth - 1) {
+                sb.append("virtual ");
+            }
+            sb.append("struct ").append(p).append("S").append(i);
+            if (i > 0) {
+                sb.append(" : ").append(p).append("S").append(i - 1);
+            }
+            sb.append(" {\n");
+            sb.append("    var a").append(i).append(": Int;\n");
+            if (i == 0) {
+                sb.append("    virtual fun work(): Int { return a0; }\n");
+            }
+            else {
+                sb.append("    override fun work(): Int { return a").append(i).append(" + a0; }\n");
+            }
+            sb.append("}\n\n");
+        }
+
+        for (int i = depth; i < structs; ++i) {
+            sb.append("struct ").append(p).append("S").append(i).append(" {\n");
+            sb.append("    var v: Int;\n");
+            sb.append("    var w: Int;\n");
+            sb.append("    fun sum(): Int { return v + w; }\n");
+            sb.append("}\n\n");
+        }
+
+        sb.append("struct ").append(p).append("G$<T> {\n");
+        sb.append("    var item: own*? T;\n");
+        sb.append("    var count: Int;\n");
+        sb.append("    fun size(): Int { return count; }\n");
+        sb.append("}\n\n");
+
+        for (int i = 0; i < funcs; ++i) {
+            genFunc(sb, module, file, i);
+        }
+        return sb.toString();
+    }
+
+    private void genFunc(StringBuilder sb, int module, int file, int index) {
+        String p = prefix(module, file);
+        sb.append("fun ").append(p).append("fn").append(index).append("(n: Int): Int {\n");
+        sb.append("    var s = 0;\n");
+        for (int j = 0; j < bodySize; ++j) {
+            switch (j % 6) {
+                case 0:
+                    sb.append("    s = s + n * ").append(j).append(";\n");
+                    break;
+                case 1:
+                    sb.append("    if (s > ").append(j * 10).append(") { s = s - ").append(j).append("; }\n");
+                    break;
+                case 2:
+                    sb.append("    for (var i = 0; i < n; ++i) { s = s + i; }\n");
+                    break;
+                case 3:
+                    if (structs > inheritDepth) {
+                        int k = inheritDepth + j % (structs - inheritDepth);
+                        sb.append("    var x").append(j).append(" = ").append(p).append("S").append(k)
+                                .append(" { .v = n; .w = ").append(j).append("; };\n");
+                        sb.append("    s = s + x").append(j).append(".sum();\n");
+                    }
+                    else {
+                        sb.append("    s = s * 2;\n");
+                    }
+                    break;
+                case 4:
+                    if (index > 0) {
+                        sb.append("    s = s + ").append(p).append("fn").append(j % index).append("(n);\n");
+                    }
+                    else if (file > 0) {
+                        sb.append("    s = s + ").append(prefix(module, file - 1)).append("fn0(n);\n");
+                    }
+                    else if (!depends(module).isEmpty()) {
+                        sb.append("    s = s + ").append(prefix(depends(module).get(0), 0)).append("fn0(n);\n");
+                    }
+                    else {
+                        sb.append("    s = s - n;\n");
+                    }
+                    break;
+                default:
+                    sb.append("    while (s > 1000) { s = s / 2; }\n");
+                    break;
+            }
+        }
+
+        if (structs > 0 && inheritDepth > 0) {
+            int last = Math.min(inheritDepth, structs) - 1;
+            sb.append("    var b = ").append(p).append("S").append(last).append(" {};\n");
+            sb.append("    s = s + b.work();\n");
+        }
+
+        //Int and then the plain structs
+        int plain = structs - Math.min(inheritDepth, structs);
+        for (int k = 0; k < genericFanout; ++k) {
+            String arg = (k == 0 || plain == 0) ? "Int" : p + "S" + (structs - plain + (k - 1) % plain);
+            sb.append("    var g").append(k).append(" = ").append(p).append("G$<").append(arg).append(">{};\n");
+            sb.append("    s = s + g").append(k).append(".size();\n");
+        }
+
+        sb.append("    return s;\n");
+        sb.append("}\n\n");
+    }
+
+    /**
+     * Write the modules to dir/mN/, return the paths of module.scm in build order.
+     */
+    public ArrayList<String> write(File dir) throws IOException {
+        ArrayList<String> list = new ArrayList<>();
+        for (int m = 0; m < modules; ++m) {
+            File moduleDir = new File(dir, moduleName(m));
+            moduleDir.mkdirs();
+            File props = new File(moduleDir, "module.scm");
+            Files.writeString(props.toPath(), genModuleProps(m));
+            for (int f = 0; f < files; ++f) {
+                Files.writeString(new File(moduleDir, prefix(m, f) + ".sc").toPath(), genFile(m, f));
+            }
+            list.add(props.getPath());
+        }
+        return list;
+    }
+
+    public long lines() {
+        long n = 0;
+        for (int m = 0; m < modules; ++m) {
+            for (int f = 0; f < files; ++f) {
+                n += genFile(m, f).lines().count();
+            }
+        }
+        return n;
+    }
+}
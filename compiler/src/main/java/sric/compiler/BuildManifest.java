@@ -0,0 +1,147 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.TreeMap;
+import sric.compiler.ast.SModule;
+
+/**
+ * Content hashes of the build inputs, saved next to the outputs.
+ * Used to skip the build of unchanged module.
+ *
+ * @author yangjiandong
+ */
+public class BuildManifest {
+    public static final String compilerVersion = "1.0";
+
+    private static final String interfaceKey = "interface";
+
+    public HashMap<String, String> props = new HashMap<>();
+
+    public static String hash(byte[] data) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] digest = md.digest(data);
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static String hashFile(File file) throws IOException {
+        if (!file.exists()) {
+            return "none";
+        }
+        return hash(Files.readAllBytes(file.toPath()));
+    }
+
+    private static long lastModified(File file) {
+        if (!file.isDirectory()) {
+            return file.lastModified();
+        }
+        long time = file.lastModified();
+        File[] list = file.listFiles();
+        if (list != null) {
+            for (File f : list) {
+                time = Math.max(time, lastModified(f));
+            }
+        }
+        return time;
+    }
+
+    /**
+     * the compiler version and the time of the compiler code
+     */
+    private static String compilerStamp() {
+        String stamp = compilerVersion;
+        try {
+            File code = new File(Compiler.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            stamp += " " + lastModified(code);
+        } catch (URISyntaxException | RuntimeException ex) {
+            //unknown location
+        }
+        return stamp;
+    }
+
+    private static String normalPath(String path) {
+        return new File(path).toPath().toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Hash the sources, the module props, the output options, the depends interfaces and the compiler.
+     */
+    public static BuildManifest compute(Compiler compiler) throws IOException {
+        BuildManifest m = new BuildManifest();
+        m.props.put("compiler", compilerStamp());
+        //module.scm and the props written to .meta
+        TreeMap<String, String> moduleProps = new TreeMap<>();
+        if (compiler.module.metaProps != null) {
+            moduleProps.putAll(compiler.module.metaProps);
+        }
+        m.props.put("module", hash((moduleProps.toString() + new TreeMap<>(compiler.module.toMetaProps())).getBytes()));
+        m.props.put("outputDir", normalPath(compiler.outputDir));
+        m.props.put("libPath", normalPath(compiler.libPath));
+        m.props.put("lazyBody", String.valueOf(compiler.lazyBody));
+        for (File file : compiler.sources) {
+            m.props.put("source " + file.getPath(), hashFile(file));
+        }
+        for (SModule.Depend d : compiler.module.depends) {
+            String libFile = compiler.libPath + "/" + d.name;
+            String h = hashFile(new File(libFile + ".sc")) + hashFile(new File(libFile + ".meta"));
+            m.props.put("depend " + d.toString(), hash(h.getBytes()));
+        }
+        return m;
+    }
+
+    public static BuildManifest load(String file) {
+        if (!new File(file).exists()) {
+            return null;
+        }
+        try {
+            BuildManifest m = new BuildManifest();
+            m.props = Util.readProps(file);
+            return m;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    public void save(String file) throws IOException {
+        Util.writeProps(file, props);
+    }
+
+    public boolean sameInputs(BuildManifest other) {
+        if (other == null) {
+            return false;
+        }
+        HashMap<String, String> a = new HashMap<>(props);
+        HashMap<String, String> b = new HashMap<>(other.props);
+        a.remove(interfaceKey);
+        b.remove(interfaceKey);
+        return a.equals(b);
+    }
+
+    /**
+     * hash of the public .sc/.meta content
+     */
+    public String getInterface() {
+        return props.get(interfaceKey);
+    }
+
+    public void setInterface(String hash) {
+        props.put(interfaceKey, hash);
+    }
+}
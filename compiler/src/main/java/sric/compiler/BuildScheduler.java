@@ -0,0 +1,237 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import sric.compiler.ast.SModule;
+
+/**
+ * Build a module and all of its depends.
+ * Every module is compiled once, after all of its depends, on a worker pool.
+ *
+ * @author yangjiandong
+ */
+public class BuildScheduler {
+
+    public static class BuildNode {
+        public String sourcePath;
+        public Compiler compiler;
+        public ArrayList<BuildNode> depends = new ArrayList<>();
+        public long timeMs = -1;
+        public boolean success = false;
+
+        CompletableFuture<Void> future;
+        boolean visiting = false;
+    }
+    
+    //a module failed or was skipped, the errors are already reported
+    private static class BuildFail extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    public String libPath;
+    public int threads = Runtime.getRuntime().availableProcessors();
+    public boolean incremental = true;
+    //resolve the relative source paths against it, null for the current dir
+    public File workDir = null;
+    //print the phase statistics of each module: "text" or "json", null for none
+    public String stats = null;
+
+    //in topological order
+    public ArrayList<BuildNode> nodes = new ArrayList<>();
+    private HashMap<String, BuildNode> nodeMap = new HashMap<>();
+    private AtomicBoolean failed = new AtomicBoolean(false);
+
+    public BuildScheduler(String libPath) {
+        this.libPath = libPath;
+    }
+
+    private Compiler makeCompiler(String sourcePath) throws IOException {
+        String path = Main.resolvePath(workDir, sourcePath);
+        Compiler compiler;
+        if (path.endsWith(".scm")) {
+            compiler = Compiler.fromProps(path, libPath);
+        }
+        else {
+            compiler = Compiler.makeDefault(path, libPath);
+        }
+        //keep the path in .meta same as given
+        compiler.module.sourcePath = sourcePath;
+        return compiler;
+    }
+
+    private static String canonicalPath(String file) {
+        try {
+            return new File(file).getCanonicalPath();
+        } catch (IOException ex) {
+            return new File(file).getAbsolutePath();
+        }
+    }
+
+    /**
+     * Read the .meta file of depends and build the depends graph
+     */
+    public BuildNode load(String sourcePath) throws IOException {
+        String key = canonicalPath(Main.resolvePath(workDir, sourcePath));
+        BuildNode node = nodeMap.get(key);
+        if (node != null) {
+            if (node.visiting) {
+                throw new RuntimeException("Cyclic depends: " + sourcePath);
+            }
+            return node;
+        }
+
+        node = new BuildNode();
+        node.sourcePath = sourcePath;
+        node.compiler = makeCompiler(sourcePath);
+        node.visiting = true;
+        nodeMap.put(key, node);
+
+        for (SModule.Depend dep : node.compiler.module.depends) {
+            String propsPath = libPath + "/" + dep.name + ".meta";
+            var props = Util.readProps(propsPath);
+            String depSourcePath = props.get("sourcePath");
+            if (depSourcePath != null) {
+                node.depends.add(load(depSourcePath));
+            }
+        }
+
+        node.visiting = false;
+        nodes.add(node);
+        return node;
+    }
+
+    /**
+     * The max count of modules that can be compiled at the same time.
+     * A module is at the level of its longest depends chain, the modules of one level are independent.
+     */
+    private int maxWidth() {
+        HashMap<BuildNode, Integer> levels = new HashMap<>();
+        HashMap<Integer, Integer> widths = new HashMap<>();
+        int max = 1;
+        for (BuildNode node : nodes) {
+            int level = 0;
+            for (BuildNode dep : node.depends) {
+                level = Math.max(level, levels.get(dep) + 1);
+            }
+            levels.put(node, level);
+            int width = widths.merge(level, 1, Integer::sum);
+            max = Math.max(max, width);
+        }
+        return max;
+    }
+
+    public boolean build(String sourcePath) throws IOException {
+        load(sourcePath);
+
+        //split the threads between the modules in flight
+        int workers = Math.max(1, threads);
+        int parallelism = Math.max(1, workers / Math.min(workers, maxWidth()));
+
+        BuildNode errorNode = null;
+        Throwable error = null;
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            for (BuildNode node : nodes) {
+                node.compiler.parallelism = parallelism;
+                node.compiler.incremental = incremental;
+                if (stats != null) {
+                    node.compiler.stats = new CompilerStats(node.compiler.module.name);
+                }
+                CompletableFuture<?>[] deps = new CompletableFuture<?>[node.depends.size()];
+                for (int i = 0; i < deps.length; ++i) {
+                    deps[i] = node.depends.get(i).future;
+                }
+                node.future = CompletableFuture.allOf(deps).thenRunAsync(() -> compile(node), executor);
+            }
+
+            for (BuildNode node : nodes) {
+                try {
+                    node.future.join();
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause() == null ? e : e.getCause();
+                    //the depends of a failed module get the same exception without running
+                    if (!(cause instanceof BuildFail) && node.timeMs >= 0 && error == null) {
+                        errorNode = node;
+                        error = cause;
+                    }
+                }
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        report();
+        if (stats != null) {
+            ArrayList<CompilerStats> list = new ArrayList<>();
+            for (BuildNode node : nodes) {
+                list.add(node.compiler.stats);
+            }
+            printStats(stats, list);
+        }
+
+        if (error != null) {
+            String msg = "Build " + errorNode.compiler.module.name + " fail: " + error;
+            if (error instanceof IOException) {
+                throw new IOException(msg, error);
+            }
+            throw new RuntimeException(msg, error);
+        }
+        return !failed.get();
+    }
+
+    private void compile(BuildNode node) {
+        //stop early on the first failure
+        if (failed.get()) {
+            throw new BuildFail();
+        }
+
+        long begin = System.nanoTime();
+        try {
+            node.success = node.compiler.run();
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        } finally {
+            node.timeMs = (System.nanoTime() - begin) / 1000_000;
+            if (!node.success) {
+                failed.set(true);
+            }
+        }
+
+        if (!node.success) {
+            throw new BuildFail();
+        }
+    }
+
+    static void printStats(String format, ArrayList<CompilerStats> list) {
+        if (format.equals("json")) {
+            System.out.println(CompilerStats.toJson(list));
+            return;
+        }
+        for (CompilerStats s : list) {
+            System.out.print(s);
+        }
+    }
+
+    private void report() {
+        for (BuildNode node : nodes) {
+            if (node.timeMs < 0) {
+                System.out.println(node.compiler.module.name + ": skipped");
+            }
+            else {
+                System.out.println(node.compiler.module.name + ": " + (node.success ? "" : "fail, ") + node.timeMs + "ms");
+            }
+        }
+    }
+}
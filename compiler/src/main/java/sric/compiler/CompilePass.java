@@ -7,7 +7,6 @@ package sric.compiler;
 import sric.compiler.ast.AstNode;
 import sric.compiler.ast.AstNode.*;
 import sric.compiler.ast.Expr;
-import sric.compiler.ast.Loc;
 import sric.compiler.ast.Stmt;
 
 /**
@@ -21,7 +20,7 @@ public abstract class CompilePass implements Visitor {
         this.log = log;
     }
     
-    protected CompilerLog.CompilerErr err(String msg, Loc loc) {
+    protected CompilerLog.CompilerErr err(String msg, long loc) {
         return log.err(msg, loc);
     }
     
@@ -71,7 +70,7 @@ public abstract class CompilePass implements Visitor {
             this.visitTypeAlias(v);
         }
         else {
-            err("Unknow AstNode type:" + node.getClass(), node.loc);
+            err("Unknow AstNode type:" + node.getClass(), node.pos);
         }
     }
 }
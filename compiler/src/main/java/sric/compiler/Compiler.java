@@ -9,16 +9,29 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import sric.compiler.ast.AstNode;
 import sric.compiler.ast.AstNode.FileUnit;
 import sric.compiler.ast.SModule;
 import sric.compiler.ast.SModule.Depend;
+import sric.compiler.ast.GenericTable;
+import sric.compiler.ast.TypeHierarchy;
 import sric.compiler.backend.CppGenerator;
 import sric.compiler.backend.ScLibGenerator;
+import sric.compiler.backend.ScbGenerator;
+import sric.compiler.parser.ChunkParser;
 import sric.compiler.parser.DeepParser;
+import sric.compiler.parser.NameTable;
+import sric.compiler.parser.ScbReader;
+import sric.compiler.parser.SourceLoader;
 import sric.compiler.resolve.ErrorChecker;
 import sric.compiler.resolve.ExprTypeResolver;
 import sric.compiler.resolve.TopLevelTypeResolver;
@@ -38,6 +51,29 @@ public class Compiler {
     
     public boolean genCode = true;
     
+    //max threads used by the parse stage, 1 to parse sequentially
+    public int parallelism = Runtime.getRuntime().availableProcessors();
+    
+    //files of this many chars or more are tokenized while parsing, not all at once
+    public int streamThreshold = 1 << 20;
+    
+    //files of this many chars or more are parsed by top level chunks on many threads
+    public int chunkThreshold = 1 << 18;
+    
+    //skeleton mode, function bodies are parsed on first FuncDef.getCode() and not type checked
+    public boolean lazyBody = false;
+    
+    //skip the build when the manifest says nothing changed
+    public boolean incremental = true;
+    private BuildManifest manifest = null;
+    private BuildManifest oldManifest = null;
+    
+    //collect the per phase statistics if not null
+    public CompilerStats stats = null;
+    
+    //identifiers of all files
+    public NameTable names = new NameTable();
+    
     public Compiler(SModule module, File sourceDir, String libPath, String outputDir) {
         this.module = module;
         log = new CompilerLog();
@@ -96,12 +132,32 @@ public class Compiler {
     }
     
     public boolean run() throws IOException {
-        for (File file : sources) {
-            AstNode.FileUnit funit = parse(file);
-            funit.module = module;
-            module.fileUnits.add(funit);
+        if (stats == null) {
+            return doRun();
+        }
+        stats.attach();
+        try {
+            return doRun();
+        }
+        finally {
+            stats.detach();
+        }
+    }
+    
+    private boolean doRun() throws IOException {
+        if (genCode && incremental) {
+            CompilerStats.Mark mark = beginPhase(log);
+            manifest = BuildManifest.compute(this);
+            oldManifest = BuildManifest.load(manifestFile());
+            boolean upToDate = manifest.sameInputs(oldManifest) && outputExists();
+            endPhase("manifest", mark, log);
+            if (upToDate) {
+                return true;
+            }
         }
         
+        parseAll();
+        
         if (log.printError()) {
             return false;
         }
@@ -120,16 +176,14 @@ public class Compiler {
     
     public boolean updateFile(String file, String src) throws IOException {
         AstNode.FileUnit funit = new AstNode.FileUnit(file);
-        DeepParser parser = new DeepParser(log, src, funit);
+        DeepParser parser = new DeepParser(log, src.toCharArray(), funit, names);
         parser.parse();
         funit.module = module;
         
-        for (FileUnit f : module.fileUnits) {
-            if (f.name.endsWith(funit.name)) {
-                module.fileUnits.remove(f);
-            }
-        }
+        module.fileUnits.removeIf(f -> f.name.endsWith(funit.name));
         module.fileUnits.add(funit);
+        //the module scope refers to the defs of the removed unit
+        module.scope = null;
 
         if (log.printError()) {
             return false;
@@ -147,8 +201,19 @@ public class Compiler {
     public SModule importModule(String moduleName, String version) {
         String libFile = libPath + "/" + moduleName;
         try {
+            File image = new File(libFile+".scb");
+            if (isImageFresh(image, libFile)) {
+                Compiler compiler = Compiler.fromProps(libFile+".meta", libPath, libFile+".sc");
+                compiler.genCode = false;
+                if (compiler.loadImage(image)) {
+                    return compiler.module;
+                }
+            }
+            
+            //only the declarations are used by the importer, same as the image
             Compiler compiler = Compiler.fromProps(libFile+".meta", libPath, libFile+".sc");
             compiler.genCode = false;
+            compiler.lazyBody = true;
         
             compiler.run();
             return compiler.module;
@@ -159,19 +224,72 @@ public class Compiler {
         }
     }
     
+    private static boolean isImageFresh(File image, String libFile) {
+        if (!image.exists()) {
+            return false;
+        }
+        long time = image.lastModified();
+        return time >= new File(libFile+".sc").lastModified() && time >= new File(libFile+".meta").lastModified();
+    }
+    
+    /**
+     * Load the precompiled module image instead of parsing the .sc file.
+     * return false if the image can not be used.
+     */
+    private boolean loadImage(File image) {
+        try {
+            if (!ScbReader.map(image).read(module)) {
+                return false;
+            }
+        } catch (IOException ex) {
+            return false;
+        }
+        
+        TopLevelTypeResolver slotResolver = new TopLevelTypeResolver(log, module, this);
+        slotResolver.run();
+        TypeHierarchy.build(module);
+        log.printError();
+        return true;
+    }
+    
+    private CompilerStats.Mark beginPhase(CompilerLog log) {
+        if (stats == null) {
+            return null;
+        }
+        return stats.begin(log);
+    }
+    
+    private void endPhase(String name, CompilerStats.Mark mark, CompilerLog log) {
+        if (mark != null) {
+            stats.end(name, mark, log);
+        }
+    }
+    
     private void typeCheck() {
+        //the instances of the last check refer to the replaced units
+        module.generics = new GenericTable();
+        CompilerStats.Mark mark = beginPhase(log);
         TopLevelTypeResolver slotResolver = new TopLevelTypeResolver(log, module, this);
         slotResolver.run();
+        endPhase("TopLevelTypeResolver", mark, log);
         
         if (log.hasError()) {
             return;
         }
+        TypeHierarchy.build(module);
         
+        mark = beginPhase(log);
         ExprTypeResolver exprResolver = new ExprTypeResolver(log, module);
-        exprResolver.run();
+        exprResolver.run(parallelism);
+        endPhase("ExprTypeResolver", mark, log);
+        if (stats != null) {
+            stats.genericInstances = module.generics.counts();
+        }
         
+        mark = beginPhase(log);
         ErrorChecker errorChecker = new ErrorChecker(log, module);
-        errorChecker.run();
+        errorChecker.run(parallelism);
+        endPhase("ErrorChecker", mark, log);
         
         if (log.hasError()) {
             return;
@@ -179,31 +297,164 @@ public class Compiler {
     }
     
     public AstNode.FileUnit parse(File file) throws IOException {
-        String src = Files.readString(file.toPath());
+        return parse(file, log, null);
+    }
+    
+    /**
+     * the big file is parsed by chunks on executor, if it is not null
+     */
+    private AstNode.FileUnit parse(File file, CompilerLog log, ExecutorService executor) throws IOException {
+        CompilerStats.Mark mark = beginPhase(log);
+        char[] src = SourceLoader.load(file);
+        endPhase("load", mark, log);
         
         AstNode.FileUnit unit = new AstNode.FileUnit(file.getPath());
-        DeepParser parser = new DeepParser(log, src, unit);
+        if (executor != null && src.length >= chunkThreshold) {
+            mark = beginPhase(log);
+            ChunkParser chunkParser = new ChunkParser(log, src, unit, names);
+            chunkParser.lazyBody = lazyBody;
+            endPhase("tokenize", mark, log);
+            
+            mark = beginPhase(log);
+            chunkParser.parse(executor, parallelism);
+            endPhase("parse", mark, log);
+            return unit;
+        }
+        
+        boolean stream = !lazyBody && src.length >= streamThreshold;
+        mark = beginPhase(log);
+        DeepParser parser = new DeepParser(log, src, unit, names, stream);
+        parser.lazyBody = lazyBody;
+        //the stream parser tokenizes while parsing, the time is all in parse
+        if (!stream) {
+            endPhase("tokenize", mark, log);
+            mark = beginPhase(log);
+        }
         parser.parse();
+        endPhase("parse", mark, log);
         return unit;
     }
     
+    private void parseAll() throws IOException {
+        if (parallelism <= 1) {
+            for (File file : sources) {
+                AstNode.FileUnit funit = parse(file);
+                funit.module = module;
+                module.fileUnits.add(funit);
+            }
+            return;
+        }
+        
+        //the files and the chunks of big files share the pool.
+        //the wall time of loading, tokenizing and parsing is all taken here, the workers only add the cpu and counters
+        CompilerStats.Mark mark = beginPhase(log);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            ArrayList<CompilerLog> logs = new ArrayList<CompilerLog>(sources.size());
+            ArrayList<Future<AstNode.FileUnit>> futures = new ArrayList<Future<AstNode.FileUnit>>(sources.size());
+            for (File file : sources) {
+                CompilerLog fileLog = new CompilerLog();
+                logs.add(fileLog);
+                futures.add(executor.submit(() -> parse(file, fileLog, executor)));
+            }
+            
+            //merge in source order to keep the output stable
+            for (int i=0; i<futures.size(); ++i) {
+                AstNode.FileUnit funit = waitFor(futures.get(i));
+                funit.module = module;
+                module.fileUnits.add(funit);
+            }
+            endPhase("parse", mark, log);
+            //the errors are counted by the phases of the files
+            for (CompilerLog fileLog : logs) {
+                log.errors.addAll(fileLog.errors);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private static <T> T waitFor(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException e) {
+                throw e;
+            }
+            if (cause instanceof RuntimeException e) {
+                throw e;
+            }
+            if (cause instanceof Error e) {
+                throw e;
+            }
+            throw new IOException(cause);
+        }
+    }
+    
+    private String manifestFile() {
+        return outputDir + "/" + this.module.name + ".manifest";
+    }
+    
+    private boolean outputExists() {
+        String libFile = libPath + "/" + this.module.name;
+        String outputFile = outputDir + "/" + this.module.name;
+        for (String file : new String[]{libFile+".sc", libFile+".meta", libFile+".scb", outputFile+".h", outputFile+".cpp"}) {
+            if (!new File(file).exists()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
     public void genOutput() throws IOException {
         String libFile = libPath + "/" + this.module.name;
-        ScLibGenerator scGenerator = new ScLibGenerator(log, libFile + ".sc");
+        CompilerStats.Mark mark = beginPhase(log);
+        ByteArrayOutputStream stub = new ByteArrayOutputStream();
+        ScLibGenerator scGenerator = new ScLibGenerator(log, new PrintStream(stub, true, "UTF-8"));
         scGenerator.run(module);
+        endPhase("ScLibGenerator", mark, log);
         
         var props = this.module.toMetaProps();
-        Util.writeProps(libFile+".meta", props);
+        
+        //keep the public .sc/.meta untouched when only function bodies changed
+        String interfaceHash = BuildManifest.hash((BuildManifest.hash(stub.toByteArray()) + new TreeMap<>(props)).getBytes());
+        boolean interfaceChanged = oldManifest == null || !interfaceHash.equals(oldManifest.getInterface())
+                || !new File(libFile+".sc").exists() || !new File(libFile+".meta").exists()
+                || !new File(libFile+".scb").exists();
+        
+        if (interfaceChanged) {
+            Files.write(Path.of(libFile+".sc"), stub.toByteArray());
+            Util.writeProps(libFile+".meta", props);
+
+            //written last, the image is stale if older than .sc or .meta
+            mark = beginPhase(log);
+            ScbGenerator scbGenerator = new ScbGenerator(log, libFile + ".scb");
+            scbGenerator.run(module);
+            endPhase("ScbGenerator", mark, log);
+        }
         
         new File(outputDir).mkdirs();
         
         String outputFile = outputDir + "/" + this.module.name;
+        mark = beginPhase(log);
         CppGenerator generator = new CppGenerator(log, outputFile+".h", true);
         generator.run(module);
+        endPhase("CppGenerator.h", mark, log);
         
+        mark = beginPhase(log);
         CppGenerator generator2 = new CppGenerator(log, outputFile+".cpp", false);
         generator2.run(module);
-
+        endPhase("CppGenerator.cpp", mark, log);
+        
+        if (manifest != null) {
+            manifest.setInterface(interfaceHash);
+            manifest.save(manifestFile());
+        }
     }
     
 }
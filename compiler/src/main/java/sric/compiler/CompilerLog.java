@@ -5,6 +5,7 @@
 package sric.compiler;
 
 import java.util.ArrayList;
+import sric.compiler.ast.LineTable;
 import sric.compiler.ast.Loc;
 
 /**
@@ -24,6 +25,10 @@ public class CompilerLog {
         }
     }
     
+    public CompilerErr err(String msg, long pos) {
+        return err(msg, LineTable.decode(pos));
+    }
+    
     public CompilerErr err(String msg, Loc loc) {
         CompilerErr e = new CompilerErr(loc, msg);
         errors.add(e);
@@ -0,0 +1,222 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler;
+
+import com.google.gson.GsonBuilder;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Per phase time, allocation and counters of a compilation.
+ * The counters are kept per thread, and only updated on the threads working for a measured compilation.
+ * The wall time is taken on the thread running the compilation, the work on other threads adds cpu, allocation and counters.
+ *
+ * @author yangjiandong
+ */
+public class CompilerStats {
+
+    //the stats of the compilation the thread works for, inherited by the pool threads it starts
+    private static final InheritableThreadLocal<CompilerStats> current = new InheritableThreadLocal<>();
+    //count of compilations being measured, checked before the thread local
+    private static volatile int measuring = 0;
+
+    public static final int TOKEN = 0;
+    public static final int AST_NODE = 1;
+    public static final int SCOPE = 2;
+    public static final int GENERIC_INSTANCE = 3;
+    public static final int FIT_HIT = 4;
+    public static final int FIT_MISS = 5;
+    private static final int COUNTER_SIZE = 6;
+
+    private static final ThreadLocal<long[]> counters = ThreadLocal.withInitial(() -> new long[COUNTER_SIZE]);
+
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * the current thread works for a measured compilation
+     */
+    public static boolean enabled() {
+        return measuring > 0 && current.get() != null;
+    }
+
+    public static void count(int counter) {
+        counters.get()[counter]++;
+    }
+
+    public static void count(int counter, int n) {
+        counters.get()[counter] += n;
+    }
+
+    //counter of current thread
+    public static long get(int counter) {
+        return counters.get()[counter];
+    }
+
+    //all counters of current thread
+    public static long[] snapshot() {
+        return counters.get().clone();
+    }
+
+    //add the counts made on other thread
+    public static void add(long[] counts) {
+        long[] cur = counters.get();
+        for (int i = 0; i < COUNTER_SIZE; ++i) {
+            cur[i] += counts[i];
+        }
+    }
+
+    public static class Phase {
+        public String name;
+        public long wallNanos;
+        public long cpuNanos;
+        public long allocBytes;
+        public long tokens;
+        public long astNodes;
+        public long scopes;
+        public long genericInstances;
+        public long fitHits;
+        public long fitMisses;
+        public long errors;
+    }
+
+    /**
+     * The start point of a measure on current thread
+     */
+    public static class Mark {
+        long wall;
+        long cpu;
+        long alloc;
+        long[] counts;
+        int errors;
+    }
+
+    public String module;
+    private LinkedHashMap<String, Phase> phases = new LinkedHashMap<>();
+    //instance count of each generic def
+    public LinkedHashMap<String, Integer> genericInstances = null;
+    //the thread running the compilation
+    private Thread coordinator = null;
+
+    public CompilerStats(String module) {
+        this.module = module;
+    }
+
+    /**
+     * measure the work of the current thread and the pools it starts, until detach
+     */
+    public void attach() {
+        coordinator = Thread.currentThread();
+        current.set(this);
+        synchronized (CompilerStats.class) {
+            ++measuring;
+        }
+    }
+
+    public void detach() {
+        current.remove();
+        coordinator = null;
+        synchronized (CompilerStats.class) {
+            --measuring;
+        }
+    }
+
+    private static long allocatedBytes() {
+        if (threadBean instanceof com.sun.management.ThreadMXBean bean) {
+            return bean.getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    public Mark begin(CompilerLog log) {
+        Mark m = new Mark();
+        m.counts = counters.get().clone();
+        m.errors = log.errors.size();
+        m.alloc = allocatedBytes();
+        m.cpu = threadBean.getCurrentThreadCpuTime();
+        m.wall = System.nanoTime();
+        return m;
+    }
+
+    /**
+     * Add the cost since mark to the phase. The phases measured on many threads are summed,
+     * except the wall time which is only taken on the coordinating thread.
+     */
+    public void end(String name, Mark m, CompilerLog log) {
+        long wall = System.nanoTime() - m.wall;
+        long cpu = threadBean.getCurrentThreadCpuTime() - m.cpu;
+        long alloc = allocatedBytes() - m.alloc;
+        long[] counts = counters.get();
+        int errors = log.errors.size() - m.errors;
+
+        synchronized (this) {
+            Phase p = phases.get(name);
+            if (p == null) {
+                p = new Phase();
+                p.name = name;
+                phases.put(name, p);
+            }
+            if (Thread.currentThread() == coordinator) {
+                p.wallNanos += wall;
+            }
+            p.cpuNanos += cpu;
+            p.allocBytes += alloc;
+            p.tokens += counts[TOKEN] - m.counts[TOKEN];
+            p.astNodes += counts[AST_NODE] - m.counts[AST_NODE];
+            p.scopes += counts[SCOPE] - m.counts[SCOPE];
+            p.genericInstances += counts[GENERIC_INSTANCE] - m.counts[GENERIC_INSTANCE];
+            p.fitHits += counts[FIT_HIT] - m.counts[FIT_HIT];
+            p.fitMisses += counts[FIT_MISS] - m.counts[FIT_MISS];
+            p.errors += errors;
+        }
+    }
+
+    public synchronized ArrayList<Phase> getPhases() {
+        return new ArrayList<>(phases.values());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("== ").append(module).append('\n');
+        sb.append(String.format("%-22s %10s %10s %12s %9s %9s %8s %9s %9s %9s %7s\n",
+                "phase", "wall(ms)", "cpu(ms)", "alloc(KB)", "tokens", "nodes", "scopes", "generics", "fitHits", "fitMiss", "errors"));
+        for (Phase p : getPhases()) {
+            sb.append(String.format("%-22s %10.2f %10.2f %12d %9d %9d %8d %9d %9d %9d %7d\n",
+                    p.name, p.wallNanos / 1e6, p.cpuNanos / 1e6, p.allocBytes / 1024,
+                    p.tokens, p.astNodes, p.scopes, p.genericInstances, p.fitHits, p.fitMisses, p.errors));
+        }
+        if (genericInstances != null && !genericInstances.isEmpty()) {
+            sb.append("generic instances:");
+            int i = 0;
+            for (var e : genericInstances.entrySet()) {
+                //the most instantiated defs only
+                if (i == 10) {
+                    sb.append(" ...");
+                    break;
+                }
+                sb.append(' ').append(e.getKey()).append('=').append(e.getValue());
+                ++i;
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    public static String toJson(ArrayList<CompilerStats> list) {
+        ArrayList<LinkedHashMap<String, Object>> res = new ArrayList<>();
+        for (CompilerStats s : list) {
+            LinkedHashMap<String, Object> m = new LinkedHashMap<>();
+            m.put("module", s.module);
+            m.put("phases", s.getPhases());
+            if (s.genericInstances != null) {
+                m.put("genericInstances", s.genericInstances);
+            }
+            res.add(m);
+        }
+        return new GsonBuilder().setPrettyPrinting().create().toJson(res);
+    }
+}
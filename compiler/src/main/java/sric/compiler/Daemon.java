@@ -0,0 +1,163 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import sric.compiler.ast.Buildin;
+
+/**
+ * Long-lived compiler process. The imported modules stay in ModuleRegistry between requests.
+ *
+ * Protocol over a Unix domain socket:
+ * the request is the client working dir and then the command line args, one per line, ended by an empty line.
+ * the response is the build output and then a line of "\0exit <code>".
+ *
+ * @author yangjiandong
+ */
+public class Daemon {
+    public static final String exitMark = "\0exit ";
+
+    private String socketPath;
+
+    public Daemon(String socketPath) {
+        this.socketPath = socketPath;
+    }
+
+    public static String defaultSocket() {
+        return System.getProperty("java.io.tmpdir") + "/sric-" + System.getProperty("user.name") + ".sock";
+    }
+
+    public void start() throws IOException {
+        Path path = Path.of(socketPath);
+        //the socket file is only stale if nobody accepts on it
+        if (isRunning(path)) {
+            throw new IOException("sric daemon is already running on " + path);
+        }
+        Files.deleteIfExists(path);
+
+        //warm up
+        Buildin.getBuildinScope();
+
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(path));
+            System.out.println("sric daemon listening on " + path);
+
+            //one request at a time, the output is captured from System.out/err
+            while (true) {
+                try (SocketChannel channel = server.accept()) {
+                    serve(channel);
+                }
+                catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static boolean isRunning(Path path) {
+        if (!Files.exists(path)) {
+            return false;
+        }
+        //the daemon reads no request from a closed connection
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(path))) {
+            return true;
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void serve(SocketChannel channel) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+        String workDir = reader.readLine();
+        if (workDir == null) {
+            return;
+        }
+        ArrayList<String> args = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+            args.add(line);
+        }
+
+        PrintStream out = new PrintStream(Channels.newOutputStream(channel), true, StandardCharsets.UTF_8);
+        PrintStream oldOut = System.out;
+        PrintStream oldErr = System.err;
+        System.setOut(out);
+        System.setErr(out);
+        int code = 1;
+        try {
+            Main.Options options = Main.Options.parse(args.toArray(new String[0]));
+            code = Main.run(options, new File(workDir)) ? 0 : 1;
+        }
+        catch (Throwable e) {
+            e.printStackTrace(out);
+        }
+        finally {
+            System.setOut(oldOut);
+            System.setErr(oldErr);
+        }
+        out.print(exitMark + code + "\n");
+        out.flush();
+    }
+
+    /**
+     * Send the command line to the daemon and print the output.
+     * return the exit code, or -1 if the daemon is not running.
+     */
+    public static int forward(String socketPath, String[] args) throws IOException {
+        Path path = Path.of(socketPath);
+        if (!Files.exists(path)) {
+            return -1;
+        }
+
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(UnixDomainSocketAddress.of(path));
+        }
+        catch (IOException e) {
+            return -1;
+        }
+
+        try (channel) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(new File("").getAbsolutePath()).append('\n');
+            for (String arg : args) {
+                sb.append(arg).append('\n');
+            }
+            sb.append('\n');
+            OutputStream out = Channels.newOutputStream(channel);
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            InputStream in = Channels.newInputStream(channel);
+            String response = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            int pos = response.lastIndexOf(exitMark);
+            if (pos < 0) {
+                System.out.print(response);
+                return 1;
+            }
+            System.out.print(response.substring(0, pos));
+            return Integer.parseInt(response.substring(pos + exitMark.length()).trim());
+        }
+    }
+}
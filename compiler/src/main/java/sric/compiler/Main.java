@@ -6,7 +6,7 @@ package sric.compiler;
 
 import java.io.File;
 import java.io.IOException;
-import sric.compiler.ast.SModule;
+import java.util.ArrayList;
 import sric.lsp.LanguageServer;
 
 /**
@@ -14,40 +14,137 @@ import sric.lsp.LanguageServer;
  * @author yangjiandong
  */
 public class Main {
-    
-    public static void main(String[] args) throws IOException {
-        String sourcePath = "../library/test/module.scm";
-        String libPath = "res/lib";
-        boolean recursion = true;
-        boolean lsp = false;
-        for (int i = 1; i<args.length; ++i) {
-            if (args[i].equals("-lib")) {
-                ++i;
-                libPath = args[i];
-            }
-            else if (args[i].equals("-lsp")) {
-                lsp = true;
-            }
-            else if (args[i].equals("-r")) {
-                recursion = true;
-            }
-            else {
-                sourcePath = args[i];
+
+    public static class Options {
+        public String sourcePath = "../library/test/module.scm";
+        public String libPath = "res/lib";
+        public boolean recursion = true;
+        public boolean lsp = false;
+        public int threads = Runtime.getRuntime().availableProcessors();
+        public boolean incremental = true;
+        public boolean daemon = false;
+        public boolean client = false;
+        public String socket = Daemon.defaultSocket();
+        //"text" or "json"
+        public String stats = null;
+
+        public static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 1; i<args.length; ++i) {
+                if (args[i].equals("-lib")) {
+                    ++i;
+                    options.libPath = args[i];
+                }
+                else if (args[i].equals("-lsp")) {
+                    options.lsp = true;
+                }
+                else if (args[i].equals("-r")) {
+                    options.recursion = true;
+                }
+                else if (args[i].equals("-f")) {
+                    options.incremental = false;
+                }
+                else if (args[i].equals("-j")) {
+                    ++i;
+                    options.threads = Integer.parseInt(args[i]);
+                }
+                else if (args[i].equals("-daemon")) {
+                    options.daemon = true;
+                }
+                else if (args[i].equals("-client")) {
+                    options.client = true;
+                }
+                else if (args[i].equals("-stats")) {
+                    options.stats = "text";
+                }
+                else if (args[i].startsWith("-stats=")) {
+                    options.stats = args[i].substring("-stats=".length());
+                }
+                else if (args[i].equals("-socket")) {
+                    ++i;
+                    options.socket = args[i];
+                }
+                else {
+                    options.sourcePath = args[i];
+                }
             }
+            return options;
         }
-        
-        if (lsp) {
-            LanguageServer ls = new LanguageServer(libPath);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Options options = Options.parse(args);
+
+        if (options.lsp) {
+            LanguageServer ls = new LanguageServer(options.libPath);
             ls.start();
             return;
         }
-        
-        if ( !compile(sourcePath, libPath, recursion)) {
+
+        if (options.daemon) {
+            Daemon daemon = new Daemon(options.socket);
+            daemon.start();
+            return;
+        }
+
+        if (options.client) {
+            //build in process when no daemon is running
+            int code = Daemon.forward(options.socket, args);
+            if (code >= 0) {
+                System.exit(code);
+            }
+        }
+
+        run(options, null);
+    }
+
+    /**
+     * Build by options, the relative paths are resolved against workDir if not null
+     */
+    public static boolean run(Options options, File workDir) throws IOException {
+        boolean res;
+        if (workDir != null && options.recursion) {
+            BuildScheduler scheduler = new BuildScheduler(resolvePath(workDir, options.libPath));
+            scheduler.threads = options.threads;
+            scheduler.incremental = options.incremental;
+            scheduler.workDir = workDir;
+            scheduler.stats = options.stats;
+            res = scheduler.build(options.sourcePath);
+        }
+        else {
+            res = compile(options.sourcePath, options.libPath, options.recursion, options.threads, options.incremental, options.stats);
+        }
+
+        if (!res) {
             System.out.println("ERROR");
         }
+        return res;
+    }
+
+    static String resolvePath(File workDir, String path) {
+        if (workDir == null || new File(path).isAbsolute()) {
+            return path;
+        }
+        return new File(workDir, path).getPath();
     }
-    
+
     public static boolean compile(String sourcePath, String libPath, boolean recursion) throws IOException {
+        return compile(sourcePath, libPath, recursion, Runtime.getRuntime().availableProcessors(), true);
+    }
+
+    public static boolean compile(String sourcePath, String libPath, boolean recursion, int threads, boolean incremental) throws IOException {
+        return compile(sourcePath, libPath, recursion, threads, incremental, null);
+    }
+
+    public static boolean compile(String sourcePath, String libPath, boolean recursion, int threads, boolean incremental, String stats) throws IOException {
+        if (recursion) {
+            BuildScheduler scheduler = new BuildScheduler(libPath);
+            scheduler.threads = threads;
+            scheduler.incremental = incremental;
+            scheduler.stats = stats;
+            return scheduler.build(sourcePath);
+        }
+
         Compiler compiler;
         if (sourcePath.endsWith(".scm")) {
             compiler = Compiler.fromProps(sourcePath, libPath);
@@ -55,22 +152,17 @@ public class Main {
         else {
             compiler = Compiler.makeDefault(sourcePath, libPath);
         }
-        
-        if (recursion) {
-            for (SModule.Depend dep: compiler.module.depends) {
-                String libFile = libPath + "/" + dep.name;
-                String propsPath = libFile+".meta";
-                var props = Util.readProps(propsPath);
-                String sourcePath2 = props.get("sourcePath");
-                if (sourcePath2 != null) {
-                    if (!compile(sourcePath2, libPath, recursion)) {
-                        System.out.println("ERROR");
-                        return false;
-                    }
-                }
-            }
+        compiler.parallelism = threads;
+        compiler.incremental = incremental;
+        if (stats == null) {
+            return compiler.run();
         }
         
-        return compiler.run();
+        compiler.stats = new CompilerStats(compiler.module.name);
+        boolean res = compiler.run();
+        ArrayList<CompilerStats> list = new ArrayList<>();
+        list.add(compiler.stats);
+        BuildScheduler.printStats(stats, list);
+        return res;
     }
 }
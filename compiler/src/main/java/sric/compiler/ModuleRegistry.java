@@ -0,0 +1,76 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.concurrent.ConcurrentHashMap;
+import sric.compiler.ast.SModule;
+
+/**
+ * Process wide cache of imported modules.
+ * Entries are checked against the lib files on every lookup,
+ * and are only softly reachable so that unused modules can be collected.
+ *
+ * @author yangjiandong
+ */
+public class ModuleRegistry {
+
+    private static class Entry {
+        String fingerprint;
+        volatile SoftReference<SModule> module;
+    }
+
+    private static final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public static SModule importModule(Compiler compiler, String name, String version) {
+        String libFile = compiler.libPath + "/" + name;
+        String key = name + " " + version + " " + canonicalPath(libFile);
+        purge();
+        Entry entry = entries.computeIfAbsent(key, k -> new Entry());
+
+        //lock per module, so that the same module is only imported once at a time
+        synchronized (entry) {
+            String fingerprint = fingerprint(libFile);
+            SModule m = entry.module == null ? null : entry.module.get();
+            if (m != null && fingerprint.equals(entry.fingerprint)) {
+                return m;
+            }
+
+            m = compiler.importModule(name, version);
+            entry.fingerprint = fingerprint;
+            entry.module = new SoftReference<>(m);
+            return m;
+        }
+    }
+
+    /**
+     * drop the entries whose module has been collected
+     */
+    private static void purge() {
+        entries.values().removeIf(e -> {
+            SoftReference<SModule> ref = e.module;
+            return ref != null && ref.get() == null;
+        });
+    }
+
+    private static String canonicalPath(String file) {
+        try {
+            return new File(file).getCanonicalPath();
+        } catch (IOException ex) {
+            return new File(file).getAbsolutePath();
+        }
+    }
+
+    private static String fingerprint(String libFile) {
+        StringBuilder sb = new StringBuilder();
+        for (String ext : new String[]{".meta", ".sc", ".scb"}) {
+            File f = new File(libFile + ext);
+            sb.append(f.lastModified()).append(':').append(f.length()).append(';');
+        }
+        return sb.toString();
+    }
+}
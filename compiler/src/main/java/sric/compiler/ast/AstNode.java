@@ -5,7 +5,10 @@
 package sric.compiler.ast;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.function.Supplier;
+import sric.compiler.CompilerStats;
 import sric.compiler.ast.Expr.IdExpr;
 import sric.compiler.ast.Token.TokenKind;
 
@@ -15,8 +18,23 @@ import sric.compiler.ast.Token.TokenKind;
  */
 public class AstNode {
 
-    public Loc loc;
+    //packed position of LineTable, decode by loc()
+    public long pos;
     public int len = 0;
+    
+    public AstNode() {
+        if (CompilerStats.enabled()) {
+            CompilerStats.count(CompilerStats.AST_NODE);
+        }
+    }
+    
+    //not counted as AST node, the scopes have their own counter
+    AstNode(boolean counted) {
+    }
+    
+    public Loc loc() {
+        return LineTable.decode(pos);
+    }
         
     public interface Visitor {
         public void visit(AstNode node);
@@ -70,6 +88,9 @@ public class AstNode {
     
     public static abstract class TypeDef extends TopLevelDef {
         protected Scope scope = null;
+        //dense id of struct and trait in hierarchyModule, set by TypeHierarchy
+        public int hierarchyId = -1;
+        SModule hierarchyModule = null;
         public abstract Scope getScope();
     }
     
@@ -87,7 +108,7 @@ public class AstNode {
         
         public FieldDef parameterize(ArrayList<Type> typeGenericArgs) {
             FieldDef nf = new FieldDef(this.comment, this.name);
-            nf.loc = this.loc;
+            nf.pos = this.pos;
             nf.len = this.len;
             nf.flags = this.flags;
             nf.parent = this.parent;
@@ -115,8 +136,14 @@ public class AstNode {
         public ArrayList<GenericParamDef> generiParamDefs = null;
         
         private Scope inheritScopes = null;
+        private Scope noPrivateScope = null;
+        private HashMap<String,FieldDef> allFields = null;
+        //set by TypeHierarchy, null if not indexed
+        BitSet ancestors = null;
+        TypeDef[] linearAncestors = null;
+        //the ancestors of other modules, not in the bit set
+        TypeDef[] foreignAncestors = null;
         StructDef genericFrom = null;
-        private HashMap<String, StructDef> parameterizeCache;
         
         public StructDef(Comments comment, int flags, String name) {
             this.comment = comment;
@@ -124,6 +151,18 @@ public class AstNode {
             this.name = name;
         }
         
+        /**
+         * drop the state derived from the inheritances, rebuilt on a new type check
+         */
+        synchronized void clearHierarchy() {
+            inheritScopes = null;
+            noPrivateScope = null;
+            allFields = null;
+            ancestors = null;
+            linearAncestors = null;
+            foreignAncestors = null;
+        }
+        
         public void addSlot(AstNode node) {
             if (node instanceof FieldDef f) {
                 fieldDefs.add(f);
@@ -149,6 +188,18 @@ public class AstNode {
             }
         }
         
+        /**
+         * fields of self and all parents, shared so don't modify it
+         */
+        public synchronized HashMap<String,FieldDef> getAllFields() {
+            if (allFields == null) {
+                HashMap<String,FieldDef> fields = new HashMap<>();
+                getAllFields(fields);
+                allFields = fields;
+            }
+            return allFields;
+        }
+        
         public void getAllFields(HashMap<String,FieldDef> fields) {
             for (FieldDef field : fieldDefs) {
                 fields.put(field.name, field);
@@ -165,7 +216,7 @@ public class AstNode {
             }
         }
         
-        public Scope getScope() {
+        public synchronized Scope getScope() {
             if (scope == null) {
                 scope = new Scope();
                 if (this.generiParamDefs != null) {
@@ -183,11 +234,24 @@ public class AstNode {
             return scope;
         }
         
-        public Scope getInheriteScope() {
+        public synchronized Scope getInheriteScope() {
             if (inheritScopes == null) {
                 if (this.inheritances == null) {
                     return null;
                 }
+                if (linearAncestors != null) {
+                    Scope[] layers = new Scope[linearAncestors.length];
+                    for (int i = 0; i < layers.length; ++i) {
+                        if (linearAncestors[i] instanceof StructDef inhSd) {
+                            layers[i] = inhSd.getNoPrivateScope();
+                        }
+                        else {
+                            layers[i] = ((TraitDef)linearAncestors[i]).getNoPrivateScope();
+                        }
+                    }
+                    inheritScopes = new OverlayScope(layers);
+                    return inheritScopes;
+                }
                 Scope s = new Scope();
                 for (Type inh : this.inheritances) {
                     if (inh.id.resolvedDef != null) {
@@ -208,6 +272,15 @@ public class AstNode {
             return inheritScopes;
         }
         
+        public synchronized Scope getNoPrivateScope() {
+            if (noPrivateScope == null) {
+                Scope s = new Scope();
+                getScopeNoPrivate(s);
+                noPrivateScope = s;
+            }
+            return noPrivateScope;
+        }
+        
         private void getScopeNoPrivate(Scope scope) {
             for (FieldDef f : fieldDefs) {
                 if ((f.flags & FConst.Private) != 0) {
@@ -223,23 +296,10 @@ public class AstNode {
             }
         }
         
-        public StructDef parameterize(ArrayList<Type> typeGenericArgs) {
-            if (parameterizeCache == null) {
-                parameterizeCache = new HashMap<String, StructDef>();
-            }
-            StringBuilder keySb = new StringBuilder();
-            for (Type t : typeGenericArgs) {
-                if (!keySb.isEmpty()) {
-                    keySb.append(',');
-                }
-                keySb.append(t.toString());
-            }
-            String key = keySb.toString();
-            StructDef gt = parameterizeCache.get(key);
-            if (gt != null) {
-                return gt;
-            }
-            
+        /**
+         * new instance of the generic struct, deduplicated by GenericTable
+         */
+        StructDef newInstance(ArrayList<Type> typeGenericArgs) {
             StructDef nt = new StructDef(this.comment, this.flags, this.name);
             nt.parent = this.parent;
             nt.genericFrom = this;
@@ -247,13 +307,23 @@ public class AstNode {
                 nt.addSlot(f.parameterize(typeGenericArgs));
             }
             for (FuncDef f : funcDefs) {
-                nt.addSlot(f.parameterize(typeGenericArgs));
+                nt.addSlot(f.newInstance(typeGenericArgs));
             }
-            parameterizeCache.put(key, nt);
             return nt;
         }
         
         public boolean isInheriteFrom(TypeDef parent) {
+            if (ancestors != null) {
+                if (parent.hierarchyModule == hierarchyModule) {
+                    return ancestors.get(parent.hierarchyId);
+                }
+                for (TypeDef t : foreignAncestors) {
+                    if (t == parent) {
+                        return true;
+                    }
+                }
+                return false;
+            }
             if (this.inheritances == null) {
                 return false;
             }
@@ -286,7 +356,7 @@ public class AstNode {
             enumDefs.add(node);
         }
         
-        public Scope getScope() {
+        public synchronized Scope getScope() {
             if (scope == null) {
                 scope = new Scope();
                 
@@ -306,6 +376,7 @@ public class AstNode {
     
     public static class TraitDef extends TypeDef {
         public ArrayList<FuncDef> funcDefs = new ArrayList<FuncDef>();
+        private Scope noPrivateScope = null;
         
         public TraitDef(Comments comment, int flags, String name) {
             this.comment = comment;
@@ -318,7 +389,7 @@ public class AstNode {
             funcDefs.add(node);
         }
         
-        public Scope getScope() {
+        public synchronized Scope getScope() {
             if (scope == null) {
                 scope = new Scope();
 
@@ -329,6 +400,15 @@ public class AstNode {
             return scope;
         }
         
+        public synchronized Scope getNoPrivateScope() {
+            if (noPrivateScope == null) {
+                Scope s = new Scope();
+                getScopeNoPrivate(s);
+                noPrivateScope = s;
+            }
+            return noPrivateScope;
+        }
+        
         public void getScopeNoPrivate(Scope scope) {
             for (FuncDef f : funcDefs) {
                 if ((f.flags & FConst.Private) != 0) {
@@ -379,16 +459,45 @@ public class AstNode {
     public static class FuncDef extends TopLevelDef {
         public FuncPrototype prototype = new FuncPrototype();       // return type
         public Block code;            // code block
+        public volatile Supplier<Block> lazyCode = null; // parse the code on first getCode(), set in skeleton mode
         public ArrayList<GenericParamDef> generiParamDefs = null;
         
-        public FuncDef parameterize(ArrayList<Type> typeGenericArgs) {
+        /**
+         * the code, parse it if it is lazy
+         */
+        public Block getCode() {
+            if (lazyCode != null) {
+                synchronized (this) {
+                    Supplier<Block> lazy = lazyCode;
+                    if (lazy != null) {
+                        code = lazy.get();
+                        lazyCode = null;
+                    }
+                }
+            }
+            return code;
+        }
+        
+        public boolean hasCode() {
+            return code != null || lazyCode != null;
+        }
+        
+        /**
+         * new instance of the generic function, deduplicated by GenericTable.
+         * The methods of a generic struct instance are made once with the struct instance.
+         */
+        FuncDef newInstance(ArrayList<Type> typeGenericArgs) {
             FuncDef nf = new FuncDef();
             nf.comment = this.comment;
             nf.flags = this.flags;
-            nf.loc = this.loc;
+            nf.pos = this.pos;
             nf.len = this.len;
             nf.name = this.name;
             nf.code = this.code;
+            if (this.lazyCode != null) {
+                //share the same block when parsed
+                nf.lazyCode = this::getCode;
+            }
             nf.parent = this.parent;
             nf.prototype = new FuncPrototype();
             nf.prototype.returnType = this.prototype.returnType.parameterize(typeGenericArgs);
@@ -399,7 +508,7 @@ public class AstNode {
                     ParamDef np = new ParamDef();
                     np.name = p.name;
                     np.defualtValue = p.defualtValue;
-                    np.loc = p.loc;
+                    np.pos = p.pos;
                     np.len = p.len;
                     np.paramType = p.paramType.parameterize(typeGenericArgs);
                     nf.prototype.paramDefs.add(np);
@@ -431,6 +540,9 @@ public class AstNode {
         
         public Scope importScope = null;
         
+        //keep the positions of nodes decodable
+        public LineTable lines = null;
+        
         public FileUnit(String file) {
             name = file;
         }
@@ -491,7 +603,7 @@ public class AstNode {
         public int index;
 
         @Override
-        public Scope getScope() {
+        public synchronized Scope getScope() {
             return ((TypeDef)bound.id.resolvedDef).getScope();
         }
     }
@@ -15,9 +15,11 @@ import sric.compiler.ast.Token.TokenKind;
  */
 public class Buildin {
         
-    private static Scope buildinScope;
+    private static volatile Scope buildinScope;
+    //the scope under construction, visible to the building thread only by the lock
+    private static Scope initingScope;
     
-    private static Loc loc = new Loc("buildin", 0, 0, 0);
+    private static long loc = LineTable.of("buildin").pos(0);
     
     public static final String funcTypeName = "=>";
     public static final String arrayTypeName = "[]";
@@ -30,7 +32,7 @@ public class Buildin {
     }
     private static TypeDef makeBuildinType(Scope scope, String name, ArrayList<GenericParamDef> gps) {
         StructDef typeDef = new AstNode.StructDef(null, 0, name);
-        typeDef.loc = loc;
+        typeDef.pos = loc;
         typeDef.generiParamDefs = gps;
         scope.put(name, typeDef);
         return typeDef;
@@ -38,12 +40,12 @@ public class Buildin {
     
     private static FuncDef isNullFunc(Scope scope) {
         FuncDef f = new FuncDef();
-        f.loc = loc;
+        f.pos = loc;
         f.name = "isNull";
         f.prototype.returnType = Type.boolType(loc);
         f.prototype.paramDefs = new ArrayList<ParamDef>();
         ParamDef param = new ParamDef();
-        param.loc = loc;
+        param.pos = loc;
         param.name = "pointer";
         param.paramType = Type.pointerType(loc, Type.voidType(loc), Type.PointerAttr.raw, true);
         f.prototype.paramDefs.add(param);
@@ -54,12 +56,12 @@ public class Buildin {
     
     private static FuncDef sizeofFunc(Scope scope) {
         FuncDef f = new FuncDef();
-        f.loc = loc;
+        f.pos = loc;
         f.name = "sizeof";
         f.prototype.returnType = Type.intType(loc);
         f.prototype.paramDefs = new ArrayList<ParamDef>();
         ParamDef param = new ParamDef();
-        param.loc = loc;
+        param.pos = loc;
         param.name = "type";
         param.paramType = Type.metaType(loc, Type.voidType(loc));
         f.prototype.paramDefs.add(param);
@@ -70,18 +72,18 @@ public class Buildin {
     
     private static FuncDef offsetofFunc(Scope scope) {
         FuncDef f = new FuncDef();
-        f.loc = loc;
+        f.pos = loc;
         f.name = "offsetof";
         f.prototype.returnType = Type.intType(loc);
         f.prototype.paramDefs = new ArrayList<ParamDef>();
         ParamDef param = new ParamDef();
-        param.loc = loc;
+        param.pos = loc;
         param.name = "type";
         param.paramType = Type.metaType(loc, Type.voidType(loc));
         f.prototype.paramDefs.add(param);
         
         ParamDef param2 = new ParamDef();
-        param2.loc = loc;
+        param2.pos = loc;
         param2.name = "field";
         param2.paramType = Type.metaType(loc, Type.voidType(loc));
         f.prototype.paramDefs.add(param2);
@@ -91,38 +93,55 @@ public class Buildin {
     }
     
     public static Scope getBuildinScope() {
-        if (buildinScope == null) {
-            Scope scope = new Scope();
-
-            makeBuildinType(scope, "Int");
-            makeBuildinType(scope, "Bool");
-            makeBuildinType(scope, "Float");
-            
-            ArrayList<GenericParamDef> gps = new ArrayList<GenericParamDef>();
-            GenericParamDef gp = new GenericParamDef();
-            gp.name = "T";
-            gp.loc = loc;
-            gps.add(gp);
-            makeBuildinType(scope, arrayTypeName, gps);//array
-            
-            ArrayList<GenericParamDef> gps2 = new ArrayList<GenericParamDef>();
-            GenericParamDef gp2 = new GenericParamDef();
-            gp2.name = "T";
-            gp2.loc = loc;
-            gps2.add(gp2);
-            makeBuildinType(scope, pointerTypeName, gps2);//pointer
-            
-            makeBuildinType(scope, "Void");
-            makeBuildinType(scope, varargTypeName);//varargs
-            makeBuildinType(scope, funcTypeName);//func
-            
-            buildinScope = scope;
-            
-            sizeofFunc(scope);
-            offsetofFunc(scope);
-            //isNullFunc(scope);
+        Scope scope = buildinScope;
+        if (scope == null) {
+            scope = initBuildinScope();
+        }
+        return scope;
+    }
+    
+    private static synchronized Scope initBuildinScope() {
+        if (buildinScope != null) {
+            return buildinScope;
         }
-        return buildinScope;
+        //reentrant call from the sizeof/offsetof types
+        if (initingScope != null) {
+            return initingScope;
+        }
+        
+        Scope scope = new Scope();
+
+        makeBuildinType(scope, "Int");
+        makeBuildinType(scope, "Bool");
+        makeBuildinType(scope, "Float");
+
+        ArrayList<GenericParamDef> gps = new ArrayList<GenericParamDef>();
+        GenericParamDef gp = new GenericParamDef();
+        gp.name = "T";
+        gp.pos = loc;
+        gps.add(gp);
+        makeBuildinType(scope, arrayTypeName, gps);//array
+
+        ArrayList<GenericParamDef> gps2 = new ArrayList<GenericParamDef>();
+        GenericParamDef gp2 = new GenericParamDef();
+        gp2.name = "T";
+        gp2.pos = loc;
+        gps2.add(gp2);
+        makeBuildinType(scope, pointerTypeName, gps2);//pointer
+
+        makeBuildinType(scope, "Void");
+        makeBuildinType(scope, varargTypeName);//varargs
+        makeBuildinType(scope, funcTypeName);//func
+
+        initingScope = scope;
+
+        sizeofFunc(scope);
+        offsetofFunc(scope);
+        //isNullFunc(scope);
+        
+        buildinScope = scope;
+        initingScope = null;
+        return scope;
     }
     
     public static final String getOperator = "get";
@@ -98,7 +98,7 @@ public abstract class Expr extends AstNode {
         
         public CallArg(Expr argExpr) {
             this.argExpr = argExpr;
-            this.loc = argExpr.loc;
+            this.pos = argExpr.pos;
             this.len = argExpr.len;
         }
     }
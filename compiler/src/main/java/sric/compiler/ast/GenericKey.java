@@ -0,0 +1,116 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler.ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import sric.compiler.ast.Type.ArrayInfo;
+import sric.compiler.ast.Type.FuncInfo;
+import sric.compiler.ast.Type.MetaTypeInfo;
+import sric.compiler.ast.Type.NumInfo;
+import sric.compiler.ast.Type.PointerInfo;
+
+/**
+ * Structural key of generic args, made of the resolved defs instead of the printed names.
+ * So same named types of different modules are different keys.
+ * Aliases are not followed, same as the printed name.
+ *
+ * @author yangjiandong
+ */
+public final class GenericKey {
+    private final Object[] parts;
+    private final int hash;
+
+    private GenericKey(Object[] parts) {
+        this.parts = parts;
+        this.hash = Arrays.hashCode(parts);
+    }
+
+    public static GenericKey of(List<Type> args) {
+        ArrayList<Object> parts = new ArrayList<Object>(args.size() * 4);
+        for (Type t : args) {
+            append(parts, t);
+        }
+        return new GenericKey(parts.toArray());
+    }
+
+    /**
+     * the defs are compared by identity, AstNode has no equals
+     */
+    private static void append(ArrayList<Object> parts, Type t) {
+        if (t == null) {
+            parts.add('0');
+            return;
+        }
+        if (t.id.resolvedDef != null) {
+            parts.add(t.id.resolvedDef);
+        }
+        else {
+            parts.add(t.id.toString());
+        }
+        parts.add(t.isImmutable);
+
+        if (t.detail instanceof NumInfo n) {
+            parts.add('N');
+            parts.add(n.size);
+            parts.add(n.isUnsigned);
+        }
+        else if (t.detail instanceof PointerInfo p) {
+            parts.add('P');
+            parts.add(p.pointerAttr);
+            parts.add(p.isNullable);
+        }
+        else if (t.detail instanceof ArrayInfo a) {
+            parts.add('A');
+            parts.add(String.valueOf(a.sizeExpr));
+        }
+        else if (t.detail instanceof FuncInfo f) {
+            parts.add('F');
+            parts.add(f.prototype.toString());
+        }
+        else if (t.detail instanceof MetaTypeInfo m) {
+            parts.add('M');
+            append(parts, m.type);
+        }
+
+        if (t.genericArgs == null) {
+            parts.add(-1);
+            return;
+        }
+        parts.add(t.genericArgs.size());
+        for (Type a : t.genericArgs) {
+            append(parts, a);
+        }
+    }
+
+    /**
+     * true if the lists hold the same Type instances
+     */
+    public static boolean sameArgs(List<Type> a, List<Type> b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null || a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); ++i) {
+            if (a.get(i) != b.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof GenericKey k && k.hash == hash && Arrays.equals(k.parts, parts);
+    }
+}
@@ -0,0 +1,151 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler.ast;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import sric.compiler.CompilerStats;
+import sric.compiler.ast.AstNode.FuncDef;
+import sric.compiler.ast.AstNode.StructDef;
+import sric.compiler.ast.AstNode.TypeDef;
+
+/**
+ * Generic instances of a compilation.
+ * The instances are made and deduplicated here instead of on the generic defs,
+ * because the defs of an imported module are shared by all compilations of the process.
+ * It also records the instances the module refers to, in the order of first use.
+ * CppGenerator does not read it: generics are printed as C++ templates and instantiated by the C++ compiler.
+ *
+ * @author yangjiandong
+ */
+public class GenericTable {
+    //generic def to its instances by args, shared by the forks
+    private final HashMap<AstNode, HashMap<GenericKey, AstNode>> cache;
+    //identity fast path of parameterize, guarded by cache
+    private AstNode lastDef;
+    private ArrayList<Type> lastArgs;
+    private AstNode lastInstance;
+
+    //generic def to the instances used
+    private final LinkedHashMap<AstNode, LinkedHashSet<AstNode>> instances = new LinkedHashMap<>();
+
+    public GenericTable() {
+        this.cache = new HashMap<>();
+    }
+
+    private GenericTable(HashMap<AstNode, HashMap<GenericKey, AstNode>> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * a table sharing the instances of this one, but recording the uses of its own.
+     * Used by a file resolved on other thread, merged back by addAll.
+     */
+    public GenericTable fork() {
+        return new GenericTable(cache);
+    }
+
+    /**
+     * the instance of generic struct, same args return the same instance
+     */
+    public StructDef parameterize(StructDef sd, ArrayList<Type> args) {
+        StructDef res = (StructDef)getOrMake(sd, args);
+        add(sd, res);
+        return res;
+    }
+
+    /**
+     * the instance of generic function, same args return the same instance
+     */
+    public FuncDef parameterize(FuncDef f, ArrayList<Type> args) {
+        FuncDef res = (FuncDef)getOrMake(f, args);
+        add(f, res);
+        return res;
+    }
+
+    private AstNode getOrMake(AstNode def, ArrayList<Type> args) {
+        synchronized (cache) {
+            if (lastDef == def && GenericKey.sameArgs(lastArgs, args)) {
+                return lastInstance;
+            }
+            GenericKey key = GenericKey.of(args);
+            HashMap<GenericKey, AstNode> map = cache.computeIfAbsent(def, k -> new HashMap<>());
+            AstNode res = map.get(key);
+            if (res == null) {
+                if (CompilerStats.enabled()) {
+                    CompilerStats.count(CompilerStats.GENERIC_INSTANCE);
+                }
+                res = def instanceof StructDef sd ? sd.newInstance(args) : ((FuncDef)def).newInstance(args);
+                map.put(key, res);
+            }
+            lastDef = def;
+            lastArgs = new ArrayList<Type>(args);
+            lastInstance = res;
+            return res;
+        }
+    }
+
+    private synchronized void add(AstNode genericDef, AstNode instance) {
+        instances.computeIfAbsent(genericDef, k -> new LinkedHashSet<>()).add(instance);
+    }
+
+    public synchronized void addAll(GenericTable other) {
+        for (Map.Entry<AstNode, LinkedHashSet<AstNode>> e : other.instances.entrySet()) {
+            instances.computeIfAbsent(e.getKey(), k -> new LinkedHashSet<>()).addAll(e.getValue());
+        }
+    }
+
+    public synchronized ArrayList<AstNode> get(AstNode genericDef) {
+        LinkedHashSet<AstNode> set = instances.get(genericDef);
+        if (set == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(set);
+    }
+
+    public synchronized ArrayList<AstNode> genericDefs() {
+        return new ArrayList<>(instances.keySet());
+    }
+
+    /**
+     * count of all instances
+     */
+    public synchronized int size() {
+        int n = 0;
+        for (LinkedHashSet<AstNode> set : instances.values()) {
+            n += set.size();
+        }
+        return n;
+    }
+
+    /**
+     * instance count of each generic def, the most instantiated first
+     */
+    public synchronized LinkedHashMap<String, Integer> counts() {
+        ArrayList<Map.Entry<AstNode, LinkedHashSet<AstNode>>> list = new ArrayList<>(instances.entrySet());
+        list.sort((a, b) -> Integer.compare(b.getValue().size(), a.getValue().size()));
+        LinkedHashMap<String, Integer> res = new LinkedHashMap<>();
+        for (Map.Entry<AstNode, LinkedHashSet<AstNode>> e : list) {
+            res.merge(name(e.getKey()), e.getValue().size(), Integer::sum);
+        }
+        return res;
+    }
+
+    private static String name(AstNode def) {
+        if (def instanceof FuncDef f) {
+            if (f.parent instanceof TypeDef t) {
+                return t.name + "." + f.name;
+            }
+            return f.name;
+        }
+        if (def instanceof TypeDef t) {
+            return t.name;
+        }
+        return def.toString();
+    }
+}
@@ -0,0 +1,194 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler.ast;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Line starts of a parsed file, used to decode the packed position of AST nodes.
+ * A packed position is the table id in high 32 bits and the offset in low 32 bits, 0 means unknown.
+ *
+ * Every parse gets a new id, so the nodes of an older parse still decode against their own lines.
+ * The table is kept alive by its FileUnit, and the id is released when the table is collected.
+ *
+ * @author yangjiandong
+ */
+public class LineTable {
+    public final String file;
+    public final int id;
+
+    //sorted by offset when sorted is true
+    private int[] starts = new int[64];
+    //line number of each start
+    private int[] lines = new int[64];
+    private int size = 0;
+    private boolean sorted = true;
+
+    //id 0 is unknown position
+    private static final AtomicInteger nextId = new AtomicInteger(1);
+    //table of each id, weakly held
+    private static final ConcurrentHashMap<Integer, Ref> tables = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<LineTable> released = new ReferenceQueue<>();
+    //the tables of the positions not from a parsed file, guarded by the class lock
+    private static final HashMap<String, LineTable> shared = new HashMap<>();
+
+    private static class Ref extends WeakReference<LineTable> {
+        final int id;
+
+        Ref(LineTable table) {
+            super(table, released);
+            this.id = table.id;
+        }
+    }
+
+    private LineTable(String file, int id) {
+        this.file = file;
+        this.id = id;
+    }
+
+    /**
+     * new table of a parse of the file
+     */
+    public static LineTable create(String file) {
+        //drop the ids of the collected tables
+        Ref ref;
+        while ((ref = (Ref)released.poll()) != null) {
+            tables.remove(ref.id, ref);
+        }
+        LineTable table = new LineTable(file, nextId.getAndIncrement());
+        tables.put(table.id, new Ref(table));
+        return table;
+    }
+
+    /**
+     * the shared table of file, for the positions not from a parsed file
+     */
+    public static synchronized LineTable of(String file) {
+        LineTable table = shared.get(file);
+        if (table == null) {
+            table = create(file);
+            shared.put(file, table);
+        }
+        return table;
+    }
+
+    private static LineTable get(int id) {
+        Ref ref = tables.get(id);
+        if (ref == null) {
+            return null;
+        }
+        return ref.get();
+    }
+
+    /**
+     * add the start of a line, in any order
+     */
+    public synchronized void addLine(int start, int line) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            lines = Arrays.copyOf(lines, size * 2);
+        }
+        if (size > 0 && start < starts[size - 1]) {
+            sorted = false;
+        }
+        starts[size] = start;
+        lines[size] = line;
+        ++size;
+    }
+
+    private void sort() {
+        Integer[] index = new Integer[size];
+        for (int i = 0; i < size; ++i) {
+            index[i] = i;
+        }
+        Arrays.sort(index, (a, b) -> Integer.compare(starts[a], starts[b]));
+        int[] s = new int[size];
+        int[] l = new int[size];
+        for (int i = 0; i < size; ++i) {
+            s[i] = starts[index[i]];
+            l[i] = lines[index[i]];
+        }
+        starts = s;
+        lines = l;
+        sorted = true;
+    }
+
+    public long pos(int offset) {
+        return ((long) id << 32) | (offset & 0xffffffffL);
+    }
+
+    /**
+     * remember the line of loc and return the packed position
+     */
+    public long pos(int line, int col, int offset) {
+        if (line > 0 && col > 0) {
+            addLine(offset - col + 1, line);
+        }
+        return pos(offset);
+    }
+
+    public synchronized Loc loc(int offset) {
+        if (!sorted) {
+            sort();
+        }
+        int lo = 0;
+        int hi = size - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= offset) {
+                found = mid;
+                lo = mid + 1;
+            }
+            else {
+                hi = mid - 1;
+            }
+        }
+        if (found < 0) {
+            return new Loc(file, 0, 0, offset, pos(offset));
+        }
+        return new Loc(file, lines[found], offset - starts[found] + 1, offset, pos(offset));
+    }
+
+    public static int offset(long pos) {
+        return (int) pos;
+    }
+
+    public static int tableId(long pos) {
+        return (int) (pos >>> 32);
+    }
+
+    /**
+     * decode the packed position, return null if unknown
+     */
+    public static Loc decode(long pos) {
+        if (pos == 0) {
+            return null;
+        }
+        LineTable table = get(tableId(pos));
+        if (table == null) {
+            return new Loc(null, 0, 0, offset(pos), pos);
+        }
+        return table.loc(offset(pos));
+    }
+
+    /**
+     * pack the loc, the Loc made without a table is packed by the shared table of its file
+     */
+    public static long encode(Loc loc) {
+        if (loc == null) {
+            return 0;
+        }
+        if (loc.pos != 0) {
+            return loc.pos;
+        }
+        return of(loc.file).pos(loc.line, loc.col, loc.offset);
+    }
+}
@@ -19,12 +19,19 @@ public class Loc {
     public final int col;
     //zero base global index
     public final int offset;
+    //packed position of LineTable, 0 if not from a table
+    public final long pos;
     
     public Loc(String file, int line, int col, int offset) {
+        this(file, line, col, offset, 0);
+    }
+    
+    public Loc(String file, int line, int col, int offset, long pos) {
         this.file = file;
         this.line = line;
         this.col = col;
         this.offset = offset;
+        this.pos = pos;
     }
    
     @Override
@@ -0,0 +1,105 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler.ast;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.function.BiConsumer;
+import sric.compiler.CompilerLog;
+
+/**
+ * Read only scope made of other scopes, looked up in order.
+ * The layers are shared, so the inherited members are not copied to each sub struct.
+ * Same as Scope.addAll of the layers, a def reached by many layers is counted once.
+ *
+ * @author yangjiandong
+ */
+public class OverlayScope extends Scope {
+    private final Scope[] layers;
+
+    public OverlayScope(Scope[] layers) {
+        super(1);
+        this.layers = layers;
+    }
+
+    @Override
+    public void put(String name, AstNode node) {
+        throw new UnsupportedOperationException("Read only scope");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("Read only scope");
+    }
+
+    @Override
+    public boolean contains(String name) {
+        for (Scope layer : layers) {
+            if (layer.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public AstNode get(String name, long loc, CompilerLog log) {
+        AstNode first = null;
+        for (Scope layer : layers) {
+            Object value = layer.lookup(name);
+            if (value == null) {
+                continue;
+            }
+            ArrayList<AstNode> nodes = null;
+            AstNode node;
+            if (value instanceof AstNode anode) {
+                node = anode;
+            }
+            else {
+                nodes = (ArrayList<AstNode>)value;
+                node = nodes.get(0);
+            }
+
+            if (first == null) {
+                first = node;
+                if (nodes == null) {
+                    continue;
+                }
+            }
+            AstNode second = null;
+            if (node != first) {
+                second = node;
+            }
+            else if (nodes != null) {
+                second = nodes.get(1);
+            }
+            if (second != null) {
+                log.err("Mulit define " + first.loc() + "," + second.loc(), loc);
+                return first;
+            }
+        }
+        return first;
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, AstNode> f) {
+        IdentityHashMap<AstNode, Boolean> visited = new IdentityHashMap<>();
+        for (Scope layer : layers) {
+            layer.forEach((name, node) -> {
+                if (visited.put(node, Boolean.TRUE) == null) {
+                    f.accept(name, node);
+                }
+            });
+        }
+    }
+
+    @Override
+    public int size() {
+        int[] n = new int[1];
+        forEach((name, node) -> ++n[0]);
+        return n[0];
+    }
+}
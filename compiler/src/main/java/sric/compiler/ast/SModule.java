@@ -33,6 +33,9 @@ public class SModule extends AstNode {
     public Scope scope = null;
     public ArrayList<Depend> depends = new ArrayList<>();
     
+    //generic instances referred by this module
+    public GenericTable generics = new GenericTable();
+    
     public String sourcePath;
     
     public FileUnit findFileUnit(String file) {
@@ -100,7 +103,7 @@ public class SModule extends AstNode {
         return map;
     }
 
-    public Scope getScope() {
+    public synchronized Scope getScope() {
         if (scope == null) {
             scope = new Scope();
             for (FileUnit v : fileUnits) {
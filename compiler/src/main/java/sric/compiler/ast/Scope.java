@@ -5,26 +5,97 @@
 package sric.compiler.ast;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
 import sric.compiler.CompilerLog;
+import sric.compiler.CompilerStats;
 import sric.compiler.ast.AstNode;
-import sric.compiler.ast.Loc;
-import sric.compiler.resolve.ExprTypeResolver;
 
 /**
+ * Symbol table of open addressing.
+ * Most names have only one def, so the value is the AstNode itself,
+ * an ArrayList is only made for overloads or duplicates.
  *
  * @author yangjiandong
  */
 public class Scope extends AstNode {
-    
-    public HashMap<String, ArrayList<AstNode>> symbolTable = new HashMap<>();
+    private static final int initCapacity = 8;
 
+    private String[] keys;
+    //AstNode or ArrayList<AstNode>
+    private Object[] values;
+    private int size = 0;
+
+    //made by the scope pool of resolver
+    public boolean pooled = false;
+
+    public Scope() {
+        this(initCapacity);
+    }
+
+    //capacity must be power of 2
+    Scope(int capacity) {
+        super(false);
+        keys = new String[capacity];
+        values = new Object[capacity];
+        if (CompilerStats.enabled()) {
+            CompilerStats.count(CompilerStats.SCOPE);
+        }
+    }
+
+    private int indexOf(String name) {
+        int mask = keys.length - 1;
+        int i = name.hashCode() & mask;
+        while (true) {
+            String key = keys[i];
+            if (key == null || key == name || key.equals(name)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private void grow() {
+        String[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new String[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldKeys[i] != null) {
+                int j = indexOf(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
     public void put(String name, AstNode node) {
-        ArrayList<AstNode> nodes = symbolTable.get(name);
-        if (nodes == null) {
-            nodes = new ArrayList<AstNode>();
-            symbolTable.put(name, nodes);
+        int i = indexOf(name);
+        Object value = values[i];
+        if (value == null) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                i = indexOf(name);
+            }
+            keys[i] = name;
+            values[i] = node;
+            ++size;
+            return;
+        }
+
+        if (value == node) {
+            return;
+        }
+        if (value instanceof AstNode anode) {
+            ArrayList<AstNode> nodes = new ArrayList<AstNode>(2);
+            nodes.add(anode);
+            nodes.add(node);
+            values[i] = nodes;
+            return;
         }
+
+        ArrayList<AstNode> nodes = (ArrayList<AstNode>)value;
         for (AstNode anode : nodes) {
             if (anode == node) {
                 return;
@@ -32,33 +103,69 @@ public class Scope extends AstNode {
         }
         nodes.add(node);
     }
-    
+
+    /**
+     * the AstNode or ArrayList of the name, null if not found
+     */
+    Object lookup(String name) {
+        return values[indexOf(name)];
+    }
+
     public boolean contains(String name) {
-        return symbolTable.containsKey(name);
+        return values[indexOf(name)] != null;
     }
 
-    public AstNode get(String name, Loc loc, CompilerLog log) {
-        ArrayList<AstNode> nodes = symbolTable.get(name);
-        if (nodes == null) {
+    @SuppressWarnings("unchecked")
+    public AstNode get(String name, long loc, CompilerLog log) {
+        Object value = values[indexOf(name)];
+        if (value == null) {
             return null;
         }
-        if (nodes.size() > 1) {
-            log.err("Mulit define " + nodes.get(0).loc + "," + nodes.get(1).loc, loc);
+        if (value instanceof AstNode anode) {
+            return anode;
         }
+        ArrayList<AstNode> nodes = (ArrayList<AstNode>)value;
+        log.err("Mulit define " + nodes.get(0).loc() + "," + nodes.get(1).loc(), loc);
         return nodes.get(0);
     }
-    
-    public void addAll(Scope other) {
-        for (HashMap.Entry<String, ArrayList<AstNode>> entry : other.symbolTable.entrySet()) {
-            for (AstNode anode : entry.getValue()) {
-                put(entry.getKey(), anode);
+
+    /**
+     * visit all defs, the defs of a name are in the order of put
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<String, AstNode> f) {
+        for (int i = 0; i < keys.length; ++i) {
+            if (keys[i] == null) {
+                continue;
+            }
+            if (values[i] instanceof AstNode anode) {
+                f.accept(keys[i], anode);
+            }
+            else {
+                for (AstNode anode : (ArrayList<AstNode>)values[i]) {
+                    f.accept(keys[i], anode);
+                }
             }
         }
     }
-    
-    public Scope dup() {
-        Scope s = new Scope();
-        s.symbolTable = this.symbolTable;
-        return s;
+
+    public void addAll(Scope other) {
+        other.forEach(this::put);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * remove all symbols to reuse the scope, the table keeps its capacity
+     */
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        size = 0;
     }
 }
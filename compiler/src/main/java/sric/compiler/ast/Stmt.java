@@ -74,7 +74,7 @@ public abstract class Stmt extends AstNode {
         public FieldDef fieldDef;
         public LocalDefStmt(FieldDef f) {
             fieldDef = f;
-            this.loc = f.loc;
+            this.pos = f.pos;
         }
     }
 }
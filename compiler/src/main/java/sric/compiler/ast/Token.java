@@ -174,11 +174,52 @@ public class Token {
     }
     
     public static HashMap<String, TokenKind> keywords = new HashMap<String, TokenKind>();
+    
+    //open addressing keywords table, lookup by char range
+    private static final TokenKind[] keywordTable = new TokenKind[256];
+    private static int maxKeywordLen = 0;
+    
     static {
         for (TokenKind kind : TokenKind.class.getEnumConstants()) {
             if (kind.keyword) {
                 keywords.put(kind.symbol, kind);
+                int i = kind.symbol.hashCode() & (keywordTable.length - 1);
+                while (keywordTable[i] != null) {
+                    i = (i + 1) & (keywordTable.length - 1);
+                }
+                keywordTable[i] = kind;
+                maxKeywordLen = Math.max(maxKeywordLen, kind.symbol.length());
+            }
+        }
+    }
+    
+    /**
+     * find keyword of the chars, hash is same as String.hashCode of the chars
+     */
+    public static TokenKind findKeyword(char[] buf, int start, int len, int hash) {
+        if (len > maxKeywordLen) {
+            return null;
+        }
+        int i = hash & (keywordTable.length - 1);
+        while (true) {
+            TokenKind kind = keywordTable[i];
+            if (kind == null) {
+                return null;
+            }
+            String symbol = kind.symbol;
+            if (symbol.length() == len) {
+                boolean match = true;
+                for (int j = 0; j < len; ++j) {
+                    if (symbol.charAt(j) != buf[start + j]) {
+                        match = false;
+                        break;
+                    }
+                }
+                if (match) {
+                    return kind;
+                }
             }
+            i = (i + 1) & (keywordTable.length - 1);
         }
     }
     
@@ -209,6 +250,10 @@ public class Token {
     }
     
     public boolean isAssign() {
+        return isAssign(kind);
+    }
+    
+    public static boolean isAssign(TokenKind kind) {
         switch (kind) {
             case assign:
             case assignPlus:
@@ -28,6 +28,9 @@ public class Type extends AstNode {
     
     public TypeInfo detail = null;
     
+    //shared instance of TypeTable, must not be modified
+    boolean canonical = false;
+    
     public static abstract class TypeInfo {
     }
     
@@ -61,13 +64,17 @@ public class Type extends AstNode {
     
     public Type(IdExpr id) {
         this.id = id;
-        this.loc = id.loc;
+        this.pos = id.pos;
     }
     
-    public Type(Loc loc, String name) {
-        this.loc = loc;
+    public Type(long loc, String name) {
+        this.pos = loc;
         this.id = new IdExpr(name);
-        this.id.loc = loc;
+        this.id.pos = loc;
+    }
+    
+    public boolean isCanonical() {
+        return canonical;
     }
     
     public boolean isVoid() {
@@ -167,6 +174,9 @@ public class Type extends AstNode {
     }
     
     public boolean fit(Type target) {
+        if (this == target) {
+            return true;
+        }
         if (this.resolvedAlias != null) {
             return this.resolvedAlias.fit(target);
         }
@@ -353,7 +363,7 @@ public class Type extends AstNode {
         return true;
     }
         
-    public static Type funcType(Loc loc, FuncPrototype prototype) {
+    public static Type funcType(long loc, FuncPrototype prototype) {
         Type type = new Type(loc, Buildin.funcTypeName);
         FuncInfo info = new FuncInfo();
         info.prototype = prototype;
@@ -365,34 +375,34 @@ public class Type extends AstNode {
                 type.genericArgs.add(p.paramType);
             }
         }
-        type.id.resolvedDef = Buildin.getBuildinScope().get(type.id.name, type.loc, null);
+        type.id.resolvedDef = Buildin.getBuildinScope().get(type.id.name, type.pos, null);
         return type;
     }
     
     public static Type funcType(FuncDef f) {
-        Type type = funcType(f.loc, f.prototype);
+        Type type = funcType(f.pos, f.prototype);
         ((FuncInfo)type.detail).funcDef = f;
         return type;
     }
     
     public static Type funcType(ClosureExpr f) {
-        Type type = funcType(f.loc, f.prototype);
+        Type type = funcType(f.pos, f.prototype);
         return type;
     }
     
-    public static Type voidType(Loc loc) {
+    public static Type voidType(long loc) {
         Type type = new Type(loc, "Void");
         type.id.resolvedDef = Buildin.getBuildinScope().get(type.id.name, loc, null);
         return type;
     }
     
-    public static Type boolType(Loc loc) {
+    public static Type boolType(long loc) {
         Type type = new Type(loc, "Bool");
         type.id.resolvedDef = Buildin.getBuildinScope().get(type.id.name, loc, null);
         return type;
     }
     
-    public static Type intType(Loc loc) {
+    public static Type intType(long loc) {
         Type type = new Type(loc, "Int");
         NumInfo info = new NumInfo();
         info.size = 32;
@@ -401,7 +411,7 @@ public class Type extends AstNode {
         return type;
     }
     
-    public static Type floatType(Loc loc) {
+    public static Type floatType(long loc) {
         Type type = new Type(loc, "Float");
         NumInfo info = new NumInfo();
         info.size = 64;
@@ -410,20 +420,20 @@ public class Type extends AstNode {
         return type;
     }
     
-    public static Type strType(Loc loc) {
+    public static Type strType(long loc) {
         Type type = intType(loc);
         ((NumInfo)type.detail).size = 8;
         type.isImmutable = true;
         return pointerType(loc, type, PointerAttr.raw, false);
     }
     
-    public static Type nullType(Loc loc) {
+    public static Type nullType(long loc) {
         Type type = new Type(loc, Buildin.pointerTypeName);
-        type.id.resolvedDef = Buildin.getBuildinScope().get(type.id.name, type.loc, null);
+        type.id.resolvedDef = Buildin.getBuildinScope().get(type.id.name, type.pos, null);
         return type;
     }
 
-    public static Type arrayType(Loc loc, Type elemType, Expr size) {
+    public static Type arrayType(long loc, Type elemType, Expr size) {
         Type type = new Type(loc, Buildin.arrayTypeName);
         ArrayInfo info = new ArrayInfo();
         info.sizeExpr = size;
@@ -431,11 +441,11 @@ public class Type extends AstNode {
         type.genericArgs = new ArrayList<>();
         type.genericArgs.add(elemType);
         
-        type.id.resolvedDef = Buildin.getBuildinScope().get(type.id.name, type.loc, null);
+        type.id.resolvedDef = Buildin.getBuildinScope().get(type.id.name, type.pos, null);
         return type;
     }
     
-    public static Type pointerType(Loc loc, Type elemType, PointerAttr pointerAttr, boolean nullable) {
+    public static Type pointerType(long loc, Type elemType, PointerAttr pointerAttr, boolean nullable) {
         Type type = new Type(loc, Buildin.pointerTypeName);
         if (elemType != null) {
             type.genericArgs = new ArrayList<>();
@@ -446,30 +456,40 @@ public class Type extends AstNode {
         info.isNullable = nullable;
         type.detail = info;
         
-        type.id.resolvedDef = Buildin.getBuildinScope().get(type.id.name, type.loc, null);
+        type.id.resolvedDef = Buildin.getBuildinScope().get(type.id.name, type.pos, null);
         return type;
     }
     
-    public static Type varArgType(Loc loc) {
+    public static Type varArgType(long loc) {
         Type type = new Type(loc, Buildin.varargTypeName);
-        type.id.resolvedDef = Buildin.getBuildinScope().get(type.id.name, type.loc, null);
+        type.id.resolvedDef = Buildin.getBuildinScope().get(type.id.name, type.pos, null);
         return type;
     }
     
-    public static Type metaType(Loc loc, Type type) {
+    public static Type metaType(long loc, Type type) {
         Type t = new Type(loc, Buildin.metaTypeTypeName);
         MetaTypeInfo info = new MetaTypeInfo();
         info.type = type;
         t.detail = info;
         if (type.id.resolvedDef == null && type.id.namespace == null) {
-            type.id.resolvedDef = Buildin.getBuildinScope().get(type.id.name, type.loc, null);
+            type.id.resolvedDef = Buildin.getBuildinScope().get(type.id.name, type.pos, null);
         }
         return t;
     }
     
     @java.lang.Override
     public String toString() {
-                
+        return toString(false);
+    }
+    
+    /**
+     * same as toString but keep the nullable mark of pointer, so it can be parsed back
+     */
+    public String toSource() {
+        return toString(true);
+    }
+    
+    private String toString(boolean source) {
         if (this.isVarArgType()) {
             return Buildin.varargTypeName;
         }
@@ -484,7 +504,7 @@ public class Type extends AstNode {
         if (isArray()) {
             ArrayInfo info = (ArrayInfo)this.detail;
             sb.append("[").append(info.sizeExpr).append("]");
-            sb.append(this.genericArgs.get(0).toString());
+            sb.append(this.genericArgs.get(0).toString(source));
             return sb.toString();
         }
         else if (isNum()) {
@@ -502,8 +522,12 @@ public class Type extends AstNode {
         }
         else if (isPointerType()) {
             PointerInfo info = (PointerInfo)this.detail;
-            sb.append(info.pointerAttr).append("* ");
-            sb.append(this.genericArgs.get(0).toString());
+            sb.append(info.pointerAttr).append("*");
+            if (source && info.isNullable) {
+                sb.append("?");
+            }
+            sb.append(" ");
+            sb.append(this.genericArgs.get(0).toString(source));
             return sb.toString();
         }
         else if (isFuncType()) {
@@ -511,7 +535,7 @@ public class Type extends AstNode {
             return sb.toString();
         }
         else if (isMetaType()) {
-            sb.append(((MetaTypeInfo)this.detail).type.toString());
+            sb.append(((MetaTypeInfo)this.detail).type.toString(source));
             return sb.toString();
         }
         
@@ -524,7 +548,7 @@ public class Type extends AstNode {
                 if (i > 0) {
                     sb.append(", ");
                 }
-                sb.append(t.toString());
+                sb.append(t.toString(source));
                 ++i;
             }
             sb.append(">");
@@ -570,7 +594,7 @@ public class Type extends AstNode {
             return this;
         }
         
-        Type type = new Type(loc, "*");
+        Type type = new Type(pos, "*");
         type.genericArgs = new ArrayList<>();
         type.genericArgs.add(this.genericArgs.get(0));
         PointerInfo info = new PointerInfo();
@@ -578,7 +602,7 @@ public class Type extends AstNode {
         info.isNullable = false;
         type.detail = info;
         
-        type.id.resolvedDef = Buildin.getBuildinScope().get(type.id.name, type.loc, null);
+        type.id.resolvedDef = Buildin.getBuildinScope().get(type.id.name, type.pos, null);
         return type;
     }
     
@@ -0,0 +1,130 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler.ast;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import sric.compiler.ast.AstNode.FileUnit;
+import sric.compiler.ast.AstNode.StructDef;
+import sric.compiler.ast.AstNode.TraitDef;
+import sric.compiler.ast.AstNode.TypeDef;
+
+/**
+ * Inheritance index of the struct and trait defs.
+ * Each def gets a dense id in its module, and each struct the set and the order of its ancestors,
+ * so isInheriteFrom is a bit test and the inherited scope is an overlay of the ancestor scopes.
+ * The ancestors from other modules are kept in a short list instead of the bit set.
+ * Built after TopLevelTypeResolver, when the inheritances are resolved.
+ *
+ * @author yangjiandong
+ */
+public class TypeHierarchy {
+    private final SModule module;
+    //the ids of a module build start from 0
+    private int nextId = 0;
+    private final HashSet<StructDef> visiting = new HashSet<StructDef>();
+
+    private TypeHierarchy(SModule module) {
+        this.module = module;
+    }
+
+    public static void build(SModule module) {
+        TypeHierarchy h = new TypeHierarchy(module);
+        for (FileUnit unit : module.fileUnits) {
+            for (TypeDef t : unit.typeDefs) {
+                //the ids of the last build are stale after a file is replaced
+                if (t instanceof StructDef sd) {
+                    sd.clearHierarchy();
+                }
+                if (t instanceof StructDef || t instanceof TraitDef) {
+                    t.hierarchyModule = module;
+                    t.hierarchyId = h.nextId++;
+                }
+            }
+        }
+        for (FileUnit unit : module.fileUnits) {
+            for (TypeDef t : unit.typeDefs) {
+                if (t instanceof StructDef sd) {
+                    h.index(sd);
+                }
+            }
+        }
+    }
+
+    /**
+     * the defs of other modules, and the ones not numbered like the instances of generic struct
+     */
+    private boolean isForeign(TypeDef t) {
+        return t.hierarchyModule != module;
+    }
+
+    /**
+     * the ancestors are in the order of getInheriteScope: a parent, its ancestors, then the next parent.
+     * Not indexed if any parent is invalid, the old way is used for it.
+     */
+    private boolean index(StructDef sd) {
+        if (sd.ancestors != null) {
+            return true;
+        }
+        //indexed by its own module, or not at all
+        if (isForeign(sd)) {
+            return false;
+        }
+        //cyclic inheritance
+        if (!visiting.add(sd)) {
+            return false;
+        }
+        try {
+            ArrayList<TypeDef> list = new ArrayList<TypeDef>();
+            ArrayList<TypeDef> foreign = new ArrayList<TypeDef>();
+            BitSet bits = new BitSet();
+            if (sd.inheritances != null) {
+                for (Type inh : sd.inheritances) {
+                    AstNode def = inh.id.resolvedDef;
+                    if (def == null) {
+                        continue;
+                    }
+                    if (def instanceof StructDef p) {
+                        if (!index(p)) {
+                            return false;
+                        }
+                        add(list, bits, foreign, p);
+                        for (TypeDef a : p.linearAncestors) {
+                            add(list, bits, foreign, a);
+                        }
+                    }
+                    else if (def instanceof TraitDef p) {
+                        add(list, bits, foreign, p);
+                    }
+                    else {
+                        return false;
+                    }
+                }
+            }
+            sd.linearAncestors = list.toArray(new TypeDef[list.size()]);
+            sd.foreignAncestors = foreign.toArray(new TypeDef[foreign.size()]);
+            sd.ancestors = bits;
+            return true;
+        }
+        finally {
+            visiting.remove(sd);
+        }
+    }
+
+    private void add(ArrayList<TypeDef> list, BitSet bits, ArrayList<TypeDef> foreign, TypeDef t) {
+        if (isForeign(t)) {
+            if (!foreign.contains(t)) {
+                foreign.add(t);
+                list.add(t);
+            }
+            return;
+        }
+        if (!bits.get(t.hierarchyId)) {
+            bits.set(t.hierarchyId);
+            list.add(t);
+        }
+    }
+}
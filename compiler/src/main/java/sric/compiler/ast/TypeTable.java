@@ -0,0 +1,39 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler.ast;
+
+/**
+ * Canonical instances of the primitive types made by the resolver.
+ * They are resolved to the buildin defs and shared by all modules, so must not be modified.
+ * Pointer, array and generic types are still made per expression.
+ *
+ * @author yangjiandong
+ */
+public class TypeTable {
+
+    //init on first use, the buildin scope is made by Type too
+    private static class Holder {
+        static final Type intType = canonical(Type.intType(0));
+        static final Type floatType = canonical(Type.floatType(0));
+        static final Type boolType = canonical(Type.boolType(0));
+    }
+
+    private static Type canonical(Type type) {
+        type.canonical = true;
+        return type;
+    }
+
+    public static Type intType() {
+        return Holder.intType;
+    }
+
+    public static Type floatType() {
+        return Holder.floatType;
+    }
+
+    public static Type boolType() {
+        return Holder.boolType;
+    }
+}
@@ -725,7 +725,7 @@ public class CppGenerator extends BaseGenerator {
             }
         }
         if (implMode()) {
-            if (v.code == null || inlined) {
+            if (v.getCode() == null || inlined) {
                 return;
             }
         }
@@ -799,7 +799,7 @@ public class CppGenerator extends BaseGenerator {
         
         printFuncPrototype(v.prototype, false);
         
-        if (v.code == null) {
+        if (v.getCode() == null) {
             if ((v.flags & FConst.Abstract) != 0) {
                 print(" = 0");
             }
@@ -877,7 +877,7 @@ public class CppGenerator extends BaseGenerator {
                 if (state == 2) {
                     return;
                 }
-                err("Cyclic dependency", v.loc);
+                err("Cyclic dependency", v.pos);
                 return;
             }
             this.emitState.put(v, 1);
@@ -1020,7 +1020,7 @@ public class CppGenerator extends BaseGenerator {
                     this.visit(s.expr);
                 }
                 else {
-                    err("Unsupport for init stmt", fors.init.loc);
+                    err("Unsupport for init stmt", fors.init.pos);
                 }
             }
             print("; ");
@@ -1089,7 +1089,7 @@ public class CppGenerator extends BaseGenerator {
             }
         }
         else {
-            err("Unkown stmt:"+v, v.loc);
+            err("Unkown stmt:"+v, v.pos);
         }
     }
 
@@ -1252,7 +1252,7 @@ public class CppGenerator extends BaseGenerator {
             print(")");
         }
         else {
-            err("Unkown expr:"+v, v.loc);
+            err("Unkown expr:"+v, v.pos);
         }
         
         if (convertParentheses) {
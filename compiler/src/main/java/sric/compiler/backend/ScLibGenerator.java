@@ -124,7 +124,7 @@ public class ScLibGenerator extends BaseGenerator {
 //            }
 //            print(">");
 //        }
-        print(type.toString());
+        print(type.toSource());
     }
 
     private void printIdExpr(Expr.IdExpr id) {
@@ -191,7 +191,7 @@ public class ScLibGenerator extends BaseGenerator {
         printFuncPrototype(v.prototype);
 
         
-        if (inlined && v.code != null) {
+        if (inlined && v.getCode() != null) {
             this.visit(v.code);
         }
         else {
@@ -330,7 +330,7 @@ public class ScLibGenerator extends BaseGenerator {
                     this.visit(s.expr);
                 }
                 else {
-                    err("Unsupport for init stmt", fors.init.loc);
+                    err("Unsupport for init stmt", fors.init.pos);
                 }
             }
             print("; ");
@@ -399,7 +399,7 @@ public class ScLibGenerator extends BaseGenerator {
             }
         }
         else {
-            err("Unkown stmt:"+v, v.loc);
+            err("Unkown stmt:"+v, v.pos);
         }
     }
 
@@ -486,7 +486,7 @@ public class ScLibGenerator extends BaseGenerator {
             this.visit(e.operand);
         }
         else {
-            err("Unkown expr:"+v, v.loc);
+            err("Unkown expr:"+v, v.pos);
         }
         
         if (!isPrimitive) {
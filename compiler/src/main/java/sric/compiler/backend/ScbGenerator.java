@@ -0,0 +1,383 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler.backend;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import sric.compiler.CompilerLog;
+import sric.compiler.ast.AstNode;
+import sric.compiler.ast.AstNode.*;
+import sric.compiler.ast.Expr;
+import sric.compiler.ast.FConst;
+import sric.compiler.ast.Loc;
+import sric.compiler.ast.SModule;
+import sric.compiler.ast.Type;
+import sric.compiler.parser.ScbReader;
+
+/**
+ * Write the binary module image (.scb) read back by ScbReader.
+ * It holds the same top level signatures as the .sc stub.
+ *
+ * @author yangjiandong
+ */
+public class ScbGenerator {
+    private CompilerLog log;
+    private String file;
+
+    private ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private DataOutputStream out = new DataOutputStream(body);
+    private HashMap<String, Integer> stringIndex = new HashMap<>();
+    private ArrayList<String> strings = new ArrayList<>();
+
+    public ScbGenerator(CompilerLog log, String file) {
+        this.log = log;
+        this.file = file;
+    }
+
+    public void run(SModule module) throws IOException {
+        writeString(module.name);
+        writeString(module.version);
+        writeVarint(module.fileUnits.size());
+        for (FileUnit unit : module.fileUnits) {
+            writeUnit(unit);
+        }
+
+        try (DataOutputStream fout = new DataOutputStream(new FileOutputStream(file))) {
+            fout.writeInt(ScbReader.magic);
+            fout.writeInt(ScbReader.formatVersion);
+
+            out = fout;
+            writeVarint(strings.size());
+            for (String s : strings) {
+                byte[] bs = s.getBytes(StandardCharsets.UTF_8);
+                writeVarint(bs.length);
+                fout.write(bs);
+            }
+            body.writeTo(fout);
+        }
+    }
+
+    private void writeVarint(int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private void writeString(String s) throws IOException {
+        if (s == null) {
+            writeVarint(0);
+            return;
+        }
+        Integer i = stringIndex.get(s);
+        if (i == null) {
+            strings.add(s);
+            i = strings.size();
+            stringIndex.put(s, i);
+        }
+        writeVarint(i);
+    }
+
+    private void writeBool(boolean b) throws IOException {
+        out.writeByte(b ? 1 : 0);
+    }
+
+    private void writeLoc(AstNode node) throws IOException {
+        Loc loc = node.loc();
+        if (loc == null) {
+            writeVarint(0);
+            return;
+        }
+        writeVarint(loc.line + 1);
+        writeVarint(loc.col);
+        writeVarint(loc.offset);
+        writeVarint(node.len);
+    }
+
+    private void writeUnit(FileUnit unit) throws IOException {
+        writeString(unit.name);
+
+        writeVarint(unit.imports.size());
+        for (Import i : unit.imports) {
+            writeLoc(i);
+            writeId(i.id);
+            writeBool(i.star);
+        }
+
+        writeVarint(unit.typeAlias.size());
+        for (TypeAlias a : unit.typeAlias) {
+            writeDefHeader(a);
+            writeType(a.type);
+        }
+
+        writeVarint(unit.typeDefs.size());
+        for (TypeDef t : unit.typeDefs) {
+            writeTypeDef(t);
+        }
+
+        writeVarint(unit.fieldDefs.size());
+        for (FieldDef f : unit.fieldDefs) {
+            writeField(f);
+        }
+
+        ArrayList<FuncDef> funcs = exportedFuncs(unit.funcDefs);
+        writeVarint(funcs.size());
+        for (FuncDef f : funcs) {
+            writeFunc(f);
+        }
+    }
+
+    private static boolean isInlined(FuncDef v) {
+        return (v.flags & FConst.Inline) != 0 || v.generiParamDefs != null;
+    }
+
+    //same as ScLibGenerator: private non-inline function is not exported
+    private static ArrayList<FuncDef> exportedFuncs(ArrayList<FuncDef> funcDefs) {
+        ArrayList<FuncDef> res = new ArrayList<>(funcDefs.size());
+        for (FuncDef f : funcDefs) {
+            if (!isInlined(f) && (f.flags & FConst.Private) != 0) {
+                continue;
+            }
+            res.add(f);
+        }
+        return res;
+    }
+
+    private void writeDefHeader(TopLevelDef def) throws IOException {
+        writeLoc(def);
+        out.writeInt(def.flags);
+        writeString(def.name);
+        if (def.comment == null) {
+            writeVarint(0);
+        }
+        else {
+            writeVarint(def.comment.comments.size() + 1);
+            for (Comment c : def.comment.comments) {
+                writeString(c.type.name());
+                writeString(c.content);
+            }
+        }
+    }
+
+    private void writeTypeDef(TypeDef v) throws IOException {
+        if (v instanceof StructDef sd) {
+            writeVarint(ScbReader.structTag);
+            writeDefHeader(v);
+            writeGenericParams(sd.generiParamDefs);
+            writeTypes(sd.inheritances);
+            writeVarint(sd.fieldDefs.size());
+            for (FieldDef f : sd.fieldDefs) {
+                writeField(f);
+            }
+            ArrayList<FuncDef> funcs = exportedFuncs(sd.funcDefs);
+            writeVarint(funcs.size());
+            for (FuncDef f : funcs) {
+                writeFunc(f);
+            }
+        }
+        else if (v instanceof EnumDef ed) {
+            writeVarint(ScbReader.enumTag);
+            writeDefHeader(v);
+            writeVarint(ed.enumDefs.size());
+            for (FieldDef f : ed.enumDefs) {
+                writeField(f);
+            }
+        }
+        else if (v instanceof TraitDef td) {
+            writeVarint(ScbReader.traitTag);
+            writeDefHeader(v);
+            ArrayList<FuncDef> funcs = exportedFuncs(td.funcDefs);
+            writeVarint(funcs.size());
+            for (FuncDef f : funcs) {
+                writeFunc(f);
+            }
+        }
+        else {
+            throw new IllegalStateException("Unknow type def: " + v);
+        }
+    }
+
+    private void writeField(FieldDef v) throws IOException {
+        writeDefHeader(v);
+        writeType(v.fieldType);
+        writeExpr(v.initExpr);
+        writeVarint(v._enumValue + 1);
+    }
+
+    private void writeFunc(FuncDef v) throws IOException {
+        writeDefHeader(v);
+        writeGenericParams(v.generiParamDefs);
+        //the body is not kept in the image, the importer only uses the declarations
+        writePrototype(v.prototype);
+    }
+
+    private void writePrototype(FuncPrototype prototype) throws IOException {
+        writeType(prototype.returnType);
+        out.writeInt(prototype.postFlags);
+        if (prototype.paramDefs == null) {
+            writeVarint(0);
+            return;
+        }
+        writeVarint(prototype.paramDefs.size() + 1);
+        for (ParamDef p : prototype.paramDefs) {
+            writeLoc(p);
+            writeString(p.name);
+            writeType(p.paramType);
+            writeExpr(p.defualtValue);
+        }
+    }
+
+    private void writeGenericParams(ArrayList<GenericParamDef> gps) throws IOException {
+        if (gps == null) {
+            writeVarint(0);
+            return;
+        }
+        writeVarint(gps.size() + 1);
+        for (GenericParamDef gp : gps) {
+            writeLoc(gp);
+            writeString(gp.name);
+            writeType(gp.bound);
+        }
+    }
+
+    private void writeId(Expr.IdExpr id) throws IOException {
+        int n = 0;
+        for (Expr.IdExpr i = id; i != null; i = i.namespace) {
+            ++n;
+        }
+        writeVarint(n);
+        writeIdNames(id);
+    }
+
+    private void writeIdNames(Expr.IdExpr id) throws IOException {
+        if (id.namespace != null) {
+            writeIdNames(id.namespace);
+        }
+        writeString(id.name);
+    }
+
+    private void writeTypes(ArrayList<Type> types) throws IOException {
+        if (types == null) {
+            writeVarint(0);
+            return;
+        }
+        writeVarint(types.size() + 1);
+        for (Type t : types) {
+            writeType(t);
+        }
+    }
+
+    private void writeType(Type type) throws IOException {
+        if (type == null) {
+            writeVarint(0);
+            return;
+        }
+
+        if (type.detail instanceof Type.FuncInfo info) {
+            writeVarint(ScbReader.funcTypeTag);
+            writeLoc(type);
+            writeBool(type.explicitImmutable);
+            writeBool(type.isImmutable);
+            writePrototype(info.prototype);
+            return;
+        }
+
+        writeVarint(ScbReader.typeTag);
+        writeLoc(type);
+        writeBool(type.explicitImmutable);
+        writeBool(type.isImmutable);
+        writeId(type.id);
+        writeTypes(type.genericArgs);
+
+        if (type.detail == null) {
+            writeVarint(0);
+        }
+        else if (type.detail instanceof Type.PointerInfo info) {
+            writeVarint(ScbReader.pointerInfoTag);
+            writeVarint(info.pointerAttr.ordinal());
+            writeBool(info.isNullable);
+        }
+        else if (type.detail instanceof Type.NumInfo info) {
+            writeVarint(ScbReader.numInfoTag);
+            writeVarint(info.size);
+            writeBool(info.isUnsigned);
+        }
+        else if (type.detail instanceof Type.ArrayInfo info) {
+            writeVarint(ScbReader.arrayInfoTag);
+            writeExpr(info.sizeExpr);
+        }
+        else if (type.detail instanceof Type.MetaTypeInfo info) {
+            writeVarint(ScbReader.metaInfoTag);
+            writeType(info.type);
+        }
+        else {
+            throw new IllegalStateException("Unknow type info: " + type.detail);
+        }
+    }
+
+    /**
+     * The importers only resolve the types of an imported module, the exprs are not resolved or generated.
+     * Array sizes are literal or id, the other exprs like field initializers and default values
+     * are only checked for presence, so they are kept as opaque.
+     */
+    private void writeExpr(Expr expr) throws IOException {
+        if (expr == null) {
+            writeVarint(0);
+            return;
+        }
+
+        if (expr instanceof Expr.LiteralExpr e) {
+            if (e.value == null) {
+                writeVarint(ScbReader.nullTag);
+                writeLoc(e);
+            }
+            else if (e.value instanceof Long v) {
+                writeVarint(ScbReader.longTag);
+                writeLoc(e);
+                out.writeLong(v);
+            }
+            else if (e.value instanceof Double v) {
+                writeVarint(ScbReader.doubleTag);
+                writeLoc(e);
+                out.writeDouble(v);
+            }
+            else if (e.value instanceof Boolean v) {
+                writeVarint(ScbReader.boolTag);
+                writeLoc(e);
+                writeBool(v);
+            }
+            else if (e.value instanceof String v) {
+                writeVarint(ScbReader.strTag);
+                writeLoc(e);
+                writeString(v);
+            }
+            else {
+                writeVarint(ScbReader.opaqueTag);
+                writeLoc(e);
+            }
+        }
+        else if (expr instanceof Expr.IdExpr e) {
+            writeVarint(ScbReader.idTag);
+            writeLoc(e);
+            writeId(e);
+        }
+        else if (expr instanceof Expr.UnaryExpr e) {
+            writeVarint(ScbReader.unaryTag);
+            writeLoc(e);
+            writeString(e.opToken.name());
+            writeExpr(e.operand);
+        }
+        else {
+            writeVarint(ScbReader.opaqueTag);
+            writeLoc(expr);
+        }
+    }
+}
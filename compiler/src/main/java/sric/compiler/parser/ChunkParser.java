@@ -0,0 +1,216 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler.parser;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import sric.compiler.CompilerLog;
+import sric.compiler.CompilerStats;
+import sric.compiler.ast.AstNode.FileUnit;
+import sric.compiler.ast.AstNode.TopLevelDef;
+import sric.compiler.ast.Token.TokenKind;
+
+/**
+ * Parse a big file by top level chunks on many threads.
+ * The file is tokenized once, so comments and strings never make a false boundary.
+ * The result is same as DeepParser, if any chunk has error the file is parsed again sequentially
+ * to keep the diagnostics and error recovery unchanged.
+ * The chunks run on the executor of the compiler, the calling thread also runs the chunks not started yet,
+ * so it never blocks on a pool that is busy with the other files.
+ *
+ * @author yangjiandong
+ */
+public class ChunkParser {
+    //min tokens of a chunk
+    public static int minChunkTokens = 8192;
+
+    private CompilerLog log;
+    private FileUnit unit;
+    private TokenBuffer tokens;
+    public boolean lazyBody = false;
+
+    public ChunkParser(CompilerLog log, char[] code, FileUnit unit, NameTable names) {
+        this.log = log;
+        this.unit = unit;
+        this.tokens = new Tokenizer(log, unit.name, code, names).tokenizeToBuffer();
+        unit.lines = tokens.lines;
+    }
+
+    private static class Chunk {
+        FileUnit unit;
+        CompilerLog log = new CompilerLog();
+        long astNodes;
+    }
+
+    /**
+     * split to at most parallelism chunks and parse them on the executor
+     */
+    public void parse(Executor executor, int parallelism) {
+        int[] bounds = split(tokens, parallelism);
+        if (bounds.length > 2) {
+            ArrayList<Chunk> chunks = parseChunks(executor, bounds);
+            if (chunks != null) {
+                merge(chunks);
+                return;
+            }
+        }
+
+        DeepParser parser = new DeepParser(log, tokens, 0, tokens.size(), unit);
+        parser.lazyBody = lazyBody;
+        parser.parse();
+    }
+
+    /**
+     * return null if any chunk has error
+     */
+    private ArrayList<Chunk> parseChunks(Executor executor, int[] bounds) {
+        ArrayList<FutureTask<Chunk>> tasks = new ArrayList<FutureTask<Chunk>>(bounds.length - 1);
+        for (int i = 0; i + 1 < bounds.length; ++i) {
+            int start = bounds[i];
+            int end = bounds[i + 1];
+            FutureTask<Chunk> task = new FutureTask<Chunk>(() -> parseChunk(start, end));
+            tasks.add(task);
+            //the first chunk is run by the calling thread
+            if (i > 0) {
+                executor.execute(task);
+            }
+        }
+
+        ArrayList<Chunk> chunks = new ArrayList<Chunk>(tasks.size());
+        boolean hasError = false;
+        for (FutureTask<Chunk> task : tasks) {
+            //no-op if a worker has started it
+            task.run();
+            try {
+                Chunk chunk = task.get();
+                hasError = hasError || chunk.log.hasError();
+                chunks.add(chunk);
+            } catch (InterruptedException | ExecutionException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        return hasError ? null : chunks;
+    }
+
+    private Chunk parseChunk(int start, int end) {
+        Chunk chunk = new Chunk();
+        chunk.unit = new FileUnit(unit.name);
+        long n = CompilerStats.enabled() ? CompilerStats.get(CompilerStats.AST_NODE) : 0;
+        DeepParser parser = new DeepParser(chunk.log, tokens, start, end, chunk.unit);
+        parser.lazyBody = lazyBody;
+        parser.parse();
+        if (CompilerStats.enabled()) {
+            chunk.astNodes = CompilerStats.get(CompilerStats.AST_NODE) - n;
+        }
+        return chunk;
+    }
+
+    private void merge(ArrayList<Chunk> chunks) {
+        //the defs of each kind keep the source order
+        for (Chunk chunk : chunks) {
+            unit.imports.addAll(chunk.unit.imports);
+            for (TopLevelDef def : chunk.unit.typeDefs) {
+                unit.addDef(def);
+            }
+            for (TopLevelDef def : chunk.unit.fieldDefs) {
+                unit.addDef(def);
+            }
+            for (TopLevelDef def : chunk.unit.funcDefs) {
+                unit.addDef(def);
+            }
+            for (TopLevelDef def : chunk.unit.typeAlias) {
+                unit.addDef(def);
+            }
+            if (CompilerStats.enabled()) {
+                CompilerStats.count(CompilerStats.AST_NODE, (int)chunk.astNodes);
+            }
+        }
+    }
+
+    private static boolean isDefStart(TokenKind kind) {
+        switch (kind) {
+            case docComment:
+            case cmdComment:
+            case funKeyword:
+            case varKeyword:
+            case structKeyword:
+            case traitKeyword:
+            case enumKeyword:
+            case typealiasKeyword:
+            case abstractKeyword:
+            case constKeyword:
+            case readonlyKeyword:
+            case externKeyword:
+            case externcKeyword:
+            case extensionKeyword:
+            case overrideKeyword:
+            case privateKeyword:
+            case protectedKeyword:
+            case publicKeyword:
+            case virtualKeyword:
+            case asyncKeyword:
+            case reflectKeyword:
+            case unsafeKeyword:
+            case throwKeyword:
+            case inlineKeyword:
+            case packedKeyword:
+            case constexprKeyword:
+            case operatorKeyword:
+            case noncopyableKeyword:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * token index of chunk boundaries, the first is 0 and the last is the eof token.
+     * A boundary is after a ';' or '}' at depth 0 and before the start of a top level def.
+     */
+    static int[] split(TokenBuffer tokens, int maxChunks) {
+        int eof = tokens.size() - 1;
+        int chunks = Math.min(maxChunks, eof / minChunkTokens);
+        if (chunks <= 1) {
+            return new int[] { 0, eof };
+        }
+
+        int target = eof / chunks;
+        int[] bounds = new int[chunks + 1];
+        int count = 1;
+        int depth = 0;
+        for (int i = 0; i + 1 < eof && count < chunks; ++i) {
+            switch (tokens.kind(i)) {
+                case lbrace:
+                case lparen:
+                case lbracket:
+                    ++depth;
+                    break;
+                case rbrace:
+                case rparen:
+                case rbracket:
+                    --depth;
+                    break;
+                default:
+                    break;
+            }
+            if (depth != 0 || i + 1 < count * target) {
+                continue;
+            }
+            TokenKind kind = tokens.kind(i);
+            if ((kind == TokenKind.semicolon || kind == TokenKind.rbrace) && isDefStart(tokens.kind(i + 1))) {
+                bounds[count++] = i + 1;
+            }
+        }
+        bounds[count++] = eof;
+        if (count == bounds.length) {
+            return bounds;
+        }
+        int[] res = new int[count];
+        System.arraycopy(bounds, 0, res, 0, count);
+        return res;
+    }
+}
@@ -26,6 +26,18 @@ public class DeepParser extends Parser {
     public DeepParser(CompilerLog log, String code, FileUnit unit) {
         super(log, code, unit);
     }
+    
+    public DeepParser(CompilerLog log, char[] code, FileUnit unit, NameTable names) {
+        super(log, code, unit, names);
+    }
+    
+    public DeepParser(CompilerLog log, char[] code, FileUnit unit, NameTable names, boolean stream) {
+        super(log, code, unit, names, stream);
+    }
+    
+    public DeepParser(CompilerLog log, TokenBuffer tokens, int start, int end, FileUnit unit) {
+        super(log, tokens, start, end, unit);
+    }
 
 //////////////////////////////////////////////////////////////////////////
 // Block
@@ -37,7 +49,7 @@ public class DeepParser extends Parser {
     @Override
     Block block() {
         Block block = new Block();
-        Loc loc = cur.loc;
+        long loc = curPos();
         consume(TokenKind.lbrace);
         while (curt != TokenKind.rbrace) {
             block.stmts.add(stmt());
@@ -60,7 +72,7 @@ public class DeepParser extends Parser {
         
         Block block = new Block();
         block.stmts.add(st);
-        endLoc(block, st.loc);
+        endLoc(block, st.pos);
         return block;
     }
 
@@ -112,7 +124,7 @@ public class DeepParser extends Parser {
      */
     private Stmt exprOrLocalDefStmt() {
         // see if this statement begins with a type literal
-        Loc loc = curLoc();
+        long loc = curPos();
 
         if (curt == TokenKind.varKeyword) {
             return localDefStmt(loc, null);
@@ -135,7 +147,7 @@ public class DeepParser extends Parser {
      ** Parse local variable declaration, the current token must be * the
      * identifier of the local variable.
      */
-    private LocalDefStmt localDefStmt(Loc loc, Type localType) {
+    private LocalDefStmt localDefStmt(long loc, Type localType) {
 //        boolean isConst = false;
         consume(TokenKind.varKeyword);
         
@@ -170,7 +182,7 @@ public class DeepParser extends Parser {
     }
     
     private UnsafeBlock unsafeStmt() {
-        Loc loc = cur.loc;
+        long loc = curPos();
         consume(TokenKind.unsafeKeyword);
 
         UnsafeBlock stmt = new UnsafeBlock();
@@ -185,14 +197,14 @@ public class DeepParser extends Parser {
      **   <if> = "if" "(" <expr> ")" <block> [ "else" <block> ]
      */
     private IfStmt ifStmt() {
-        Loc loc = cur.loc;
+        long loc = curPos();
         consume(TokenKind.ifKeyword);
         consume(TokenKind.lparen);
         Expr cond = expr();
         consume(TokenKind.rparen);
         Block trueBlock = stmtAsBlock();
         IfStmt stmt = new IfStmt();
-        stmt.loc = loc;
+        stmt.pos = loc;
         stmt.condition = cond;
         stmt.block = trueBlock;
         if (curt == TokenKind.elseKeyword) {
@@ -208,7 +220,7 @@ public class DeepParser extends Parser {
      */
     private ReturnStmt returnStmt() {
         ReturnStmt stmt = new ReturnStmt();
-        Loc loc = cur.loc;
+        long loc = curPos();
         consume(TokenKind.returnKeyword);
 
         if (curt != TokenKind.semicolon) {
@@ -224,10 +236,10 @@ public class DeepParser extends Parser {
      **   <throw> = "throw" <expr> <eos>
      */
     private ThrowStmt throwStmt() {
-        Loc loc = cur.loc;
+        long loc = curPos();
         consume(TokenKind.throwKeyword);
         ThrowStmt stmt = new ThrowStmt();
-        stmt.loc = loc;
+        stmt.pos = loc;
         stmt.expr = expr();
         endOfStmt();
         endLoc(stmt, loc);
@@ -239,13 +251,13 @@ public class DeepParser extends Parser {
      **   <while> = "while" "(" <expr> ")" <block>
      */
     private WhileStmt whileStmt() {
-        Loc loc = cur.loc;
+        long loc = curPos();
         consume(TokenKind.whileKeyword);
         consume(TokenKind.lparen);
         Expr cond = expr();
         consume(TokenKind.rparen);
         WhileStmt stmt = new WhileStmt();
-        stmt.loc = loc;
+        stmt.pos = loc;
         stmt.condition = cond;
         stmt.block = stmtAsBlock();
         endLoc(stmt, loc);
@@ -259,7 +271,7 @@ public class DeepParser extends Parser {
      */
     private ForStmt forStmt() {
         ForStmt stmt = new ForStmt();
-        Loc loc = cur.loc;
+        long loc = curPos();
         consume(TokenKind.forKeyword);
         consume(TokenKind.lparen);
 
@@ -291,8 +303,8 @@ public class DeepParser extends Parser {
      */
     private JumpStmt jumpStmt() {
         JumpStmt stmt = new JumpStmt();
-        Loc loc = cur.loc;
-        stmt.opToken = consume().kind;
+        long loc = curPos();
+        stmt.opToken = consume();
         endOfStmt();
         endLoc(stmt, loc);
         return stmt;
@@ -307,7 +319,7 @@ public class DeepParser extends Parser {
      */
     private TryStmt tryStmt() {
         TryStmt stmt = new TryStmt();
-        Loc loc = cur.loc;
+        long loc = curPos();
         consume(TokenKind.tryKeyword);
         stmt.block = stmtAsBlock();
 //    if (curt != TokenKind.catchKeyword && curt != TokenKind.finallyKeyword);
@@ -325,12 +337,12 @@ public class DeepParser extends Parser {
 
     private Catch tryCatch() {
         Catch c = new Catch();
-        Loc loc = cur.loc;
+        long loc = curPos();
         consume(TokenKind.catchKeyword);
 
         if (curt == TokenKind.lparen) {
             consume(TokenKind.lparen);
-            Loc loc2 = curLoc();
+            long loc2 = curPos();
             FieldDef errVariable = new FieldDef(null, consumeId());
             errVariable.fieldType = typeRef();
             c.errVariable = errVariable;
@@ -352,11 +364,11 @@ public class DeepParser extends Parser {
      **   <default> = "default" ":" <stmts>
      */
     private SwitchStmt switchStmt() {
-        Loc loc = cur.loc;
+        long loc = curPos();
         consume(TokenKind.switchKeyword);
         consume(TokenKind.lparen);
         SwitchStmt stmt = new SwitchStmt();
-        stmt.loc = loc;
+        stmt.pos = loc;
         stmt.condition = expr();
         consume(TokenKind.rparen);
         consume(TokenKind.lbrace);
@@ -364,7 +376,7 @@ public class DeepParser extends Parser {
             if (curt == TokenKind.caseKeyword) {
                 consume();
                 CaseBlock c = new CaseBlock();
-                Loc loc2 = cur.loc;
+                long loc2 = curPos();
                 c.caseExpr = expr();
                 consume(TokenKind.colon);
                 if (curt == TokenKind.fallthroughKeyword) {
@@ -394,7 +406,7 @@ public class DeepParser extends Parser {
 
     private Block switchBlock() {
         Block block = new Block();
-        Loc loc = cur.loc;
+        long loc = curPos();
         while (curt != TokenKind.caseKeyword && curt != TokenKind.defaultKeyword &&
                 curt != TokenKind.rbrace /*end of switch*/ &&
                 curt != TokenKind.fallthroughKeyword) {
@@ -423,11 +435,11 @@ public class DeepParser extends Parser {
      **   <assignOp> = "=" | "*=" | "/=" | "%=" | "+=" | "-="
      */
     private Expr assignExpr() {
-        Loc loc = curLoc();
+        long loc = curPos();
         // this is tree if built to the right (others to the left)
         Expr expr = ifExpr();
-        if (cur.isAssign()) {
-            TokenKind tok = consume().kind;
+        if (Token.isAssign(curt)) {
+            TokenKind tok = consume();
             expr.inLeftSide = true;
             BinaryExpr e = new BinaryExpr(expr, tok, assignExpr());
             endLoc(e, loc);
@@ -443,7 +455,7 @@ public class DeepParser extends Parser {
      **   <elvisExpr> =  <condOrExpr> "?:" <ifExprBody>
      */
     private Expr ifExpr() {
-        Loc loc = curLoc();
+        long loc = curPos();
         Expr expr = condOrExpr();
         if (curt == TokenKind.question) {
             Expr condition = expr;
@@ -453,7 +465,7 @@ public class DeepParser extends Parser {
             consume(TokenKind.colon);
             Expr falseExpr = condOrExpr();
             IfExpr ifExpr = new IfExpr();
-            ifExpr.loc = loc;
+            ifExpr.pos = loc;
             ifExpr.condition = condition;
             ifExpr.trueExpr = trueExpr;
             ifExpr.falseExpr = falseExpr;
@@ -464,7 +476,7 @@ public class DeepParser extends Parser {
 //            Expr lhs = expr;
 //            consume();
 //            Expr rhs = condOrExpr();
-//            BinaryExpr bexpr = new BinaryExpr(cur.loc, lhs, TokenKind.elvis, rhs);
+//            BinaryExpr bexpr = new BinaryExpr(curPos(), lhs, TokenKind.elvis, rhs);
 //            expr = bexpr;
 //        }
         return expr;
@@ -475,7 +487,7 @@ public class DeepParser extends Parser {
      **   <condOrExpr> =  <condAndExpr> ("||" <condAndExpr>)*
      */
     private Expr condOrExpr() {
-        Loc loc = curLoc();
+        long loc = curPos();
         Expr expr = condAndExpr();
         while (curt == TokenKind.doublePipe) {
             consume();
@@ -494,7 +506,7 @@ public class DeepParser extends Parser {
      **   <condAndExpr> =  <equalityExpr> ("&&" <equalityExpr>)*
      */
     private Expr condAndExpr() {
-        Loc loc = curLoc();
+        long loc = curPos();
         Expr expr = equalityExpr();
         while (curt == TokenKind.doubleAmp) {
             consume();
@@ -513,11 +525,11 @@ public class DeepParser extends Parser {
      **   <equalityExpr> =  <relationalExpr> [("==" | "!=") <relationalExpr>]
      */
     private Expr equalityExpr() {
-        Loc loc = curLoc();
+        long loc = curPos();
         Expr expr = relationalExpr();
         if (curt == TokenKind.eq || curt == TokenKind.notEq) {
             Expr lhs = expr;
-            TokenKind tok = consume().kind;
+            TokenKind tok = consume();
             Expr rhs = relationalExpr();
 
             BinaryExpr bexpr = new BinaryExpr(lhs, tok, rhs);
@@ -534,12 +546,12 @@ public class DeepParser extends Parser {
      **   <compareExpr> =  [("<" | "<=" | ">" | ">=" | "<=>")
      */
     private Expr relationalExpr() {
-        Loc loc = curLoc();
+        long loc = curPos();
         Expr expr = bitOrExpr();
         
         if (curt == TokenKind.isKeyword
                 || curt == TokenKind.asKeyword) {
-            expr = new BinaryExpr(expr, consume().kind, typeExpr());
+            expr = new BinaryExpr(expr, consume(), typeExpr());
             endLoc(expr, loc);
         }
         else if (curt == TokenKind.lt || curt == TokenKind.ltEq
@@ -549,7 +561,7 @@ public class DeepParser extends Parser {
             
             //not >> or <<
             if (peekt != curt) {
-                expr = new BinaryExpr(expr, consume().kind, bitOrExpr());
+                expr = new BinaryExpr(expr, consume(), bitOrExpr());
                 endLoc(expr, loc);
             }
         }
@@ -557,7 +569,7 @@ public class DeepParser extends Parser {
     }
     
     private Expr bitOrExpr() {
-        Loc loc = curLoc();
+        long loc = curPos();
         Expr expr = bitXorExpr();
         while (curt == TokenKind.pipe) {
             consume();
@@ -572,7 +584,7 @@ public class DeepParser extends Parser {
     }
     
     private Expr bitXorExpr() {
-        Loc loc = curLoc();
+        long loc = curPos();
         Expr expr = bitAndExpr();
         while (curt == TokenKind.caret) {
             consume();
@@ -587,7 +599,7 @@ public class DeepParser extends Parser {
     }
     
     private Expr bitAndExpr() {
-        Loc loc = curLoc();
+        long loc = curPos();
         Expr expr = bitShiftExpr();
         while (curt == TokenKind.amp) {
             consume();
@@ -603,15 +615,15 @@ public class DeepParser extends Parser {
 
     
     private Expr bitShiftExpr() {
-        Loc loc = curLoc();
+        long loc = curPos();
         Expr expr = addExpr();
-        if (curt == TokenKind.lt && !peek.whitespace && peekt == TokenKind.lt) {
+        if (curt == TokenKind.lt && !peekWhitespace() && peekt == TokenKind.lt) {
             consume();
             consume();
             expr = new BinaryExpr(expr, TokenKind.leftShift, addExpr());
             endLoc(expr, loc);
         }
-        if (curt == TokenKind.gt && !peek.whitespace && peekt == TokenKind.gt) {
+        if (curt == TokenKind.gt && !peekWhitespace() && peekt == TokenKind.gt) {
             consume();
             consume();
             expr = new BinaryExpr(expr, TokenKind.rightShift, addExpr());
@@ -625,10 +637,10 @@ public class DeepParser extends Parser {
      **   <addExpr> =  <multExpr> (("+" | "-") <multExpr>)*
      */
     private Expr addExpr() {
-        Loc loc = curLoc();
+        long loc = curPos();
         Expr expr = multExpr();
         while (curt == TokenKind.plus || curt == TokenKind.minus) {
-            expr = new BinaryExpr(expr, consume().kind, multExpr());
+            expr = new BinaryExpr(expr, consume(), multExpr());
             endLoc(expr, loc);
         }
         return expr;
@@ -639,10 +651,10 @@ public class DeepParser extends Parser {
      **   <multExpr> =  <unaryExpr> (("*" | "/" | "%") <unaryExpr>)*
      */
     private Expr multExpr() {
-        Loc loc = curLoc();
+        long loc = curPos();
         Expr expr = unaryExpr();
         while (curt == TokenKind.star || curt == TokenKind.slash || curt == TokenKind.percent) {
-            expr = new BinaryExpr(expr, consume().kind, unaryExpr());
+            expr = new BinaryExpr(expr, consume(), unaryExpr());
             endLoc(expr, loc);
         }
         return expr;
@@ -655,7 +667,7 @@ public class DeepParser extends Parser {
      **   <prefixExpr> = ("!" | "+" | "-" | "~" | "++" | "--" | "~" | "*" | "&" ) <termExpr>
      */
     private Expr unaryExpr() {
-        Loc loc = cur.loc;
+        long loc = curPos();
         switch (curt) {
             case bang:
             case minus:
@@ -698,7 +710,7 @@ public class DeepParser extends Parser {
         Expr target = primaryExpr();
         if (curt == TokenKind.bang) {
             consume();
-            Loc loc = target.loc;
+            long loc = target.pos;
             target = new NonNullableExpr(target);
             endLoc(target, loc);
         }
@@ -710,7 +722,7 @@ public class DeepParser extends Parser {
             target = chained;
             if (curt == TokenKind.bang) {
                 consume();
-                Loc loc = target.loc;
+                long loc = target.pos;
                 target = new NonNullableExpr(target);
                 endLoc(target, loc);
             }
@@ -739,26 +751,26 @@ public class DeepParser extends Parser {
         }
         
         // target$<...>
-        if (curt == TokenKind.dollar && !peek.whitespace && peekt == TokenKind.lt) {
+        if (curt == TokenKind.dollar && !peekWhitespace() && peekt == TokenKind.lt) {
             GenericInstance gi = new GenericInstance();
             gi.target = target;
             gi.genericArgs = genericArgs();
-            endLoc(gi, target.loc);
+            endLoc(gi, target.pos);
             return gi;
         }
 
         // target[...]
-        if (cur.kind == TokenKind.lbracket && !cur.newline) {
+        if (curt == TokenKind.lbracket && !curNewline()) {
             return indexExpr(target);
         }
 
         // target(...)
-        if (cur.kind == TokenKind.lparen && !cur.newline) {
+        if (curt == TokenKind.lparen && !curNewline()) {
             return callExpr(target);
         }
         
         // target{...}
-        if (cur.kind == TokenKind.lbrace) {
+        if (curt == TokenKind.lbrace) {
             return initBlockExpr(target);
         }
 
@@ -771,15 +783,15 @@ public class DeepParser extends Parser {
      **   <accessExpr> = ("." | "->" | "~>") <id>
      */
     private Expr accessExpr(Expr target) {
-        Loc loc = target.loc;
-        TokenKind token = consume().kind;
+        long loc = target.pos;
+        TokenKind token = consume();
         String name = consumeId();
 
         // at this point we are parsing a single identifier, but
         // if it looks like it was expected to be a type we can
         // provide a more meaningful error
         if (curt == TokenKind.pound) {
-            throw err("Unknown type '"+name+"' for type literal" + loc);
+            throw err("Unknown type '"+name+"' for type literal" + LineTable.decode(loc));
         }
 
         AccessExpr expr = new AccessExpr();
@@ -795,12 +807,12 @@ public class DeepParser extends Parser {
      **   <callOp> =  "(" <args> ")"
      */
     private CallExpr callExpr(Expr target) {
-        Loc loc = target.loc;
+        long loc = target.pos;
         
         consume(TokenKind.lparen);
         
         CallExpr call = new CallExpr();
-        call.loc = loc;
+        call.pos = loc;
         call.target = target;
         call.args = callArgs(TokenKind.rparen);
         
@@ -818,7 +830,7 @@ public class DeepParser extends Parser {
         if (curt != right) {
             ArrayList<CallArg> args = new ArrayList<CallArg>();
             while (true) {
-                Loc loc = curLoc();
+                long loc = curPos();
                 CallArg arg = new CallArg();
 
                 //named param
@@ -853,7 +865,7 @@ public class DeepParser extends Parser {
      **   <indexExpr> = "[" <expr> "]"
      */
     private Expr indexExpr(Expr target) {
-        Loc loc = target.loc;
+        long loc = target.pos;
         consume(TokenKind.lbracket);
 
         // otherwise this must be a standard single key index
@@ -861,7 +873,7 @@ public class DeepParser extends Parser {
         consume(TokenKind.rbracket);
         
         IndexExpr e = new IndexExpr();
-        e.loc = loc;
+        e.pos = loc;
         e.target = target;
         e.index = expr;
         endLoc(e, loc);
@@ -877,7 +889,7 @@ public class DeepParser extends Parser {
      **   <typeExpr> =  <type>
      */
     private TypeExpr typeExpr() {
-        Loc loc = curLoc();
+        long loc = curPos();
         //consume(TokenKind.colon);
         Type type = typeRef();
         TypeExpr expr = new TypeExpr(type);
@@ -901,7 +913,7 @@ public class DeepParser extends Parser {
     }
     
     private Expr sizeofExpr() {
-        Loc loc = cur.loc;
+        long loc = curPos();
         //TokenKind tokt = curt;
         consume(TokenKind.sizeofKeyword);
         consume(TokenKind.lparen);
@@ -916,11 +928,11 @@ public class DeepParser extends Parser {
     }
     
     private Expr offsetofExpr() {
-        Loc loc = curLoc();
+        long loc = curPos();
         consume(TokenKind.offsetofKeyword);
         
         CallExpr call = new CallExpr();
-        call.loc = loc;
+        call.pos = loc;
         call.target = new IdExpr(TokenKind.offsetofKeyword.symbol);
         
         consume(TokenKind.lparen);
@@ -938,7 +950,7 @@ public class DeepParser extends Parser {
      **   <literal> = "null" | "this" | "super" | <bool> | <int> | <float> | <str> | <array>
      */
     private Expr primaryExpr() {
-        Loc loc = cur.loc;
+        long loc = curPos();
         Expr expr = null;
         switch (curt) {
             case lparen:
@@ -948,13 +960,13 @@ public class DeepParser extends Parser {
                 expr = idExpr();
                 break;
             case intLiteral:
-                expr = new LiteralExpr(consume().val);
+                expr = new LiteralExpr(consumeVal());
                 break;
             case floatLiteral:
-                expr = new LiteralExpr(consume().val);
+                expr = new LiteralExpr(consumeVal());
                 break;
             case strLiteral:
-                expr = new LiteralExpr(consume().val);
+                expr = new LiteralExpr(consumeVal());
                 break;
             case trueKeyword:
                 consume();
@@ -972,7 +984,7 @@ public class DeepParser extends Parser {
             case thisKeyword:
             //case itKeyword:
             {
-                TokenKind tok = consume().kind;
+                TokenKind tok = consume();
                 expr = new IdExpr(tok.symbol);
                 break;
             }
@@ -1016,10 +1028,10 @@ public class DeepParser extends Parser {
             return expr;
         }
 
-        if (cur.kind.keyword) {
-            throw err("Expected expression, not keyword '" + cur + "'");
+        if (curt.keyword) {
+            throw err("Expected expression, not keyword '" + curToString() + "'");
         } else {
-            throw err("Expected expression, not '" + cur + "'");
+            throw err("Expected expression, not '" + curToString() + "'");
         }
     }
 
@@ -1040,7 +1052,7 @@ public class DeepParser extends Parser {
 
         //consume(TokenKind.rbrace);
 
-        endLoc(expr, target.loc);
+        endLoc(expr, target.pos);
         return expr;
     }
     
@@ -1062,7 +1074,7 @@ public class DeepParser extends Parser {
 
         consume(TokenKind.rbrace);
 
-        endLoc(expr, type.loc);
+        endLoc(expr, type.pos);
         return expr;
     }
 
@@ -1074,7 +1086,7 @@ public class DeepParser extends Parser {
      */
     private ClosureExpr closureExpr() {
         ClosureExpr closure = new ClosureExpr();
-        Loc loc = curLoc();
+        long loc = curPos();
         
         //consume(TokenKind.lbracket);
 //        if (curt != TokenKind.rbracket) {
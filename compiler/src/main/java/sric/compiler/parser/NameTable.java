@@ -0,0 +1,126 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler.parser;
+
+/**
+ * Interned identifiers of a compilation, same names share one String instance.
+ * Lookup by a char range of source without allocation.
+ * Shared by the parser threads, every segment has its own lock.
+ *
+ * @author yangjiandong
+ */
+public class NameTable {
+    private static final int segmentCount = 16;
+
+    private static class Segment {
+        String[] names = new String[64];
+        int[] hashes = new int[64];
+        int size = 0;
+
+        synchronized String intern(char[] buf, int start, int len, int hash) {
+            int mask = names.length - 1;
+            int i = mix(hash) & mask;
+            while (true) {
+                String name = names[i];
+                if (name == null) {
+                    break;
+                }
+                if (hashes[i] == hash && NameTable.equals(name, buf, start, len)) {
+                    return name;
+                }
+                i = (i + 1) & mask;
+            }
+
+            String name = new String(buf, start, len);
+            names[i] = name;
+            hashes[i] = hash;
+            ++size;
+            if (size * 2 > names.length) {
+                grow();
+            }
+            return name;
+        }
+
+        private void grow() {
+            String[] oldNames = names;
+            int[] oldHashes = hashes;
+            names = new String[oldNames.length * 2];
+            hashes = new int[oldNames.length * 2];
+            int mask = names.length - 1;
+            for (int j = 0; j < oldNames.length; ++j) {
+                if (oldNames[j] == null) {
+                    continue;
+                }
+                int i = mix(oldHashes[j]) & mask;
+                while (names[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                names[i] = oldNames[j];
+                hashes[i] = oldHashes[j];
+            }
+        }
+    }
+
+    private final Segment[] segments = new Segment[segmentCount];
+
+    public NameTable() {
+        for (int i = 0; i < segmentCount; ++i) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * same as String.hashCode
+     */
+    public static int hash(char[] buf, int start, int len) {
+        int h = 0;
+        for (int i = start, end = start + len; i < end; ++i) {
+            h = 31 * h + buf[i];
+        }
+        return h;
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    public static boolean equals(String name, char[] buf, int start, int len) {
+        if (name.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; ++i) {
+            if (name.charAt(i) != buf[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String intern(char[] buf, int start, int len) {
+        return intern(buf, start, len, hash(buf, start, len));
+    }
+
+    /**
+     * hash must be the hash of the char range
+     */
+    public String intern(char[] buf, int start, int len, int hash) {
+        return segments[mix(hash) >>> 28].intern(buf, start, len, hash);
+    }
+
+    public String intern(String name) {
+        char[] buf = name.toCharArray();
+        return intern(buf, 0, buf.length);
+    }
+
+    public int size() {
+        int n = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                n += s.size;
+            }
+        }
+        return n;
+    }
+}
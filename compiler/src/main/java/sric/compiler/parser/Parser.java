@@ -14,6 +14,7 @@ import sric.compiler.ast.AstNode.*;
 import sric.compiler.ast.Token.TokenKind;
 import sric.compiler.CompilerLog.CompilerErr;
 import java.util.ArrayList;
+import java.util.function.Supplier;
 import sric.compiler.ast.*;
 import sric.compiler.ast.Expr.*;
 import static sric.compiler.ast.Token.TokenKind.*;
@@ -26,12 +27,13 @@ import static sric.compiler.ast.Token.TokenKind.*;
 public class Parser {
 
     FileUnit unit;    // compilation unit to generate
-    ArrayList<Token> tokens;       // tokens all read in
-    protected int numTokens;           // number of tokens
+    TokenBuffer tokens;            // tokens all read in, or the lookahead window in stream mode
+    Tokenizer toker;               // pull tokens on demand in stream mode, null if all read in
+    static final int streamWindow = 16; // cur, peek, peekpeek and the previous token for endLoc
+    public boolean lazyBody = false;    // skeleton mode, parse the function body on first access
+    protected int end = Integer.MAX_VALUE; // tokens from end are seen as eof
     protected int pos;                 // offset into tokens for cur
-    protected Token cur;           // current token
     protected TokenKind curt;             // current token type
-    protected Token peek;          // next token
     protected TokenKind peekt;            // next token type
 //    protected boolean inFieldInit;        // are we currently in a field initializer
 //    protected Type curType;        // current TypeDef scope
@@ -39,17 +41,80 @@ public class Parser {
     CompilerLog log;
     
     public Parser(CompilerLog log, String code, FileUnit unit) {
+        this(log, code.toCharArray(), unit, null);
+    }
+    
+    public Parser(CompilerLog log, char[] code, FileUnit unit, NameTable names) {
+        this(log, code, unit, names, false);
+    }
+    
+    /**
+     * in stream mode the tokens are scanned when the parser reaches them,
+     * only a small window of tokens is kept
+     */
+    public Parser(CompilerLog log, char[] code, FileUnit unit, NameTable names, boolean stream) {
         this.log = log;
         this.unit = unit;
-        Tokenizer toker = new Tokenizer(log, unit.name, code);
-        tokens = toker.tokenize();
-        
-        this.numTokens = tokens.size();
+        if (stream) {
+            toker = new Tokenizer(log, unit.name, code, names, streamWindow);
+            tokens = toker.buffer();
+        }
+        else {
+            tokens = new Tokenizer(log, unit.name, code, names).tokenizeToBuffer();
+        }
+        unit.lines = tokens.lines;
         reset(0);
     }
     
-    Loc curLoc() {
-        return cur.loc;
+    /**
+     * parse the tokens in [start, end) of a tokenized file
+     */
+    public Parser(CompilerLog log, TokenBuffer tokens, int start, int end, FileUnit unit) {
+        this.log = log;
+        this.unit = unit;
+        this.tokens = tokens;
+        this.end = end;
+        unit.lines = tokens.lines;
+        reset(start);
+    }
+    
+    long curPos() {
+        return tokens.pos(curIndex());
+    }
+    
+    //past the end is the eof token
+    protected int index(int i) {
+        if (i < tokens.size() && i < end) {
+            return i;
+        }
+        if (toker != null) {
+            while (toker.fill()) {
+                if (i < tokens.size()) {
+                    return i;
+                }
+            }
+        }
+        return tokens.size() - 1;
+    }
+    
+    protected int curIndex() {
+        return index(pos);
+    }
+    
+    protected int peekIndex() {
+        return index(pos + 1);
+    }
+    
+    protected boolean curNewline() {
+        return tokens.isNewline(curIndex());
+    }
+    
+    protected boolean peekWhitespace() {
+        return tokens.hasWhitespace(peekIndex());
+    }
+    
+    protected String curToString() {
+        return tokens.toString(curIndex());
     }
 
     public void parse() {
@@ -98,7 +163,7 @@ public class Parser {
     }
     
     private TypeAlias parseTypeAlias(Comments doc, int flags) {
-        Loc loc = curLoc();
+        long loc = curPos();
         consume(TokenKind.typealiasKeyword);
         TypeAlias u = new TypeAlias();
         u.name = consumeId();
@@ -114,7 +179,7 @@ public class Parser {
     }
 
     private void parseImports() {
-        Loc loc = curLoc();
+        long loc = curPos();
         consume(TokenKind.importKeyword);
         Import u = new Import();
         u.id = idExpr();
@@ -130,7 +195,7 @@ public class Parser {
     }
 
     private TopLevelDef topLevelDef() {
-        Loc loc = curLoc();
+        long loc = curPos();
         // [<doc>]
         Comments doc = doc();
 
@@ -168,7 +233,7 @@ public class Parser {
     }
     
     private AstNode slotDef(Comments doc) {
-        Loc loc = curLoc();
+        long loc = curPos();
         // <flags>
         int flags = flags();
 
@@ -197,7 +262,7 @@ public class Parser {
      **   <idExpr> =  [(<id>"::")*] <id>
      */
     protected IdExpr idExpr() {
-        Loc loc = curLoc();
+        long loc = curPos();
         Expr.IdExpr e = new Expr.IdExpr(null);
         String id = consumeId();
         e.name = id;
@@ -223,12 +288,12 @@ public class Parser {
 //////////////////////////////////////////////////////////////////////////
     
     private ArrayList<GenericParamDef> tryGenericParamDef(AstNode parent) {
-        if (curt == TokenKind.dollar && !peek.whitespace && peekt == TokenKind.lt) {
+        if (curt == TokenKind.dollar && !peekWhitespace() && peekt == TokenKind.lt) {
             consume();
             consume();
             ArrayList<GenericParamDef> gparams = new ArrayList<GenericParamDef>();
             while (true) {
-                Loc gloc = curLoc();
+                long gloc = curPos();
                 String paramName = consumeId();
                 GenericParamDef param = new GenericParamDef();
                 param.name = paramName;
@@ -278,7 +343,7 @@ public class Parser {
      */
     TypeDef typeDef(Comments doc, int flags) {
         // local working variables
-        Loc loc = curLoc();
+        long loc = curPos();
         boolean isMixin = false;
         boolean isEnum = false;
 
@@ -400,7 +465,7 @@ public class Parser {
 //////////////////////////////////////////////////////////////////////////
     
     private int flags() {
-//    Loc loc = cur.loc;
+//    long loc = curPos();
         int flags = 0;
         boolean protection = false;
         for (boolean done = false; !done;) {
@@ -549,7 +614,7 @@ public class Parser {
      */
     private FieldDef enumSlotDef(int ordinal) {
         Comments doc = doc();
-        Loc loc = curLoc();
+        long loc = curPos();
         FieldDef def = new FieldDef(doc, consumeId());
 
         // optional ctor args
@@ -569,6 +634,11 @@ public class Parser {
      ** Top level for blocks which must be surrounded by braces
      */
     Block block() {
+        skipBlock();
+        return null;
+    }
+    
+    private void skipBlock() {
         consume(TokenKind.lbrace);
         int deep = 1;
         while (deep > 0 && curt != TokenKind.eof) {
@@ -579,7 +649,61 @@ public class Parser {
             }
             consume();
         }
-        return null;
+    }
+    
+    /**
+     ** Skip the block and return the parser of it.
+     ** Only the token range is kept, the block is parsed by a new parser on each call.
+     */
+    private Supplier<Block> lazyBlock() {
+        int start = pos;
+        long loc = curPos();
+        skipBlock();
+        int stop = pos;
+        return new LazyBlock(this, start, stop, loc);
+    }
+    
+    private static class LazyBlock implements Supplier<Block> {
+        private final TokenBuffer tokens;
+        private final CompilerLog log;
+        private final FileUnit unit;
+        //the base Parser skips the blocks
+        private final boolean deep;
+        private final int start;
+        private final int end;
+        private final long loc;
+        
+        LazyBlock(Parser parser, int start, int end, long loc) {
+            this.tokens = parser.tokens;
+            this.log = parser.log;
+            this.unit = parser.unit;
+            this.deep = parser instanceof DeepParser;
+            this.start = start;
+            this.end = end;
+            this.loc = loc;
+        }
+        
+        @Override
+        public Block get() {
+            //the blocks of a file may be parsed on many threads, the errors are added to the shared log at the end
+            CompilerLog blockLog = new CompilerLog();
+            Parser parser = deep ? new DeepParser(blockLog, tokens, start, end, unit) : new Parser(blockLog, tokens, start, end, unit);
+            try {
+                return parser.block();
+            }
+            catch (CompilerErr e) {
+                Block block = new Block();
+                block.pos = loc;
+                return block;
+            }
+            finally {
+                if (blockLog.hasError()) {
+                    synchronized (log) {
+                        log.errors.addAll(blockLog.errors);
+                    }
+                }
+            }
+        }
     }
 
     private boolean skipBracket() {
@@ -712,7 +836,7 @@ public class Parser {
      **   <fieldDef> :=  <facets> <fieldFlags> <id> ":" [<type>] ["=" <expr>] eos
      **   <fieldFlags> := [<protection>] ["readonly"] ["static"]
      */
-    private FieldDef fieldDef(Loc loc, Comments doc, int flags, Type type, String name) {
+    private FieldDef fieldDef(long loc, Comments doc, int flags, Type type, String name) {
         // define field itself
         FieldDef field = new FieldDef(doc, name);
         field.flags = flags;
@@ -755,9 +879,9 @@ public class Parser {
      **   <param> :=  <type> <id> [":=" <expr>]
      **   <methodBody> :=  <eos> | ( "{" <stmts> "}" )*
      */
-    private FuncDef methodDef(Loc loc, Comments doc, int flags, Type ret, String name) {
+    private FuncDef methodDef(long loc, Comments doc, int flags, Type ret, String name) {
         FuncDef method = new FuncDef();
-        method.loc = loc;
+        method.pos = loc;
         method.comment = doc;
         method.flags = flags;
         method.prototype.returnType = ret;
@@ -772,7 +896,12 @@ public class Parser {
         // if no body expected
         //if (parent.isNative) flags = flags.or(FConst.Native)
         if (curt == TokenKind.lbrace) {
-            method.code = block();  // keep parsing
+            if (lazyBody && toker == null) {
+                method.lazyCode = lazyBlock();
+            }
+            else {
+                method.code = block();  // keep parsing
+            }
         } else {
             endOfStmt();
         }
@@ -805,12 +934,12 @@ public class Parser {
             prototype.returnType = typeRef();
         }
         else {
-            prototype.returnType = Type.voidType(cur.loc);
+            prototype.returnType = Type.voidType(curPos());
         }
     }
 
     private ParamDef paramDef() {
-        Loc loc = curLoc();
+        long loc = curPos();
 
         ParamDef param = new ParamDef();
         param.name = consumeId();
@@ -818,7 +947,7 @@ public class Parser {
         consume(TokenKind.colon);
         
         if (curt == TokenKind.dotDotDot) {
-            param.paramType = Type.varArgType(cur.loc);
+            param.paramType = Type.varArgType(curPos());
             consume();
         }
         else {
@@ -848,7 +977,7 @@ public class Parser {
      **   <type> :=  <simpleType> | <pointerType> | <funcType> | <arrayType> | <constType>
      */
     protected Type typeRef() {
-        Loc loc = curLoc();
+        long loc = curPos();
         Type type;
         switch (curt) {
             case ownKeyword:
@@ -879,7 +1008,7 @@ public class Parser {
     }
     
     private Type pointerType(Type.PointerAttr pointerAttr) {
-        Loc loc = curLoc();
+        long loc = curPos();
         consume(TokenKind.star);
         boolean isNullable = false;
         if (curt == TokenKind.question) {
@@ -894,7 +1023,7 @@ public class Parser {
     }
     
     private Type arrayType() {
-        Loc loc = curLoc();
+        long loc = curPos();
         consume(TokenKind.lbracket);
         Expr size = null;
         if (curt != TokenKind.rbracket) {
@@ -940,7 +1069,7 @@ public class Parser {
      **   <simpleType> :=  <id> ["::" <id>]*
      */
     private Type simpleType() {
-        Loc loc = cur.loc;
+        long loc = curPos();
         IdExpr id = idExpr();
 
         Type type = null;
@@ -1010,7 +1139,7 @@ public class Parser {
         }
 
         //generic param
-        if (curt == TokenKind.dollar && !peek.whitespace && peekt == TokenKind.lt) {
+        if (curt == TokenKind.dollar && !peekWhitespace() && peekt == TokenKind.lt) {
             type.genericArgs = genericArgs();
         }
 
@@ -1020,7 +1149,7 @@ public class Parser {
     }
     
     protected ArrayList<Type> genericArgs() {
-        if (peek.whitespace) {
+        if (peekWhitespace()) {
             err("Expected $<");
         }
         consume(TokenKind.dollar);
@@ -1043,7 +1172,7 @@ public class Parser {
      **   <funcType> := "fun" "(" <args> ")" [<type>]
      */
     private Type funcType() {
-        Loc loc = cur.loc;
+        long loc = curPos();
         
         consume(TokenKind.funKeyword);
         
@@ -1064,16 +1193,16 @@ public class Parser {
      *
      */
     private Comments doc() {
-        Loc loc0 = cur.loc;
+        long loc0 = curPos();
         Comments comments = null;
         while (curt == TokenKind.docComment || curt == TokenKind.cmdComment) {
-            Loc loc = cur.loc;
+            long loc = curPos();
             TokenKind kind = curt;
-            String lines = (String) consume().val;
+            String lines = (String) consumeVal();
             Comment doc = new Comment(lines, kind);
             if (comments == null) {
                 comments = new Comments();
-                comments.loc = loc;
+                comments.pos = loc;
             }
             comments.comments.add(doc);
             endLoc(doc, loc);
@@ -1089,7 +1218,7 @@ public class Parser {
 //////////////////////////////////////////////////////////////////////////
     
     CompilerErr err(String msg) {
-        return log.err(msg, cur.loc);
+        return log.err(msg, curPos());
     }
 
 //////////////////////////////////////////////////////////////////////////
@@ -1101,11 +1230,11 @@ public class Parser {
      */
     protected String consumeId() {
         if (curt != TokenKind.identifier) {
-            throw err("Expected identifier, not '"+cur+"'");
+            throw err("Expected identifier, not '"+curToString()+"'");
             //consume();
             //return "";
         }
-        return (String) consume().val;
+        return (String) consumeVal();
     }
 
     /**
@@ -1115,7 +1244,7 @@ public class Parser {
      */
     protected void verify(TokenKind kind) {
         if (!curt.equals(kind)) {
-            throw err("Expected '"+kind.symbol+"', not '"+cur+"'");
+            throw err("Expected '"+kind.symbol+"', not '"+curToString()+"'");
         }
     }
 
@@ -1124,55 +1253,52 @@ public class Parser {
      * non-null then verify first
   *
      */
-    protected Token consume() {
+    protected TokenKind consume() {
         return consume(null);
     }
 
-    protected Token consume(TokenKind kind) {
+    protected TokenKind consume(TokenKind kind) {
         // verify if not null
         if (kind != null) {
             verify(kind);
         }
 
         // save the current we are about to consume for return
-        Token result = cur;
+        TokenKind result = curt;
 
-        // get the next token from the buffer, if pos is past numTokens,
+        // get the next token from the buffer, if pos is past the end,
         // then always use the last token which will be eof
-        Token next;
         pos++;
-        if (pos + 1 < numTokens) {
-            next = tokens.get(pos + 1);  // next peek is cur+1
-        } else {
-            next = tokens.get(numTokens - 1);
-        }
-
-        this.cur = peek;
-        this.peek = next;
-        this.curt = cur.kind;
-        this.peekt = peek.kind;
+        this.curt = peekt;
+        this.peekt = tokens.kind(peekIndex());
 
         return result;
     }
+    
+    /**
+     ** Consume the current token and return the value
+     */
+    protected Object consumeVal() {
+        Object val = tokens.val(curIndex());
+        consume();
+        return val;
+    }
 
     //** next next token
-    protected Token peekpeek() {
-        if (pos + 2 < numTokens) {
-            return tokens.get(pos + 2);
-        }
-        return tokens.get(numTokens - 1);
+    protected TokenKind peekpeek() {
+        return tokens.kind(index(pos + 2));
     }
 
     /**
      ** update loc.len field
      *
      */
-    protected void endLoc(AstNode node, Loc loc) {
-        node.loc = loc;
+    protected void endLoc(AstNode node, long loc) {
+        node.pos = loc;
         
-        Token preToken = (pos > 0) ? tokens.get(pos - 1) : cur;
-        int end = preToken.loc.offset + preToken.len;
-        int begin = loc.offset;
+        int pre = (pos > 0) ? index(pos - 1) : curIndex();
+        int end = tokens.start(pre) + tokens.len(pre);
+        int begin = LineTable.offset(loc);
         int len = end - begin;
         
         if (len <= 0) {
@@ -1185,13 +1311,13 @@ public class Parser {
      ** Statements can be terminated with a semicolon
      */
     protected void endOfStmt() {
-        //if (cur.newline) return true;
+        //if (curNewline()) return true;
         if (curt == TokenKind.semicolon) {
             consume();
             return;
         }
         
-        String errMsg = "Expected end of statement with ';' not '" + cur + "'";
+        String errMsg = "Expected end of statement with ';' not '" + curToString() + "'";
         err(errMsg);
     }
 
@@ -1201,13 +1327,7 @@ public class Parser {
      */
     protected void reset(int pos) {
         this.pos = pos;
-        this.cur = tokens.get(pos);
-        if (pos + 1 < numTokens) {
-            this.peek = tokens.get(pos + 1);
-        } else {
-            this.peek = tokens.get(pos);
-        }
-        this.curt = cur.kind;
-        this.peekt = peek.kind;
+        this.curt = tokens.kind(index(pos));
+        this.peekt = tokens.kind(index(pos + 1));
     }
 }
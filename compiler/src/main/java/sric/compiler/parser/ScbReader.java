@@ -0,0 +1,417 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import sric.compiler.ast.AstNode;
+import sric.compiler.ast.AstNode.*;
+import sric.compiler.ast.Expr;
+import sric.compiler.ast.LineTable;
+import sric.compiler.ast.SModule;
+import sric.compiler.ast.Token.TokenKind;
+import sric.compiler.ast.Type;
+
+/**
+ * Load the binary module image written by ScbGenerator.
+ *
+ * @author yangjiandong
+ */
+public class ScbReader {
+    public static final int magic = 0x53434231; //SCB1
+    public static final int formatVersion = 3;
+
+    public static final int structTag = 1;
+    public static final int enumTag = 2;
+    public static final int traitTag = 3;
+
+    public static final int typeTag = 1;
+    public static final int funcTypeTag = 2;
+
+    public static final int pointerInfoTag = 1;
+    public static final int numInfoTag = 2;
+    public static final int arrayInfoTag = 3;
+    public static final int metaInfoTag = 4;
+
+    public static final int nullTag = 1;
+    public static final int longTag = 2;
+    public static final int doubleTag = 3;
+    public static final int boolTag = 4;
+    public static final int strTag = 5;
+    public static final int idTag = 6;
+    public static final int unaryTag = 7;
+    public static final int opaqueTag = 8;
+
+    /**
+     * expr not kept in the image, the source is in the .sc file
+     */
+    public static class OpaqueExpr extends Expr {
+    }
+
+    private ByteBuffer buf;
+    private String[] strings;
+    private LineTable lines;
+
+    public ScbReader(ByteBuffer buf) {
+        this.buf = buf;
+    }
+
+    public static ScbReader map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new ScbReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Read the file units into module.
+     * return false if the image is broken or not match the module.
+     */
+    public boolean read(SModule module) {
+        try {
+            if (buf.getInt() != magic || buf.getInt() != formatVersion) {
+                return false;
+            }
+
+            int n = readVarint();
+            strings = new String[n + 1];
+            for (int i = 1; i <= n; ++i) {
+                byte[] bs = new byte[readVarint()];
+                buf.get(bs);
+                strings[i] = new String(bs, StandardCharsets.UTF_8);
+            }
+
+            String name = readString();
+            String version = readString();
+            if (!module.name.equals(name) || !module.version.equals(version)) {
+                return false;
+            }
+
+            ArrayList<FileUnit> units = new ArrayList<>();
+            int unitCount = readVarint();
+            for (int i = 0; i < unitCount; ++i) {
+                FileUnit unit = readUnit();
+                unit.module = module;
+                units.add(unit);
+            }
+            module.fileUnits.addAll(units);
+            return true;
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private int readVarint() {
+        int v = 0;
+        int shift = 0;
+        while (true) {
+            byte b = buf.get();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return v;
+            }
+            shift += 7;
+        }
+    }
+
+    private String readString() {
+        return strings[readVarint()];
+    }
+
+    private boolean readBool() {
+        return buf.get() != 0;
+    }
+
+    private void readLoc(AstNode node) {
+        int line = readVarint();
+        if (line == 0) {
+            return;
+        }
+        int col = readVarint();
+        int offset = readVarint();
+        node.pos = lines.pos(line - 1, col, offset);
+        node.len = readVarint();
+    }
+
+    private FileUnit readUnit() {
+        String name = readString();
+        FileUnit unit = new FileUnit(name);
+        lines = LineTable.create(name);
+        unit.lines = lines;
+
+        int n = readVarint();
+        for (int i = 0; i < n; ++i) {
+            Import im = new Import();
+            readLoc(im);
+            im.id = readId(im.pos);
+            im.star = readBool();
+            unit.imports.add(im);
+        }
+
+        n = readVarint();
+        for (int i = 0; i < n; ++i) {
+            TypeAlias a = new TypeAlias();
+            readDefHeader(a);
+            a.type = readType();
+            unit.addDef(a);
+        }
+
+        n = readVarint();
+        for (int i = 0; i < n; ++i) {
+            unit.addDef(readTypeDef());
+        }
+
+        n = readVarint();
+        for (int i = 0; i < n; ++i) {
+            unit.addDef(readField());
+        }
+
+        n = readVarint();
+        for (int i = 0; i < n; ++i) {
+            unit.addDef(readFunc());
+        }
+        return unit;
+    }
+
+    private void readDefHeader(TopLevelDef def) {
+        readLoc(def);
+        def.flags = buf.getInt();
+        def.name = readString();
+        int n = readVarint();
+        if (n > 0) {
+            def.comment = new Comments();
+            def.comment.pos = def.pos;
+            for (int i = 1; i < n; ++i) {
+                TokenKind type = TokenKind.valueOf(readString());
+                Comment c = new Comment(readString(), type);
+                c.pos = def.pos;
+                def.comment.comments.add(c);
+            }
+        }
+    }
+
+    private TypeDef readTypeDef() {
+        int tag = readVarint();
+        if (tag == structTag) {
+            StructDef sd = new StructDef(null, 0, null);
+            readDefHeader(sd);
+            sd.generiParamDefs = readGenericParams(sd);
+            sd.inheritances = readTypes();
+            int n = readVarint();
+            for (int i = 0; i < n; ++i) {
+                sd.addSlot(readField());
+            }
+            n = readVarint();
+            for (int i = 0; i < n; ++i) {
+                sd.addSlot(readFunc());
+            }
+            return sd;
+        }
+        else if (tag == enumTag) {
+            EnumDef ed = new EnumDef(null, 0, null);
+            readDefHeader(ed);
+            int n = readVarint();
+            for (int i = 0; i < n; ++i) {
+                ed.addSlot(readField());
+            }
+            return ed;
+        }
+        else if (tag == traitTag) {
+            TraitDef td = new TraitDef(null, 0, null);
+            readDefHeader(td);
+            int n = readVarint();
+            for (int i = 0; i < n; ++i) {
+                td.addSlot(readFunc());
+            }
+            return td;
+        }
+        throw new IllegalArgumentException("Unknow typeDef tag: " + tag);
+    }
+
+    private FieldDef readField() {
+        FieldDef f = new FieldDef(null, null);
+        readDefHeader(f);
+        f.fieldType = readType();
+        f.initExpr = readExpr();
+        f._enumValue = readVarint() - 1;
+        return f;
+    }
+
+    private FuncDef readFunc() {
+        FuncDef f = new FuncDef();
+        readDefHeader(f);
+        f.generiParamDefs = readGenericParams(f);
+        f.prototype = readPrototype();
+        return f;
+    }
+
+    private FuncPrototype readPrototype() {
+        FuncPrototype prototype = new FuncPrototype();
+        prototype.returnType = readType();
+        prototype.postFlags = buf.getInt();
+        int n = readVarint();
+        if (n > 0) {
+            prototype.paramDefs = new ArrayList<>(n - 1);
+            for (int i = 1; i < n; ++i) {
+                ParamDef p = new ParamDef();
+                readLoc(p);
+                p.name = readString();
+                p.paramType = readType();
+                p.defualtValue = readExpr();
+                prototype.paramDefs.add(p);
+            }
+        }
+        return prototype;
+    }
+
+    private ArrayList<GenericParamDef> readGenericParams(AstNode parent) {
+        int n = readVarint();
+        if (n == 0) {
+            return null;
+        }
+        ArrayList<GenericParamDef> gps = new ArrayList<>(n - 1);
+        for (int i = 1; i < n; ++i) {
+            GenericParamDef gp = new GenericParamDef();
+            readLoc(gp);
+            gp.name = readString();
+            gp.bound = readType();
+            gp.parent = parent;
+            gp.index = gps.size();
+            gps.add(gp);
+        }
+        return gps;
+    }
+
+    private Expr.IdExpr readId(long loc) {
+        int n = readVarint();
+        Expr.IdExpr id = null;
+        for (int i = 0; i < n; ++i) {
+            Expr.IdExpr e = new Expr.IdExpr(readString());
+            e.pos = loc;
+            e.namespace = id;
+            id = e;
+        }
+        return id;
+    }
+
+    private ArrayList<Type> readTypes() {
+        int n = readVarint();
+        if (n == 0) {
+            return null;
+        }
+        ArrayList<Type> types = new ArrayList<>(n - 1);
+        for (int i = 1; i < n; ++i) {
+            types.add(readType());
+        }
+        return types;
+    }
+
+    private Type readType() {
+        int tag = readVarint();
+        if (tag == 0) {
+            return null;
+        }
+
+        AstNode locNode = new AstNode();
+        readLoc(locNode);
+        boolean explicitImmutable = readBool();
+        boolean isImmutable = readBool();
+
+        Type type;
+        if (tag == funcTypeTag) {
+            type = Type.funcType(locNode.pos, readPrototype());
+        }
+        else if (tag == typeTag) {
+            type = new Type(readId(locNode.pos));
+            type.genericArgs = readTypes();
+
+            int infoTag = readVarint();
+            if (infoTag == pointerInfoTag) {
+                Type.PointerInfo info = new Type.PointerInfo();
+                info.pointerAttr = Type.PointerAttr.values()[readVarint()];
+                info.isNullable = readBool();
+                type.detail = info;
+            }
+            else if (infoTag == numInfoTag) {
+                Type.NumInfo info = new Type.NumInfo();
+                info.size = readVarint();
+                info.isUnsigned = readBool();
+                type.detail = info;
+            }
+            else if (infoTag == arrayInfoTag) {
+                Type.ArrayInfo info = new Type.ArrayInfo();
+                info.sizeExpr = readExpr();
+                type.detail = info;
+            }
+            else if (infoTag == metaInfoTag) {
+                Type.MetaTypeInfo info = new Type.MetaTypeInfo();
+                info.type = readType();
+                type.detail = info;
+            }
+            else if (infoTag != 0) {
+                throw new IllegalArgumentException("Unknow type info tag: " + infoTag);
+            }
+        }
+        else {
+            throw new IllegalArgumentException("Unknow type tag: " + tag);
+        }
+
+        type.pos = locNode.pos;
+        type.len = locNode.len;
+        type.explicitImmutable = explicitImmutable;
+        type.isImmutable = isImmutable;
+        return type;
+    }
+
+    private Expr readExpr() {
+        int tag = readVarint();
+        if (tag == 0) {
+            return null;
+        }
+
+        AstNode locNode = new AstNode();
+        readLoc(locNode);
+
+        Expr expr;
+        switch (tag) {
+            case nullTag:
+                expr = new Expr.LiteralExpr(null);
+                break;
+            case longTag:
+                expr = new Expr.LiteralExpr(buf.getLong());
+                break;
+            case doubleTag:
+                expr = new Expr.LiteralExpr(buf.getDouble());
+                break;
+            case boolTag:
+                expr = new Expr.LiteralExpr(readBool());
+                break;
+            case strTag:
+                expr = new Expr.LiteralExpr(readString());
+                break;
+            case idTag:
+                expr = readId(locNode.pos);
+                break;
+            case unaryTag:
+                TokenKind op = TokenKind.valueOf(readString());
+                expr = new Expr.UnaryExpr(op, readExpr());
+                break;
+            case opaqueTag:
+                expr = new OpaqueExpr();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknow expr tag: " + tag);
+        }
+        expr.pos = locNode.pos;
+        expr.len = locNode.len;
+        return expr;
+    }
+}
@@ -0,0 +1,106 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Load UTF-8 source file into the char buffer of Tokenizer without a String copy.
+ * Big file is memory-mapped, ASCII bytes are widened directly and
+ * only the non-ASCII runs go through the decoder.
+ *
+ * @author yangjiandong
+ */
+public class SourceLoader {
+    //smaller file is read into heap, mapping costs more than copying
+    public static int mapThreshold = 64 * 1024;
+
+    public static char[] load(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large: " + file);
+            }
+            if (size == 0) {
+                return new char[0];
+            }
+
+            ByteBuffer bytes;
+            if (size >= mapThreshold) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            else {
+                bytes = ByteBuffer.allocate((int)size);
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                }
+                bytes.flip();
+            }
+            return decode(bytes);
+        }
+    }
+
+    /**
+     * decode UTF-8 bytes, throw CharacterCodingException on malformed input same as Files.readString
+     */
+    public static char[] decode(ByteBuffer bytes) throws CharacterCodingException {
+        int n = bytes.remaining();
+        int base = bytes.position();
+        //UTF-8 never decodes to more chars than bytes
+        char[] chars = new char[n];
+        int i = 0;
+        while (i < n) {
+            byte b = bytes.get(base + i);
+            if (b < 0) {
+                break;
+            }
+            chars[i] = (char)b;
+            ++i;
+        }
+        if (i == n) {
+            return chars;
+        }
+
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CharBuffer out = CharBuffer.wrap(chars);
+        out.position(i);
+        bytes.position(base + i);
+        while (bytes.hasRemaining()) {
+            //ASCII run
+            byte b = bytes.get(bytes.position());
+            if (b >= 0) {
+                out.put((char)b);
+                bytes.position(bytes.position() + 1);
+                continue;
+            }
+            //non-ASCII run, decode until the next ASCII byte
+            int end = bytes.position() + 1;
+            while (end < bytes.limit() && bytes.get(end) < 0) {
+                ++end;
+            }
+            int limit = bytes.limit();
+            bytes.limit(end);
+            CoderResult res = decoder.decode(bytes, out, true);
+            bytes.limit(limit);
+            if (res.isError()) {
+                res.throwException();
+            }
+            decoder.reset();
+        }
+        return Arrays.copyOf(chars, out.position());
+    }
+}
@@ -0,0 +1,143 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler.parser;
+
+import java.util.Arrays;
+import sric.compiler.ast.LineTable;
+import sric.compiler.ast.Loc;
+import sric.compiler.ast.Token;
+import sric.compiler.ast.Token.TokenKind;
+
+/**
+ * Tokens of a file in parallel arrays.
+ * The Loc is made from the line table when it is asked.
+ * In window mode only the last window tokens are kept in a ring, the index is still the absolute token index.
+ *
+ * @author yangjiandong
+ */
+public class TokenBuffer {
+    public static final int NEWLINE = 1;
+    public static final int WHITESPACE = 2;
+
+    private static final TokenKind[] kindValues = TokenKind.values();
+
+    public final String file;
+
+    private short[] kinds = new short[256];
+    private int[] starts = new int[256];
+    private int[] lens = new int[256];
+    private byte[] flags = new byte[256];
+    //literal and identifier values
+    private Object[] vals = new Object[256];
+    private int size = 0;
+    //index mask of ring, -1 if all tokens are kept
+    private final int mask;
+
+    //offset of the first char of each line
+    public final LineTable lines;
+    private int lineCount = 1;
+
+    public TokenBuffer(String file) {
+        this(file, 0);
+    }
+
+    /**
+     * window must be power of 2, 0 means unbounded
+     */
+    public TokenBuffer(String file, int window) {
+        this.file = file;
+        this.lines = LineTable.create(file);
+        lines.addLine(0, 1);
+        if (window > 0) {
+            if ((window & (window - 1)) != 0) {
+                throw new IllegalArgumentException("window must be power of 2: " + window);
+            }
+            mask = window - 1;
+            kinds = new short[window];
+            starts = new int[window];
+            lens = new int[window];
+            flags = new byte[window];
+            vals = new Object[window];
+        }
+        else {
+            mask = -1;
+        }
+    }
+
+    public void add(TokenKind kind, int start, int len, int flag, Object val) {
+        int i = size & mask;
+        if (mask == -1 && size == kinds.length) {
+            int n = size * 2;
+            kinds = Arrays.copyOf(kinds, n);
+            starts = Arrays.copyOf(starts, n);
+            lens = Arrays.copyOf(lens, n);
+            flags = Arrays.copyOf(flags, n);
+            vals = Arrays.copyOf(vals, n);
+        }
+        kinds[i] = (short) kind.ordinal();
+        starts[i] = start;
+        lens[i] = len;
+        flags[i] = (byte) flag;
+        vals[i] = val;
+        ++size;
+    }
+
+    public void addLine(int start) {
+        lines.addLine(start, ++lineCount);
+    }
+
+    /**
+     * count of all added tokens, include the ones dropped from the window
+     */
+    public int size() {
+        return size;
+    }
+
+    public TokenKind kind(int i) {
+        return kindValues[kinds[i & mask]];
+    }
+
+    public int start(int i) {
+        return starts[i & mask];
+    }
+
+    public int len(int i) {
+        return lens[i & mask];
+    }
+
+    public Object val(int i) {
+        return vals[i & mask];
+    }
+
+    public boolean isNewline(int i) {
+        return (flags[i & mask] & NEWLINE) != 0;
+    }
+
+    public boolean hasWhitespace(int i) {
+        return (flags[i & mask] & WHITESPACE) != 0;
+    }
+
+    /**
+     * packed position of LineTable
+     */
+    public long pos(int i) {
+        return lines.pos(start(i));
+    }
+
+    public Loc loc(int i) {
+        return lines.loc(start(i));
+    }
+
+    public Token get(int i) {
+        Token tok = new Token(kind(i), val(i), loc(i), len(i));
+        tok.newline = isNewline(i);
+        tok.whitespace = hasWhitespace(i);
+        return tok;
+    }
+
+    public String toString(int i) {
+        return get(i).toString();
+    }
+}
@@ -9,6 +9,7 @@
 package sric.compiler.parser;
 
 import sric.compiler.CompilerLog;
+import sric.compiler.CompilerStats;
 import sric.compiler.ast.Token;
 import sric.compiler.ast.Loc;
 import sric.compiler.CompilerLog.CompilerErr;
@@ -21,7 +22,9 @@ import java.util.ArrayList;
  */
 public class Tokenizer {
 
-    private String buf;           // buffer
+    private char[] buf;           // buffer
+    private int bufLen;        // length of buffer
+    private NameTable names;   // intern identifiers if not null
     private int pos;           // index into buf for cur
     private boolean parseComment;
     private String filename;      // source file name
@@ -32,29 +35,48 @@ public class Tokenizer {
     private int peek;          // next char
     private int lastLine;      // line number of last token returned from next()
     private int posOfLine;     // index into buf for start of current line
-    private ArrayList<Token> tokens; // token accumulator
+    private TokenBuffer tokens; // token accumulator
+    private boolean done;      // eof is added to tokens
+    private Object val;        // value of the found token
+    private int tokOffset;     // offset of the found token
+    private int tokCol;        // column of the found token
+    private boolean tokNewline;   // is the found token the first of a line
+    private boolean tokWhitespace; // was there whitespace before the found token
     private boolean inStrLiteral; // return if inside a string literal token
     private boolean whitespace;   // was there whitespace before current token
     private CompilerLog log;
 
     public Tokenizer(CompilerLog log, String filename, String buf) {
+        this(log, filename, buf.toCharArray(), null);
+    }
+    
+    public Tokenizer(CompilerLog log, String filename, char[] buf, NameTable names) {
+        this(log, filename, buf, names, 0);
+    }
+    
+    /**
+     ** window is the ring size of the token buffer, 0 keeps all tokens
+     */
+    public Tokenizer(CompilerLog log, String filename, char[] buf, NameTable names, int window) {
         this.log = log;
         this.buf = buf;
+        this.bufLen = buf.length;
+        this.names = names;
         this.filename = filename;
         this.parseComment = false;
 
-        this.tokens = new ArrayList<Token>();
+        this.tokens = new TokenBuffer(filename, window);
         this.inStrLiteral = false;
         this.posOfLine = 0;
         this.whitespace = false;
 
         // initialize cur and peek
         cur = peek = ' ';
-        if (buf.length() > 0) {
-            cur = buf.charAt(0);
+        if (bufLen > 0) {
+            cur = buf[0];
         }
-        if (buf.length() > 1) {
-            peek = buf.charAt(1);
+        if (bufLen > 1) {
+            peek = buf[1];
         }
         pos = 0;
 
@@ -82,51 +104,97 @@ public class Tokenizer {
   *
      */
     public ArrayList<Token> tokenize() {
-        while (true) {
-            Token tok = next();
-            tokens.add(tok);
-            if (tok.kind.equals(TokenKind.eof)) {
-                break;
-            }
+        TokenBuffer buffer = tokenizeToBuffer();
+        ArrayList<Token> list = new ArrayList<Token>(buffer.size());
+        for (int i = 0; i < buffer.size(); ++i) {
+            list.add(buffer.get(i));
         }
+        return list;
+    }
+    
+    /**
+     ** Tokenize the entire input into a TokenBuffer without the Token objects.
+     */
+    public TokenBuffer tokenizeToBuffer() {
+        while (fill()) {
+        }
+        return tokens;
+    }
+    
+    /**
+     ** The buffer filled by fill().
+     */
+    public TokenBuffer buffer() {
         return tokens;
     }
+    
+    /**
+     ** Scan one more token into the buffer, return false if eof was already added.
+     */
+    public boolean fill() {
+        if (done) {
+            return false;
+        }
+        TokenKind kind = scan();
+        int flag = (tokNewline ? TokenBuffer.NEWLINE : 0) | (tokWhitespace ? TokenBuffer.WHITESPACE : 0);
+        tokens.add(kind, tokOffset, pos - tokOffset, flag, val);
+        if (kind == TokenKind.eof) {
+            done = true;
+            if (CompilerStats.enabled()) {
+                CompilerStats.count(CompilerStats.TOKEN, tokens.size());
+            }
+        }
+        return true;
+    }
 
     /**
      ** Return the next token in the buffer.
   *
      */
     public Token next() {
+        TokenKind kind = scan();
+        Token tok = new Token(kind, val, new Loc(filename, curLine, tokCol, tokOffset), this.pos - tokOffset);
+        tok.newline = tokNewline;
+        tok.whitespace = tokWhitespace;
+        return tok;
+    }
+    
+    /**
+     ** Find the next token, the value and position are saved in fields.
+     */
+    private TokenKind scan() {
         while (true) {
             // save current line
             curLine = this.line;
-            int col = this.col;
-            int offset = pos;
+            tokCol = this.col;
+            tokOffset = pos;
+            val = null;
 
             // find next token
-            Token tok;
+            TokenKind kind;
             try {
-                tok = find();
-                if (tok == null) {
+                kind = find();
+                if (kind == null) {
                     continue;
                 }
             } catch (CompilerErr e) {
                 continue;
             }
 
-            // fill in token's location
-            tok.loc = new Loc(filename, curLine, col, offset);
-            tok.len = this.pos - offset;
-            tok.newline = lastLine < line;
-            tok.whitespace = whitespace;
+            tokNewline = lastLine < line;
+            tokWhitespace = whitespace;
 
             // save last line, clear whitespace flag
             lastLine = line;
             whitespace = false;
 
-            return tok;
+            return kind;
         }
-//    return null; // TODO - shouldn't need this
+    }
+    
+    private TokenKind value(TokenKind kind, Object val) {
+        this.val = val;
+        return kind;
     }
     
     public static boolean isWhitespace(int ch) {
@@ -144,7 +212,7 @@ public class Tokenizer {
      ** Find the next token or return null.
   *
      */
-    private Token find() {
+    private TokenKind find() {
         // skip whitespace
         if (isWhitespace(cur)) {
             consume();
@@ -158,10 +226,10 @@ public class Tokenizer {
         }
 
         // number or .number (note that + and - are handled as unary operator)
-        if (Character.isDigit(cur)) {
+        if (isDigit(cur)) {
             return number();
         }
-        if (cur == '.' && Character.isDigit(peek)) {
+        if (cur == '.' && isDigit(peek)) {
             return number();
         }
 
@@ -196,36 +264,37 @@ public class Tokenizer {
      * or identifiers
   *
      */
-    private Token word() {
+    private TokenKind word() {
         // store starting position of word
         int start = pos;
 
         // find end of word to compute length
-        while (Character.isAlphabetic(cur) || Character.isDigit(cur) || cur == '_' || cur > 256) {
+        while (Character.isAlphabetic(cur) || isDigit(cur) || cur == '_' || cur > 256) {
             consume();
         }
 
-        // create Str (gc note this string might now reference buf)
-        String word = buf.substring(start, pos);
-
-        //replace alias
-//    if (alias != null) {
-//      if (alias.containsKey(word)) word = alias[word];
-//    }
-        // check keywords
-        TokenKind keyword = Token.keywords.get(word);
+        // check keywords without allocation
+        int len = pos - start;
+        int hash = NameTable.hash(buf, start, len);
+        TokenKind keyword = Token.findKeyword(buf, start, len, hash);
         if (keyword != null) {
-            return new Token(keyword);
+            return keyword;
         }
 
         // otherwise this is a normal identifier
-        return new Token(TokenKind.identifier, word);
+        String word = names != null ? names.intern(buf, start, len, hash) : new String(buf, start, len);
+        return value(TokenKind.identifier, word);
     }
 
     private static boolean isIdentifierStart(int c) {
         return Character.isAlphabetic(c) || c == '_' || c > 256;
     }
 
+    //ascii only, the other unicode digits are not number literal
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
 //////////////////////////////////////////////////////////////////////////
 // Number
 //////////////////////////////////////////////////////////////////////////
@@ -233,7 +302,7 @@ public class Tokenizer {
      ** Parse a number literal token: int, float, decimal, or duration.
   *
      */
-    private Token number() {
+    private TokenKind number() {
         // check for hex value
         if (cur == '0' && peek == 'x') {
             return hex();
@@ -245,15 +314,15 @@ public class Tokenizer {
         boolean exp = false;
 
         // whole part
-        while (Character.isDigit(cur) || cur == '_') {
+        while (isDigit(cur) || cur == '_') {
             consume();
         }
 
         // fraction part
-        if (cur == '.' && Character.isDigit(peek)) {
+        if (cur == '.' && isDigit(peek)) {
             dot = true;
             consume();
-            while (Character.isDigit(cur) || cur == '_') {
+            while (isDigit(cur) || cur == '_') {
                 consume();
             }
         }
@@ -265,16 +334,15 @@ public class Tokenizer {
             if (cur == '-' || cur == '+') {
                 consume();
             }
-            if (!Character.isDigit(cur)) {
+            if (!isDigit(cur)) {
                 throw err("Expected exponent digits");
             }
-            while (Character.isDigit(cur) || cur == '_') {
+            while (isDigit(cur) || cur == '_') {
                 consume();
             }
         }
 
-        // string value of literal
-        String str = buf.substring(start, pos).replace("_", "");
+        int end = pos;
 
         // check for suffixes
         boolean floatSuffix = false;
@@ -282,16 +350,30 @@ public class Tokenizer {
             consume();
             floatSuffix = true;
         }
+        
+        // small int literal without the string
+        if (!floatSuffix && !dot && !exp && end - start <= 18) {
+            long num = 0;
+            for (int i = start; i < end; ++i) {
+                if (buf[i] != '_') {
+                    num = num * 10 + (buf[i] - '0');
+                }
+            }
+            return value(TokenKind.intLiteral, num);
+        }
+
+        // string value of literal
+        String str = new String(buf, start, end - start).replace("_", "");
         try {
             // float literal
             if (floatSuffix || dot || exp) {
                 double num = Double.parseDouble(str);
-                return new Token(TokenKind.floatLiteral, num);
+                return value(TokenKind.floatLiteral, num);
             }
 
             // int literal
             long num = Long.parseLong(str);
-            return new Token(TokenKind.intLiteral, num);
+            return value(TokenKind.intLiteral, num);
         } catch (CompilerErr e) {
             throw err("Invalid numeric literal '$str'");
         }
@@ -346,7 +428,7 @@ public class Tokenizer {
      ** Process hex int/long literal starting with 0x
   *
      */
-    Token hex() {
+    TokenKind hex() {
         consume(); // 0
         consume(); // x
 
@@ -374,7 +456,7 @@ public class Tokenizer {
             consume();
         }
 
-        return new Token(TokenKind.intLiteral, val);
+        return value(TokenKind.intLiteral, val);
     }
 
 //////////////////////////////////////////////////////////////////////////
@@ -385,7 +467,7 @@ public class Tokenizer {
      * must already be consumed.
   *
      */
-    private Token quoted(boolean triple) {
+    private TokenKind quoted(boolean triple) {
         inStrLiteral = true;
         try {
             // opening quote
@@ -432,7 +514,7 @@ public class Tokenizer {
                 }
             }
 
-            return new Token(TokenKind.strLiteral, s.toString());
+            return value(TokenKind.strLiteral, s.toString());
         } finally {
             inStrLiteral = false;
         }
@@ -446,7 +528,7 @@ public class Tokenizer {
      */
     private boolean skipStrWs(int openLine, int openPos) {
         for (int i = openLine; i < openPos; ++i) {
-            int a = buf.charAt(i);
+            int a = buf[i];
             if ((a == '\t' && cur != '\t') || (a != '\t' && cur != ' ')) {
                 if (cur == '\n') {
                     return true;
@@ -454,7 +536,7 @@ public class Tokenizer {
                 int numTabs = 0;
                 int numSpaces = 0;
                 for (int j = openLine; j < openPos; ++j) {
-                    if (buf.charAt(j) == '\t') {
+                    if (buf[j] == '\t') {
                         ++numTabs;
                     } else {
                         ++numSpaces;
@@ -502,7 +584,7 @@ public class Tokenizer {
      ** Parse a char literal token.
   *
      */
-    private Token ch() {
+    private TokenKind ch() {
         // consume opening quote
         consume();
 
@@ -521,7 +603,7 @@ public class Tokenizer {
         }
         consume();
 
-        return new Token(TokenKind.intLiteral, c);
+        return value(TokenKind.intLiteral, c);
     }
 
     /**
@@ -590,7 +672,7 @@ public class Tokenizer {
      ** Skip a single line // comment
   *
      */
-    private Token readCommentSL() {
+    private TokenKind readCommentSL() {
         int start = pos;
         int end = start;
         int line = this.line;
@@ -616,10 +698,10 @@ public class Tokenizer {
             consume();
         }
         if (isDoc) {
-            return new Token(TokenKind.cmdComment, s.toString());
+            return value(TokenKind.cmdComment, s.toString());
         }
         if (parseComment) {
-            return new Token(TokenKind.mlComment, s.toString());
+            return value(TokenKind.mlComment, s.toString());
         }
         return null;
     }
@@ -629,7 +711,7 @@ public class Tokenizer {
      * can be nested.
   *
      */
-    private Token readCommentML() {
+    private TokenKind readCommentML() {
         int start = pos;
         int end = start;
         int line = this.line;
@@ -664,10 +746,10 @@ public class Tokenizer {
             consume();
         }
         if (isDoc) {
-            return new Token(TokenKind.docComment, s.toString());
+            return value(TokenKind.docComment, s.toString());
         }
         if (parseComment) {
-            return new Token(TokenKind.mlComment, s.toString());
+            return value(TokenKind.mlComment, s.toString());
         }
         return null;
     }
@@ -679,7 +761,7 @@ public class Tokenizer {
      ** Parse a symbol token (typically into an operator).
   *
      */
-    private Token symbol() {
+    private TokenKind symbol() {
         int c = cur;
         consume();
         switch (c) {
@@ -690,169 +772,169 @@ public class Tokenizer {
                     consume();
                     if (cur == '=') {
                         consume();
-                        return new Token(TokenKind.notSame);
+                        return TokenKind.notSame;
                     }
-                    return new Token(TokenKind.notEq);
+                    return TokenKind.notEq;
                 }
-                return new Token(TokenKind.bang);
+                return TokenKind.bang;
             case '#':
-                return new Token(TokenKind.pound);
+                return TokenKind.pound;
             case '%':
                 if (cur == '=') {
                     consume();
-                    return new Token(TokenKind.assignPercent);
+                    return TokenKind.assignPercent;
                 }
-                return new Token(TokenKind.percent);
+                return TokenKind.percent;
             case '&':
                 if (cur == '&') {
                     consume();
-                    return new Token(TokenKind.doubleAmp);
+                    return TokenKind.doubleAmp;
                 }
-                return new Token(TokenKind.amp);
+                return TokenKind.amp;
             case '(':
-                return new Token(TokenKind.lparen);
+                return TokenKind.lparen;
             case ')':
-                return new Token(TokenKind.rparen);
+                return TokenKind.rparen;
             case '*':
                 if (cur == '=') {
                     consume();
-                    return new Token(TokenKind.assignStar);
+                    return TokenKind.assignStar;
                 }
-                return new Token(TokenKind.star);
+                return TokenKind.star;
             case '+':
                 if (cur == '=') {
                     consume();
-                    return new Token(TokenKind.assignPlus);
+                    return TokenKind.assignPlus;
                 }
                 if (cur == '+') {
                     consume();
-                    return new Token(TokenKind.increment);
+                    return TokenKind.increment;
                 }
-                return new Token(TokenKind.plus);
+                return TokenKind.plus;
             case ',':
-                return new Token(TokenKind.comma);
+                return TokenKind.comma;
             case '-':
                 if (cur == '>') {
                     consume();
-                    return new Token(TokenKind.arrow);
+                    return TokenKind.arrow;
                 }
                 if (cur == '-') {
                     consume();
-                    return new Token(TokenKind.decrement);
+                    return TokenKind.decrement;
                 }
                 if (cur == '=') {
                     consume();
-                    return new Token(TokenKind.assignMinus);
+                    return TokenKind.assignMinus;
                 }
-                return new Token(TokenKind.minus);
+                return TokenKind.minus;
             case '.':
                 if (cur == '.') {
                     consume();
                     if (cur == '.') {
                         consume();
-                        return new Token(TokenKind.dotDotDot);
+                        return TokenKind.dotDotDot;
                     }
                     if (cur == '<') {
                         consume();
-                        return new Token(TokenKind.dotDotLt);
+                        return TokenKind.dotDotLt;
                     }
-                    return new Token(TokenKind.dotDot);
+                    return TokenKind.dotDot;
                 }
-                return new Token(TokenKind.dot);
+                return TokenKind.dot;
             case '/':
                 if (cur == '=') {
                     consume();
-                    return new Token(TokenKind.assignSlash);
+                    return TokenKind.assignSlash;
                 }
-                return new Token(TokenKind.slash);
+                return TokenKind.slash;
             case ':':
                 if (cur == ':') {
                     consume();
-                    return new Token(TokenKind.doubleColon);
+                    return TokenKind.doubleColon;
                 }
                 if (cur == '=') {
                     consume();
-                    return new Token(TokenKind.defAssign);
+                    return TokenKind.defAssign;
                 }
-                return new Token(TokenKind.colon);
+                return TokenKind.colon;
             case ';':
-                return new Token(TokenKind.semicolon);
+                return TokenKind.semicolon;
             case '<':
                 if (cur == '=') {
                     consume();
                     if (cur == '>') {
                         consume();
-                        return new Token(TokenKind.cmp);
+                        return TokenKind.cmp;
                     }
-                    return new Token(TokenKind.ltEq);
+                    return TokenKind.ltEq;
                 }
-                return new Token(TokenKind.lt);
+                return TokenKind.lt;
             case '=':
                 if (cur == '=') {
                     consume();
                     if (cur == '=') {
                         consume();
-                        return new Token(TokenKind.same);
+                        return TokenKind.same;
                     }
-                    return new Token(TokenKind.eq);
+                    return TokenKind.eq;
                 }
-                return new Token(TokenKind.assign);
+                return TokenKind.assign;
             case '>':
                 if (cur == '=') {
                     consume();
-                    return new Token(TokenKind.gtEq);
+                    return TokenKind.gtEq;
                 }
-                return new Token(TokenKind.gt);
+                return TokenKind.gt;
             case '?':
                 if (cur == ':') {
                     consume();
-                    return new Token(TokenKind.elvis);
+                    return TokenKind.elvis;
                 }
                 if (cur == '.') {
                     consume();
-                    return new Token(TokenKind.safeDot);
+                    return TokenKind.safeDot;
                 }
                 if (cur == '-' && peek == '>') {
                     consume();
                     consume();
-                    return new Token(TokenKind.safeArrow);
+                    return TokenKind.safeArrow;
                 }
                 if (cur == '~' && peek == '>') {
                     consume();
                     consume();
-                    return new Token(TokenKind.safeTildeArrow);
+                    return TokenKind.safeTildeArrow;
                 }
-                return new Token(TokenKind.question);
+                return TokenKind.question;
             case '@':
-                return new Token(TokenKind.at);
+                return TokenKind.at;
             case '[':
-                return new Token(TokenKind.lbracket);
+                return TokenKind.lbracket;
             case ']':
-                return new Token(TokenKind.rbracket);
+                return TokenKind.rbracket;
             case '^':
-                return new Token(TokenKind.caret);
+                return TokenKind.caret;
             case '{':
-                return new Token(TokenKind.lbrace);
+                return TokenKind.lbrace;
             case '|':
                 if (cur == '|') {
                     consume();
-                    return new Token(TokenKind.doublePipe);
+                    return TokenKind.doublePipe;
                 }
-                return new Token(TokenKind.pipe);
+                return TokenKind.pipe;
             case '}':
-                return new Token(TokenKind.rbrace);
+                return TokenKind.rbrace;
             case '~':
                 if (cur == '>') {
                     consume();
-                    return new Token(TokenKind.tildeArrow);
+                    return TokenKind.tildeArrow;
                 }
-                return new Token(TokenKind.tilde);
+                return TokenKind.tilde;
             case '$':
-                return new Token(TokenKind.dollar);
+                return TokenKind.dollar;
         }
 
         if (c == 0) {
-            return new Token(TokenKind.eof);
+            return TokenKind.eof;
         }
 
         throw err("Unexpected symbol: " + String.valueOf((char) c));
@@ -878,7 +960,7 @@ public class Tokenizer {
   *
      */
     private int peekPeek() {
-        return pos + 2 < buf.length() ? buf.charAt(pos + 2) : 0;
+        return pos + 2 < bufLen ? buf[pos + 2] : 0;
     }
 
     /**
@@ -895,6 +977,7 @@ public class Tokenizer {
             line++;
             col = 1;
             posOfLine = pos + 1;
+            tokens.addLine(posOfLine);
         } else {
             col++;
         }
@@ -903,8 +986,8 @@ public class Tokenizer {
         // problems mean that we have read past the end
         cur = peek;
         pos++;
-        if (pos + 1 < buf.length()) {
-            peek = buf.charAt(pos + 1); // next peek is cur+1
+        if (pos + 1 < bufLen) {
+            peek = buf[pos + 1]; // next peek is cur+1
         } else {
             peek = 0;
         }
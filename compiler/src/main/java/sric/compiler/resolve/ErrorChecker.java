@@ -5,9 +5,14 @@
 package sric.compiler.resolve;
 
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import sric.compiler.CompilePass;
 import sric.compiler.CompilerLog;
+import sric.compiler.CompilerStats;
 import sric.compiler.ast.AstNode;
 import sric.compiler.ast.AstNode.*;
 import sric.compiler.ast.Expr.*;
@@ -27,6 +32,10 @@ public class ErrorChecker extends CompilePass {
     private int inUnsafe = 0;
     private FileUnit curUnit = null;
     private WithBlockExpr curItBlock = null;
+    private FitCache fitCache = new FitCache();
+    
+    //the func bodies checked later on the pool, null if not deferred
+    private ArrayList<DeferredFunc> deferred = null;
     
     public ErrorChecker(CompilerLog log, SModule module) {
         super(log);
@@ -37,6 +46,100 @@ public class ErrorChecker extends CompilePass {
     public void run() {
         module.walkChildren(this);
     }
+    
+    /**
+     * Check the func bodies of each file as a task on a pool of parallelism threads.
+     * The declarations are checked first, the errors are merged in the same order as run().
+     */
+    public void run(int parallelism) {
+        if (parallelism <= 1) {
+            run();
+            return;
+        }
+        
+        CompilerLog out = log;
+        log = new CompilerLog();
+        deferred = new ArrayList<DeferredFunc>();
+        run();
+        
+        //the bodies of a file are in a row
+        ArrayList<FileBatch> batches = new ArrayList<FileBatch>();
+        for (DeferredFunc d : deferred) {
+            if (batches.isEmpty() || batches.get(batches.size()-1).unit != d.curUnit) {
+                FileBatch batch = new FileBatch();
+                batch.unit = d.curUnit;
+                batches.add(batch);
+            }
+            batches.get(batches.size()-1).funcs.add(d);
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, batches.size())));
+        try {
+            ArrayList<Future<FileBatch>> futures = new ArrayList<Future<FileBatch>>(batches.size());
+            for (FileBatch batch : batches) {
+                futures.add(executor.submit(() -> batch.check(module, fitCache)));
+            }
+
+            int k = 0;
+            for (Future<FileBatch> f : futures) {
+                FileBatch batch = ExprTypeResolver.waitFor(f);
+                for (DeferredFunc d : batch.funcs) {
+                    while (k < d.errorMark) {
+                        out.errors.add(log.errors.get(k++));
+                    }
+                    out.errors.addAll(d.log.errors);
+                }
+                if (batch.counts != null) {
+                    CompilerStats.add(batch.counts);
+                }
+            }
+            while (k < log.errors.size()) {
+                out.errors.add(log.errors.get(k++));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+            log = out;
+            deferred = null;
+        }
+    }
+    
+    //context of a func body
+    private static class DeferredFunc {
+        FuncDef func;
+        StructDef curStruct;
+        FileUnit curUnit;
+        //errors of the declarations before the body
+        int errorMark;
+        CompilerLog log = new CompilerLog();
+    }
+    
+    //the func bodies of a file, checked by one checker
+    private static class FileBatch {
+        FileUnit unit;
+        ArrayList<DeferredFunc> funcs = new ArrayList<DeferredFunc>();
+        //counters made on the pool thread
+        long[] counts;
+        
+        FileBatch check(SModule module, FitCache fitCache) {
+            long[] begin = CompilerStats.enabled() ? CompilerStats.snapshot() : null;
+            ErrorChecker checker = new ErrorChecker(funcs.get(0).log, module);
+            checker.fitCache = fitCache;
+            checker.curUnit = unit;
+            for (DeferredFunc d : funcs) {
+                checker.log = d.log;
+                checker.curStruct = d.curStruct;
+                checker.checkBody(d.func);
+            }
+            if (begin != null) {
+                counts = CompilerStats.snapshot();
+                for (int i = 0; i < counts.length; ++i) {
+                    counts[i] -= begin[i];
+                }
+            }
+            return this;
+        }
+    }
 
     @Override
     public void visitUnit(AstNode.FileUnit v) {
@@ -70,16 +173,16 @@ public class ErrorChecker extends CompilePass {
         return true;
     }
     
-    private void verifyTypeFit(Expr target, Type to, Loc loc) {
+    private void verifyTypeFit(Expr target, Type to, long loc) {
         verifyTypeFit(target, to, loc, false);
     }
-    private void verifyTypeFit(Expr target, Type to, Loc loc, boolean isCallArg) {
+    private void verifyTypeFit(Expr target, Type to, long loc, boolean isCallArg) {
         Type from = target.resolvedType;
         if (from == null) {
             return;
         }
         
-        if (!from.fit(to)) {
+        if (!fitCache.fit(from, to)) {
             boolean allowUnsafeCast = false;
             if (isCallArg && from.detail instanceof PointerInfo f && to.detail instanceof PointerInfo t) {
                 if (f.pointerAttr == Type.PointerAttr.raw && t.pointerAttr == Type.PointerAttr.ref) {
@@ -169,20 +272,20 @@ public class ErrorChecker extends CompilePass {
         //check constexpr
         if ((v.flags & FConst.ConstExpr) != 0) {
             if (v.initExpr == null) {
-                err("Must init constExpr", v.loc);
+                err("Must init constExpr", v.pos);
             }
             else if (v.initExpr instanceof Expr.LiteralExpr) {
                 if (!v.isStatic()) {
-                    err("The constExpr must be static", v.loc);
+                    err("The constExpr must be static", v.pos);
                 }
             }
             else {
-                err("Invalid constExpr flags", v.loc);
+                err("Invalid constExpr flags", v.pos);
             }
         }
         
         if (v.fieldType == null) {
-            err("Unkonw field type", v.loc);
+            err("Unkonw field type", v.pos);
         }
         
         if (v.initExpr != null && v.fieldType != null) {
@@ -190,7 +293,7 @@ public class ErrorChecker extends CompilePass {
                 //already checked in ExprTypeResolver
             }
             else {
-                verifyTypeFit(v.initExpr, v.fieldType, v.loc);
+                verifyTypeFit(v.initExpr, v.fieldType, v.pos);
             }
         }
         
@@ -201,7 +304,7 @@ public class ErrorChecker extends CompilePass {
                     //OK
                 }
                 else {
-                    err("Non-nullable pointer must inited", v.loc);
+                    err("Non-nullable pointer must inited", v.pos);
                 }
             }
         }
@@ -211,7 +314,7 @@ public class ErrorChecker extends CompilePass {
             boolean isStatic = v.isStatic();
             if (isStatic && !v.fieldType.isImmutable) {
                 if ((v.flags & FConst.Unsafe) == 0) {
-                    err("Static var must be const", v.loc);
+                    err("Static var must be const", v.pos);
                 }
             }
         }
@@ -226,7 +329,7 @@ public class ErrorChecker extends CompilePass {
                     //ok
                 }
                 else {
-                    err("Struct must be virtual or abstract", v.loc);
+                    err("Struct must be virtual or abstract", v.pos);
                 }
             }
             else if ((v.flags & FConst.Abstract) != 0) {
@@ -234,36 +337,36 @@ public class ErrorChecker extends CompilePass {
                     //ok
                 }
                 else {
-                    err("Struct must be abstract", v.loc);
+                    err("Struct must be abstract", v.pos);
                 }
-                if (v.code != null) {
-                    err("abstract method must no code", v.loc);
+                if (v.hasCode()) {
+                    err("abstract method must no code", v.pos);
                 }
             }
         }
         else if (v.parent instanceof TraitDef tt) {
             if ((v.flags & FConst.Abstract) != 0) {
-                if (v.code != null) {
-                    err("abstract method must no code", v.loc);
+                if (v.hasCode()) {
+                    err("abstract method must no code", v.pos);
                 }
             }
         }
         else {
             if ((v.flags & FConst.Abstract) != 0 ||
                     (v.flags & FConst.Virtual) != 0) {
-                err("Invalid abstract or virtual flags", v.loc);
+                err("Invalid abstract or virtual flags", v.pos);
             }
         }
         
-        if (v.code == null) {
+        if (!v.hasCode()) {
             if ((v.flags & (FConst.Abstract|FConst.Virtual|FConst.Extern| FConst.ExternC)) == 0) {
                 if (curStruct != null) {
                     if ((curStruct.flags & (FConst.Abstract|FConst.Virtual|FConst.Extern| FConst.ExternC)) == 0) {
-                        err("Miss fun code", v.loc);
+                        err("Miss fun code", v.pos);
                     }
                 }
                 else {
-                    err("Miss fun code", v.loc);
+                    err("Miss fun code", v.pos);
                 }
             }
         }
@@ -274,13 +377,13 @@ public class ErrorChecker extends CompilePass {
             for (ParamDef p : v.prototype.paramDefs) {
                 if (p.defualtValue != null) {
                     if (hasDefaultValue) {
-                        err("Default param must at last", p.loc);
+                        err("Default param must at last", p.pos);
                     }
                     hasDefaultValue = true;
                 }
                 if (p.paramType.isVarArgType()) {
                     if (hasVararg) {
-                        err("Vararg must at last", p.loc);
+                        err("Vararg must at last", p.pos);
                     }
                     hasVararg = true;
                 }
@@ -289,32 +392,47 @@ public class ErrorChecker extends CompilePass {
         
         if ((v.flags & FConst.Reflect) != 0 ) {
             if (v.generiParamDefs != null) {
-                err("Unsupport reflection for generic type", v.loc);
+                err("Unsupport reflection for generic type", v.pos);
             }
         }
         
         if ((v.flags & FConst.Readonly) != 0) {
-            err("Invalid flags", v.loc);
+            err("Invalid flags", v.pos);
         }
         
         if ((v.flags & FConst.ConstExpr) != 0) {
-            err("Unsupport constExpr for func", v.loc);
+            err("Unsupport constExpr for func", v.pos);
         }
         
         if ((v.flags & FConst.Operator) != 0) {
             verifyOperatorDef(v);
         }
         
+        //the lazy code of skeleton mode is not checked
         if (v.code != null) {
-            if ((v.flags & FConst.Unsafe) != 0) {
-                ++inUnsafe;
+            if (deferred != null) {
+                DeferredFunc d = new DeferredFunc();
+                d.func = v;
+                d.curStruct = curStruct;
+                d.curUnit = curUnit;
+                d.errorMark = log.errors.size();
+                deferred.add(d);
             }
-            this.visit(v.code);
-            if ((v.flags & FConst.Unsafe) != 0) {
-                --inUnsafe;
+            else {
+                checkBody(v);
             }
         }
     }
+    
+    private void checkBody(AstNode.FuncDef v) {
+        if ((v.flags & FConst.Unsafe) != 0) {
+            ++inUnsafe;
+        }
+        this.visit(v.code);
+        if ((v.flags & FConst.Unsafe) != 0) {
+            --inUnsafe;
+        }
+    }
 
     @Override
     public void visitTypeDef(AstNode.TypeDef v) {
@@ -331,20 +449,20 @@ public class ErrorChecker extends CompilePass {
                                 //ok
                             }
                             else {
-                                err("Base struct must be abstract or virutal", inh.loc);
+                                err("Base struct must be abstract or virutal", inh.pos);
                             }
                         }
                         else if (inh.id.resolvedDef instanceof TraitDef) {
                             //ok
                         }
                         else {
-                            err("Invalid inheritance", inh.loc);
+                            err("Invalid inheritance", inh.pos);
                         }
                     }
                     if (i > 0) {
                         if (inh.id.resolvedDef != null) {
                             if (!(inh.id.resolvedDef instanceof TraitDef)) {
-                                err("Unsupport multi struct inheritance", inh.loc);
+                                err("Unsupport multi struct inheritance", inh.pos);
                             }
                         }
                     }
@@ -354,7 +472,7 @@ public class ErrorChecker extends CompilePass {
             
             if ((v.flags & FConst.Reflect) != 0 ) {
                 if (sd.generiParamDefs != null) {
-                    err("Unsupport reflection for generic type", v.loc);
+                    err("Unsupport reflection for generic type", v.pos);
                 }
             }
         }
@@ -393,7 +511,7 @@ public class ErrorChecker extends CompilePass {
                     this.visit(s.expr);
                 }
                 else {
-                    //err("Unsupport for init stmt", fors.init.loc);
+                    //err("Unsupport for init stmt", fors.init.pos);
                 }
             }
             
@@ -433,77 +551,77 @@ public class ErrorChecker extends CompilePass {
         }
         else if (v instanceof Stmt.ReturnStmt rets) {
             if (curItBlock != null) {
-                err("Return from with block", v.loc);
+                err("Return from with block", v.pos);
             }
             if (rets.expr != null) {
                 this.visit(rets.expr);
             }
         }
         else {
-            err("Unkown stmt:"+v, v.loc);
+            err("Unkown stmt:"+v, v.pos);
         }
     }
     
     private void verifyBool(Expr condition) {
         if (condition.resolvedType != null && !condition.resolvedType.isBool()) {
-            err("Must be Bool", condition.loc);
+            err("Must be Bool", condition.pos);
         }
     }
     
     private void verifyInt(Expr e) {
         if (e.resolvedType != null && !e.resolvedType.isInt()) {
-            err("Must be Int type", e.loc);
+            err("Must be Int type", e.pos);
         }
     }
     
     private void verifyMetType(Expr e) {
         if (e.resolvedType != null && !e.resolvedType.isMetaType()) {
-            err("Type required", e.loc);
+            err("Type required", e.pos);
         }
     }
     
     private void verifyOperatorDef(AstNode.FuncDef f) {
         
         if (f.isStatic()) {
-            err("Can't be static", f.loc);
+            err("Can't be static", f.pos);
         }
         
         if (f.name.equals("plus") || f.name.equals("minus") || 
                 f.name.equals("mult") || f.name.equals("div")) {
             if (f.prototype.paramDefs.size() != 1) {
-                err("Must 1 params", f.loc);
+                err("Must 1 params", f.pos);
             }
             if (f.prototype.returnType.isVoid()) {
-                err("Must has return", f.loc);
+                err("Must has return", f.pos);
             }
         }
         else if (f.name.equals("compare")) {
             if (f.prototype.paramDefs.size() != 1) {
-                err("Must 1 params", f.loc);
+                err("Must 1 params", f.pos);
             }
             if (!f.prototype.returnType.isInt()) {
-                err("Must return Int", f.loc);
+                err("Must return Int", f.pos);
             }
         }
         else if (f.name.equals(Buildin.getOperator)) {
             if (f.prototype.paramDefs.size() != 1) {
-                err("Must 1 params", f.loc);
+                err("Must 1 params", f.pos);
             }
             if (f.prototype.returnType.isVoid()) {
-                err("Must has return", f.loc);
+                err("Must has return", f.pos);
             }
         }
         else if (f.name.equals(Buildin.setOperator)) {
             if (f.prototype.paramDefs.size() != 2) {
-                err("Must 1 params", f.loc);
+                err("Must 1 params", f.pos);
             }
         }
     }
     
-    private void verifyAccess(Expr target, AstNode resolvedSlotDef, Loc loc) {
+    private void verifyAccess(Expr target, AstNode resolvedSlotDef, long loc) {
 //        if (target.resolvedType.detail instanceof Type.PointerInfo pinfo) {
 //            if (pinfo.isNullable) {
-//                err("Maybe null", target.loc);
+//                err("Maybe null", target.pos);
 //            }
 //        }
         if (target.resolvedType == null) {
@@ -543,7 +661,7 @@ public class ErrorChecker extends CompilePass {
         if (target.resolvedType != null && target.resolvedType.detail instanceof Type.PointerInfo pt) {
             if (pt.pointerAttr == Type.PointerAttr.raw) {
                 if (inUnsafe == 0) {
-                    err("Expect unsafe block", target.loc);
+                    err("Expect unsafe block", target.pos);
                 }
             }
         }
@@ -552,12 +670,12 @@ public class ErrorChecker extends CompilePass {
         if (resolvedDef != null) {
             if (resolvedDef instanceof AstNode.FuncDef f) {
                 if ((f.flags & FConst.Unsafe) != 0) {
-                    err("Expect unsafe block", target.loc);
+                    err("Expect unsafe block", target.pos);
                 }
             }
             if (resolvedDef instanceof AstNode.FieldDef f) {
                 if ((f.flags & FConst.Unsafe) != 0) {
-                    err("Expect unsafe block", target.loc);
+                    err("Expect unsafe block", target.pos);
                 }
             }
         }
@@ -568,23 +686,23 @@ public class ErrorChecker extends CompilePass {
         if (v instanceof Expr.IdExpr e) {
             if (e.resolvedDef != null) {                
                 if (e.resolvedDef instanceof AstNode.FieldDef f) {
-                    checkProtection(f, f.parent, v.loc, e.inLeftSide);
+                    checkProtection(f, f.parent, v.pos, e.inLeftSide);
                 }
                 else if (e.resolvedDef instanceof AstNode.FuncDef f) {
-                    checkProtection(f, f.parent, v.loc, e.inLeftSide);
+                    checkProtection(f, f.parent, v.pos, e.inLeftSide);
                 }
             }
         }
         else if (v instanceof Expr.AccessExpr e) {
             this.visit(e.target);
             verifyUnsafe(e.target);
-            verifyAccess(e.target, e.resolvedDef, e.loc);
+            verifyAccess(e.target, e.resolvedDef, e.pos);
             if (e.resolvedDef != null) {                
                 if (e.resolvedDef instanceof AstNode.FieldDef f) {
-                    checkProtection(f, f.parent, v.loc, e.inLeftSide);
+                    checkProtection(f, f.parent, v.pos, e.inLeftSide);
                 }
                 else if (e.resolvedDef instanceof AstNode.FuncDef f) {
-                    checkProtection(f, f.parent, v.loc, e.inLeftSide);
+                    checkProtection(f, f.parent, v.pos, e.inLeftSide);
                 }
             }
         }
@@ -634,18 +752,18 @@ public class ErrorChecker extends CompilePass {
                         if (defNode != null) {
                             if (defNode instanceof AstNode.FieldDef f) {
                                 if (!f.isLocalVar && !f.fieldType.isNullablePointerType()) {
-                                    err("Can't move", e.loc);
+                                    err("Can't move", e.pos);
                                 }
                             }
                             else if (defNode instanceof AstNode.ParamDef f) {
                                 //ok
                             }
                             else {
-                                err("Invalid move", e.loc);
+                                err("Invalid move", e.pos);
                             }
                         }
                         else {
-                            err("Invalid move", e.loc);
+                            err("Invalid move", e.pos);
                         }
                         break;
                     default:
@@ -662,7 +780,7 @@ public class ErrorChecker extends CompilePass {
             //verifyInt(e.index);
             if (e.resolvedOperator != null) {
                 Type paramType = e.resolvedOperator.prototype.paramDefs.get(0).paramType;
-                verifyTypeFit(e.index, paramType, e.index.loc);
+                verifyTypeFit(e.index, paramType, e.index.pos);
             }
         }
         else if (v instanceof Expr.GenericInstance e) {
@@ -675,7 +793,7 @@ public class ErrorChecker extends CompilePass {
             verifyBool(e.condition);
             if (e.trueExpr.isResolved() && e.falseExpr.isResolved()) {
                 if (!e.trueExpr.resolvedType.equals(e.falseExpr.resolvedType)) {
-                    err("Type must equals", e.falseExpr.loc);
+                    err("Type must equals", e.falseExpr.pos);
                 }
             }
         }
@@ -692,15 +810,15 @@ public class ErrorChecker extends CompilePass {
             this.visit(e.operand);
             if (e.operand.resolvedType.detail instanceof Type.PointerInfo pinfo) {
                 if (!pinfo.isNullable) {
-                    err("Must nullable expr", v.loc);
+                    err("Must nullable expr", v.pos);
                 }
             }
             else {
-                err("Must nullable expr", v.loc);
+                err("Must nullable expr", v.pos);
             }
         }
         else {
-            err("Unkown expr:"+v, v.loc);
+            err("Unkown expr:"+v, v.pos);
         }
     }
 
@@ -713,7 +831,7 @@ public class ErrorChecker extends CompilePass {
 //                ok = true;
 //            }
 //            if (!ok) {
-//                err("Value type init block must in standalone assgin statement", e.loc);
+//                err("Value type init block must in standalone assgin statement", e.pos);
 //            }
 //        }
         
@@ -737,13 +855,12 @@ public class ErrorChecker extends CompilePass {
         AstNode.StructDef sd = e._structDef;
         if (sd != null) {            
             if (e._isType && (sd.flags & FConst.Abstract) != 0) {
-                err("It's abstract", e.target.loc);
+                err("It's abstract", e.target.pos);
             }
             
             if (e.block != null && !hasFuncCall) {
                 
-                HashMap<String,FieldDef> fields = new HashMap<>();
-                sd.getAllFields(fields);
+                HashMap<String,FieldDef> fields = sd.getAllFields();
                 
                 for (HashMap.Entry<String,FieldDef> entry : fields.entrySet()) {
                     AstNode.FieldDef f = entry.getValue();
@@ -772,13 +889,13 @@ public class ErrorChecker extends CompilePass {
                     }
                     
                     if (!found) {
-                        err("Field not init:"+f.name, e.loc);
+                        err("Field not init:"+f.name, e.pos);
                     }
                 }
 
 //                for (Expr.CallArg t : e.args) {
 //                    if (!fields.containsKey(t.name)) {
-//                        err("Field not found:"+t.name, t.loc);
+//                        err("Field not found:"+t.name, t.pos);
 //                    }
 //                }
             }
@@ -792,7 +909,7 @@ public class ErrorChecker extends CompilePass {
         }
         
         for (Expr t : e.args) {
-            this.verifyTypeFit(t, e.type.genericArgs.get(0), t.loc);
+            this.verifyTypeFit(t, e.type.genericArgs.get(0), t.pos);
         }
     }
     
@@ -809,34 +926,34 @@ public class ErrorChecker extends CompilePass {
                 
                 if (e.args != null) {
                     if (f.prototype.paramDefs == null) {
-                        err("Args error", e.loc);
+                        err("Args error", e.pos);
                     }
                     else {
                         int i = 0;
                         for (Expr.CallArg t : e.args) {
                             if (t.name != null) {
                                 if (!t.name.equals(f.prototype.paramDefs.get(i).name)) {
-                                    err("Arg name error", t.loc);
+                                    err("Arg name error", t.pos);
                                 }
                             }
-                            verifyTypeFit(t.argExpr, f.prototype.paramDefs.get(i).paramType, t.loc, true);
+                            verifyTypeFit(t.argExpr, f.prototype.paramDefs.get(i).paramType, t.pos, true);
                             ++i;
                         }
                         if (i < f.prototype.paramDefs.size()) {
                             if (f.prototype.paramDefs.get(i).defualtValue == null && !f.prototype.paramDefs.get(i).paramType.isVarArgType()) {
-                                err("Arg number error", e.loc);
+                                err("Arg number error", e.pos);
                             }
                         }
                     }
                 }
                 else if (f.prototype.paramDefs != null) {
                     if (f.prototype.paramDefs.get(0).defualtValue == null) {
-                        err("Arg number error", e.loc);
+                        err("Arg number error", e.pos);
                     }
                 }
             }
             else {
-                err("Call a non-function type:"+e.target, e.loc);
+                err("Call a non-function type:"+e.target, e.pos);
             }
         }
         else {
@@ -844,7 +961,7 @@ public class ErrorChecker extends CompilePass {
         }
     }
     
-    private boolean checkProtection(AstNode.TopLevelDef slot, AstNode parent, Loc loc, boolean isSet) {
+    private boolean checkProtection(AstNode.TopLevelDef slot, AstNode parent, long loc, boolean isSet) {
         int slotFlags = slot.flags;
         if (isSet && slot instanceof AstNode.FieldDef f) {
             if ((f.flags & FConst.Readonly) != 0) {
@@ -895,7 +1012,7 @@ public class ErrorChecker extends CompilePass {
                     Type targetType = ((TypeExpr)e.rhs).type;
                     if (targetType.detail instanceof Type.PointerInfo pinfo) {
                         if (pinfo.isNullable) {
-                            err("Must non-nullable", e.rhs.loc);
+                            err("Must non-nullable", e.rhs.pos);
                         }
                     }
                 }
@@ -915,7 +1032,7 @@ public class ErrorChecker extends CompilePass {
                     if ((e.lhs.resolvedType.isFloat() && e.rhs.resolvedType.isInt()) ||
                             (e.lhs.resolvedType.isInt() && e.rhs.resolvedType.isFloat())) {
                         if (curt == Token.TokenKind.eq || curt == Token.TokenKind.notEq || curt == Token.TokenKind.same || curt == Token.TokenKind.notSame) {
-                            err("Cant compare different type", e.loc);
+                            err("Cant compare different type", e.pos);
                         }
                     }
                     else if (e.lhs.resolvedType.isPointerType() && e.rhs.resolvedType.isPointerType()) {
@@ -924,16 +1041,16 @@ public class ErrorChecker extends CompilePass {
                         }
                         else if (e.lhs.resolvedType.detail instanceof Type.PointerInfo p1 && e.rhs.resolvedType.detail instanceof Type.PointerInfo p2) {
                             if (p1.pointerAttr != p2.pointerAttr) {
-                                err("Cant compare different type", e.loc);
+                                err("Cant compare different type", e.pos);
                             }
                         }
                     }
                     else if (e.resolvedOperator != null) {
                         Type paramType = e.resolvedOperator.prototype.paramDefs.get(0).paramType;
-                        verifyTypeFit(e.rhs, paramType, e.rhs.loc, true);
+                        verifyTypeFit(e.rhs, paramType, e.rhs.pos, true);
                     }
                     else if (!e.lhs.resolvedType.equals(e.rhs.resolvedType)) {
-                        err("Cant compare different type", e.loc);
+                        err("Cant compare different type", e.pos);
                     }
                     break;
                 case doubleAmp:
@@ -956,7 +1073,7 @@ public class ErrorChecker extends CompilePass {
                 case slash:
                     if (e.resolvedOperator != null) {
                         Type paramType = e.resolvedOperator.prototype.paramDefs.get(0).paramType;
-                        verifyTypeFit(e.rhs, paramType, e.rhs.loc, true);
+                        verifyTypeFit(e.rhs, paramType, e.rhs.pos, true);
                     }
                     verifyUnsafe(e.lhs);
                     break;
@@ -980,7 +1097,7 @@ public class ErrorChecker extends CompilePass {
                     else if (e.lhs instanceof Expr.IndexExpr indexExpr) {
                         if (indexExpr.resolvedOperator != null && indexExpr.resolvedOperator.prototype.paramDefs.size() > 1) {
                             Type paramType = indexExpr.resolvedOperator.prototype.paramDefs.get(1).paramType;
-                            verifyTypeFit(e.rhs, paramType, e.rhs.loc);
+                            verifyTypeFit(e.rhs, paramType, e.rhs.pos);
                         }
                         assignable = true;
                         return;
@@ -993,15 +1110,15 @@ public class ErrorChecker extends CompilePass {
                     
                     if (assignable) {
                         if (e.resolvedType != null && e.resolvedType.isImmutable) {
-                            err("Const error", e.loc);
+                            err("Const error", e.pos);
                         }
                         
                         if (curt == Token.TokenKind.assign) {
-                            verifyTypeFit(e.rhs, e.lhs.resolvedType, e.loc);
+                            verifyTypeFit(e.rhs, e.lhs.resolvedType, e.pos);
                             if (e.lhs instanceof IdExpr lr && e.rhs instanceof IdExpr ri) {
                                 if (lr.namespace == ri.namespace) {
                                     if (lr.name.equals(ri.name)) {
-                                        err("Self assign", e.loc);
+                                        err("Self assign", e.pos);
                                     }
                                 }
                             }
@@ -1016,16 +1133,16 @@ public class ErrorChecker extends CompilePass {
                         else {
                             if (e.lhs.resolvedType.isNum() && e.lhs.resolvedType.isRawPointerType()) {
                                 if (!e.lhs.resolvedType.equals(e.rhs.resolvedType)) {
-                                    err("Type mismatch", e.loc);
+                                    err("Type mismatch", e.pos);
                                 }
                             }
                             else {
-                                err("Unsupport operator", e.loc);
+                                err("Unsupport operator", e.pos);
                             }
                         }
                     }
                     else {
-                        err("Not assignable", e.lhs.loc);
+                        err("Not assignable", e.lhs.pos);
                     }
                     break;
                 default:
@@ -8,8 +8,13 @@ import java.util.ArrayDeque;
 import sric.compiler.ast.Scope;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import sric.compiler.CompilePass;
 import sric.compiler.CompilerLog;
+import sric.compiler.CompilerStats;
 import sric.compiler.ast.AstNode;
 import sric.compiler.ast.AstNode.*;
 import sric.compiler.ast.Expr.*;
@@ -24,8 +29,8 @@ import sric.compiler.ast.Type.MetaTypeInfo;
  */
 public class ExprTypeResolver extends TypeResolver {
     
-    //for func param or for init
-    private Scope preScope = null;
+    //the next block is a func body, its locals are in the level of params
+    private boolean funcBody = false;
     
     private ArrayDeque<AstNode> funcs = new ArrayDeque<AstNode>();
     private ArrayDeque<AstNode> loops = new ArrayDeque<AstNode>();
@@ -37,17 +42,125 @@ public class ExprTypeResolver extends TypeResolver {
     public ExprTypeResolver(CompilerLog log, SModule module) {
         super(log, module);
         this.log = log;
+        this.locals = new LocalTable();
     }
     
     public void run() {
         module.walkChildren(this);
     }
     
-    private Scope lastScope() {
-        if (preScope != null) {
-            return preScope;
+    /**
+     * Resolve the func bodies of each file on a pool of parallelism threads.
+     * The fields and func prototypes are resolved first in the file order, so the inferred types are fixed
+     * before any body is resolved. The errors are merged in the same order as run().
+     */
+    public void run(int parallelism) {
+        if (parallelism <= 1 || module.fileUnits.size() <= 1) {
+            run();
+            return;
+        }
+        
+        ArrayList<ExprTypeResolver> units = new ArrayList<ExprTypeResolver>(module.fileUnits.size());
+        for (FileUnit unit : module.fileUnits) {
+            ExprTypeResolver r = new ExprTypeResolver(new CompilerLog(), module);
+            r.generics = module.generics.fork();
+            r.deferred = new ArrayList<DeferredFunc>();
+            r.visit(unit);
+            units.add(r);
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, units.size()));
+        try {
+            ArrayList<Future<long[]>> futures = new ArrayList<Future<long[]>>(units.size());
+            for (ExprTypeResolver r : units) {
+                futures.add(executor.submit(() -> r.resolveDeferred()));
+            }
+
+            for (int i = 0; i < units.size(); ++i) {
+                long[] counts = waitFor(futures.get(i));
+                if (CompilerStats.enabled()) {
+                    CompilerStats.add(counts);
+                }
+                units.get(i).mergeTo(log, module.generics);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    static <T> T waitFor(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException e) {
+                throw e;
+            }
+            if (cause instanceof Error e) {
+                throw e;
+            }
+            throw new RuntimeException(cause);
         }
-        return scopes.get(scopes.size()-1);
+    }
+    
+    private static class DeferredFunc {
+        FuncDef func;
+        ArrayList<Scope> scopes;
+        StructDef curStruct;
+        //errors of the declaration pass before the body
+        int errorMark;
+        //range of the body errors
+        int errorStart;
+        int errorEnd;
+    }
+    
+    //the func bodies resolved later on other thread, null if not deferred
+    private ArrayList<DeferredFunc> deferred = null;
+    private CompilerLog declLog = null;
+    
+    /**
+     * return the counters of this thread made by the bodies
+     */
+    private long[] resolveDeferred() {
+        long[] begin = CompilerStats.enabled() ? CompilerStats.snapshot() : null;
+        declLog = log;
+        log = new CompilerLog();
+        for (DeferredFunc d : deferred) {
+            scopes = d.scopes;
+            curStruct = d.curStruct;
+            d.errorStart = log.errors.size();
+            resolveBody(d.func);
+            d.errorEnd = log.errors.size();
+        }
+        curStruct = null;
+        if (begin == null) {
+            return null;
+        }
+        long[] counts = CompilerStats.snapshot();
+        for (int i = 0; i < counts.length; ++i) {
+            counts[i] -= begin[i];
+        }
+        return counts;
+    }
+    
+    private void mergeTo(CompilerLog out, GenericTable outGenerics) {
+        int k = 0;
+        for (DeferredFunc d : deferred) {
+            while (k < d.errorMark) {
+                out.errors.add(declLog.errors.get(k++));
+            }
+            for (int i = d.errorStart; i < d.errorEnd; ++i) {
+                out.errors.add(log.errors.get(i));
+            }
+        }
+        while (k < declLog.errors.size()) {
+            out.errors.add(declLog.errors.get(k++));
+        }
+        outGenerics.addAll(generics);
     }
     
     @Override
@@ -57,17 +170,17 @@ public class ExprTypeResolver extends TypeResolver {
                 AstNode func = this.funcs.peek();
                 if (func instanceof FuncDef f) {
                     if (curItBlock == null) {
-                        err("Invalid '.' call", idExpr.loc);
+                        err("Invalid '.' call", idExpr.pos);
                         return;
                     }
-                    //Type self = new Type(curItBlock.loc, curItBlock._structDef.name);
+                    //Type self = new Type(curItBlock.pos, curItBlock._structDef.name);
                     //self.id.resolvedDef = curItBlock._structDef;
 
                     idExpr.resolvedType = curItBlock.resolvedType;
                     return;
                 }
                 else {
-                    err("Use '.' out of struct", idExpr.loc);
+                    err("Use '.' out of struct", idExpr.pos);
                 }
                 return;
             }
@@ -77,35 +190,35 @@ public class ExprTypeResolver extends TypeResolver {
                 AstNode func = this.funcs.peek();
                 if (func instanceof FuncDef f) {
 //                    if ((f.flags & FConst.Static) != 0) {
-//                        err("No this in static", idExpr.loc);
+//                        err("No this in static", idExpr.pos);
 //                    }
                     if (idExpr.name.equals(TokenKind.superKeyword.symbol)) {
                         if (curStruct == null) {
-                            err("Use super out of struct", idExpr.loc);
+                            err("Use super out of struct", idExpr.pos);
                             return;
                         }
                         if (curStruct.inheritances == null) {
-                            err("Invalid super", idExpr.loc);
+                            err("Invalid super", idExpr.pos);
                             return;
                         }
                         else {
-                            idExpr.resolvedType = Type.pointerType(idExpr.loc, curStruct.inheritances.get(0), Type.PointerAttr.raw, false);
+                            idExpr.resolvedType = Type.pointerType(idExpr.pos, curStruct.inheritances.get(0), Type.PointerAttr.raw, false);
                             idExpr.resolvedType.isImmutable = (f.flags & FConst.Mutable) == 0;
                         }
                     }
                     else if (idExpr.name.equals(TokenKind.thisKeyword.symbol)) {
                         if (curStruct == null) {
-                            err("Use this out of struct", idExpr.loc);
+                            err("Use this out of struct", idExpr.pos);
                             return;
                         }
-                        Type self = new Type(curStruct.loc, curStruct.name);
+                        Type self = new Type(curStruct.pos, curStruct.name);
                         self.id.resolvedDef = curStruct;
-                        idExpr.resolvedType = Type.pointerType(idExpr.loc, self, Type.PointerAttr.raw, false);
+                        idExpr.resolvedType = Type.pointerType(idExpr.pos, self, Type.PointerAttr.raw, false);
                         idExpr.resolvedType.isImmutable = (f.flags & FConst.Mutable) == 0;
                     }
                 }
                 else {
-                    err("Use this/super out of struct", idExpr.loc);
+                    err("Use this/super out of struct", idExpr.pos);
                 }
                 
                 return;
@@ -148,7 +261,7 @@ public class ExprTypeResolver extends TypeResolver {
 
         if (v.fieldType == null) {
             if (v.initExpr == null) {
-                err("Miss var type", v.loc);
+                err("Miss var type", v.pos);
             }
             else {
                 //Type inference
@@ -157,19 +270,19 @@ public class ExprTypeResolver extends TypeResolver {
         }
         
         if (v.isLocalVar) {
-            lastScope().put(v.name, v);
+            locals.declare(v.name, v);
         }
         
     }
     
-    private void visitFuncPrototype(AstNode.FuncPrototype prototype, Scope scope) {
+    private void visitFuncPrototype(AstNode.FuncPrototype prototype) {
         if (prototype != null && prototype.paramDefs != null) {
             for (AstNode.ParamDef p : prototype.paramDefs) {
                 this.resolveType(p.paramType, false);
                 if (p.defualtValue != null) {
                     this.visit(p.defualtValue);
                 }
-                scope.put(p.name, p);
+                locals.declare(p.name, p);
             }
         }
         
@@ -182,6 +295,7 @@ public class ExprTypeResolver extends TypeResolver {
 
     @Override
     public void visitFunc(FuncDef v) {
+        boolean defer = deferred != null && funcs.isEmpty();
         this.funcs.push(v);
         
         if (v.generiParamDefs != null) {
@@ -191,13 +305,54 @@ public class ExprTypeResolver extends TypeResolver {
             }
         }
         
-        preScope = new Scope();
-
-        visitFuncPrototype(v.prototype, preScope);
+        locals.enter();
+        funcBody = true;
+        visitFuncPrototype(v.prototype);
+        //the lazy code of skeleton mode is not resolved
         if (v.code != null) {
-            this.visit(v.code);
+            if (defer) {
+                DeferredFunc d = new DeferredFunc();
+                d.func = v;
+                d.scopes = new ArrayList<Scope>(scopes.subList(0, v.generiParamDefs != null ? scopes.size()-1 : scopes.size()));
+                d.curStruct = curStruct;
+                d.errorMark = log.errors.size();
+                deferred.add(d);
+            }
+            else {
+                this.visit(v.code);
+            }
         }
-        preScope = null;
+        funcBody = false;
+        locals.exit();
+        
+        if (v.generiParamDefs != null) {
+            this.popScope();
+        }
+        
+        funcs.pop();
+    }
+    
+    //the body of a deferred func, the prototype is resolved already
+    private void resolveBody(FuncDef v) {
+        this.funcs.push(v);
+        
+        if (v.generiParamDefs != null) {
+            Scope scope = this.pushScope();
+            for (GenericParamDef gp : v.generiParamDefs) {
+                scope.put(gp.name, gp);
+            }
+        }
+        
+        locals.enter();
+        if (v.prototype != null && v.prototype.paramDefs != null) {
+            for (AstNode.ParamDef p : v.prototype.paramDefs) {
+                locals.declare(p.name, p);
+            }
+        }
+        funcBody = true;
+        this.visit(v.code);
+        funcBody = false;
+        locals.exit();
         
         if (v.generiParamDefs != null) {
             this.popScope();
@@ -218,7 +373,7 @@ public class ExprTypeResolver extends TypeResolver {
                 
                 for (FieldDef f : sd.fieldDefs) {
                     if (inhScopes.contains(f.name)) {
-                        err("Field name is already exsits"+f.name, f.loc);
+                        err("Field name is already exsits"+f.name, f.pos);
                     }
                 }
                 
@@ -227,7 +382,7 @@ public class ExprTypeResolver extends TypeResolver {
                         continue;
                     }
                     if (inhScopes.contains(f.name)) {
-                        err("Func name is already exsits"+f.name, f.loc);
+                        err("Func name is already exsits"+f.name, f.pos);
                     }
                 }
             }
@@ -244,7 +399,7 @@ public class ExprTypeResolver extends TypeResolver {
                         }
                     }
                     if (!ok) {
-                        err("Enum value must int literal", v.loc);
+                        err("Enum value must int literal", v.pos);
                     }
                 }
                 f._enumValue = enumValue;
@@ -264,15 +419,15 @@ public class ExprTypeResolver extends TypeResolver {
     @Override
     public void visitStmt(Stmt v) {
         if (v instanceof Block bs) {
-            if (preScope != null) {
-                this.scopes.add(preScope);
-                preScope = null;
-            }
-            else {
-                pushScope();
+            boolean isBody = funcBody;
+            funcBody = false;
+            if (!isBody) {
+                locals.enter();
             }
             bs.walkChildren(this);
-            popScope();
+            if (!isBody) {
+                locals.exit();
+            }
         }
         else if (v instanceof Stmt.IfStmt ifs) {
             this.visit(ifs.condition);
@@ -293,7 +448,7 @@ public class ExprTypeResolver extends TypeResolver {
         else if (v instanceof Stmt.ForStmt fors) {
             this.loops.push(v);
             if (fors.init != null) {
-                pushScope();
+                locals.enter();
                 
                 if (fors.init instanceof Stmt.LocalDefStmt varDef) {
                     this.visit(varDef.fieldDef);
@@ -302,7 +457,7 @@ public class ExprTypeResolver extends TypeResolver {
                     this.visit(s.expr);
                 }
                 else {
-                    err("Unsupport for init stmt", fors.init.loc);
+                    err("Unsupport for init stmt", fors.init.pos);
                 }
             }
             
@@ -316,7 +471,7 @@ public class ExprTypeResolver extends TypeResolver {
             this.visit(fors.block);
             
             if (fors.init != null) {
-                this.popScope();
+                locals.exit();
             }
             this.loops.pop();
         }
@@ -337,7 +492,7 @@ public class ExprTypeResolver extends TypeResolver {
         }
         else if (v instanceof Stmt.JumpStmt jumps) {
             if (this.loops.size() == 0) {
-                err("break, continue outside of loop", v.loc);
+                err("break, continue outside of loop", v.pos);
             }
         }
         else if (v instanceof Stmt.UnsafeBlock bs) {
@@ -357,13 +512,13 @@ public class ExprTypeResolver extends TypeResolver {
                         prototype = f.prototype;
                     }
                     if (!rets.expr.resolvedType.fit(prototype.returnType)) {
-                        err("Return type not fit function", rets.expr.loc);
+                        err("Return type not fit function", rets.expr.pos);
                     }
                 }
             }
         }
         else {
-            err("Unkown stmt:"+v, v.loc);
+            err("Unkown stmt:"+v, v.pos);
         }
     }
     
@@ -375,12 +530,12 @@ public class ExprTypeResolver extends TypeResolver {
             return Type.funcType(f);
         }
         else if (resolvedDef instanceof TypeAlias f) {
-            return Type.metaType(f.loc, f.type);
+            return Type.metaType(f.pos, f.type);
         }
         else if (resolvedDef instanceof TypeDef f) {
-            Type type = new Type(f.loc, f.name);
+            Type type = new Type(f.pos, f.name);
             type.id.resolvedDef = f;
-            return Type.metaType(f.loc, type);
+            return Type.metaType(f.pos, type);
         }
         else if (resolvedDef instanceof ParamDef p) {
             return p.paramType;
@@ -388,7 +543,7 @@ public class ExprTypeResolver extends TypeResolver {
         return null;
     }
     
-    private AstNode resoveOnTarget(Expr target, String name, Loc loc, boolean autoDeref) {
+    private AstNode resoveOnTarget(Expr target, String name, long loc, boolean autoDeref) {
         if (!target.isResolved()) {
             return null;
         }
@@ -437,34 +592,34 @@ public class ExprTypeResolver extends TypeResolver {
         }
         else if (v instanceof Expr.AccessExpr e) {
             this.visit(e.target);
-            e.resolvedDef = resoveOnTarget(e.target, e.name, e.loc, true);
+            e.resolvedDef = resoveOnTarget(e.target, e.name, e.pos, true);
             if (e.resolvedDef != null) {
                 e.resolvedType = getSlotType(e.resolvedDef);
             }
             else {
                 if (e.target.resolvedType != null && e.target.resolvedType.isMetaType()) {
-                    err("Can't call method on Type", e.loc);
+                    err("Can't call method on Type", e.pos);
                 }
                 else {
-                    err("Unknow access:"+e.name, e.loc);
+                    err("Unknow access:"+e.name, e.pos);
                 }
             }
         }
         else if (v instanceof Expr.LiteralExpr e) {
             if (e.value == null) {
-                v.resolvedType = Type.nullType(e.loc);
+                v.resolvedType = Type.nullType(e.pos);
             }
             else if (e.value instanceof Long) {
-                v.resolvedType = Type.intType(e.loc);
+                v.resolvedType = TypeTable.intType();
             }
             else if (e.value instanceof Double) {
-                v.resolvedType = Type.floatType(e.loc);
+                v.resolvedType = TypeTable.floatType();
             }
             else if (e.value instanceof Boolean) {
-                v.resolvedType = Type.boolType(e.loc);
+                v.resolvedType = TypeTable.boolType();
             }
             else if (e.value instanceof String) {
-                v.resolvedType = Type.strType(e.loc);
+                v.resolvedType = Type.strType(e.pos);
             }
         }
         else if (v instanceof Expr.BinaryExpr e) {
@@ -494,7 +649,7 @@ public class ExprTypeResolver extends TypeResolver {
                     //*
                     case star:
                         if (!e.operand.resolvedType.isPointerType()) {
-                            err("Invalid * for non pointer", e.loc);
+                            err("Invalid * for non pointer", e.pos);
                         }
                         else {
                             e.resolvedType = e.operand.resolvedType.genericArgs.get(0);
@@ -508,13 +663,13 @@ public class ExprTypeResolver extends TypeResolver {
                     //&
                     case amp:
                         if (e.operand instanceof Expr.LiteralExpr lexpr) {
-                            err("Invalid & for literal", e.loc);
+                            err("Invalid & for literal", e.pos);
                         }
                         Type elmentType = e.operand.resolvedType;
                         if (e.operand.resolvedType.isArray()) {
                             elmentType = e.operand.resolvedType.genericArgs.get(0);
                         }
-                        e.resolvedType = Type.pointerType(e.loc, elmentType, Type.PointerAttr.raw, false);
+                        e.resolvedType = Type.pointerType(e.pos, elmentType, Type.PointerAttr.raw, false);
                         break;
                     case awaitKeyword:
                         e.resolvedType = e.operand.resolvedType;
@@ -529,7 +684,7 @@ public class ExprTypeResolver extends TypeResolver {
         }
         else if (v instanceof Expr.TypeExpr e) {
             this.resolveType(e.type, true);
-            e.resolvedType = Type.metaType(e.loc, e.type);
+            e.resolvedType = Type.metaType(e.pos, e.type);
         }
         else if (v instanceof Expr.IndexExpr e) {
             this.visit(e.target);
@@ -544,24 +699,24 @@ public class ExprTypeResolver extends TypeResolver {
                         e.resolvedType = e.target.resolvedType.genericArgs.get(0);
                     }
                     else {
-                        err("Unknow operator []", e.loc);
+                        err("Unknow operator []", e.pos);
                     }
                 }
                 else {
                     String operatorName = e.inLeftSide ? Buildin.setOperator : Buildin.getOperator;
-                    AstNode rdef = resoveOnTarget(e.target, operatorName, e.loc, false);
+                    AstNode rdef = resoveOnTarget(e.target, operatorName, e.pos, false);
                     if (rdef == null) {
-                        err("Unknow operator []", e.loc);
+                        err("Unknow operator []", e.pos);
                     }
                     else if (rdef instanceof FuncDef f) {
                         if ((f.flags & FConst.Operator) == 0) {
-                            err("Expected operator", e.loc);
+                            err("Expected operator", e.pos);
                         }
                         e.resolvedOperator = f;
                         e.resolvedType = f.prototype.returnType;
                     }
                     else {
-                        err("Invalid operator []", e.loc);
+                        err("Invalid operator []", e.pos);
                     }
                 }
             }
@@ -589,12 +744,13 @@ public class ExprTypeResolver extends TypeResolver {
 //                this.visit(t);
 //            }
             
-            preScope = new Scope();
-            
-            visitFuncPrototype(e.prototype, preScope);
+            locals.enter();
+            funcBody = true;
+            visitFuncPrototype(e.prototype);
             this.visit(e.code);
             
-            preScope = null;
+            funcBody = false;
+            locals.exit();
             this.funcs.pop();
             
             e.resolvedType = Type.funcType(e);
@@ -611,16 +767,16 @@ public class ExprTypeResolver extends TypeResolver {
                 }
             }
             if (!ok) {
-                err("Invalid non-nullable", e.operand.loc);
+                err("Invalid non-nullable", e.operand.pos);
             }
         }
         else {
-            err("Unkown expr:"+v, v.loc);
+            err("Unkown expr:"+v, v.pos);
             return;
         }
         
         if (v.resolvedType == null) {
-            err("Resolved fail", v.loc);
+            err("Resolved fail", v.pos);
         }
     }
     
@@ -707,13 +863,13 @@ public class ExprTypeResolver extends TypeResolver {
         
         if (e.type.detail instanceof Type.ArrayInfo at) {
             at.sizeExpr = new LiteralExpr(Long.valueOf(e.args.size()));
-            at.sizeExpr.loc = e.loc;
+            at.sizeExpr.pos = e.pos;
             //at.size = e.args.size();
 
             e.resolvedType = e.type;
         }
         else {
-            err("Invalid array", e.loc);
+            err("Invalid array", e.pos);
             return;
         }
         
@@ -738,7 +894,7 @@ public class ExprTypeResolver extends TypeResolver {
             idExpr = (IdExpr)e.target;
         }
         else {
-            err("Unexpected generic args", e.loc);
+            err("Unexpected generic args", e.pos);
             return;
         }
         
@@ -747,7 +903,7 @@ public class ExprTypeResolver extends TypeResolver {
             if (idExpr.resolvedDef instanceof StructDef sd) {
                 if (sd.generiParamDefs != null) {
                     if (e.genericArgs.size() == sd.generiParamDefs.size()) {
-                        e.resolvedDef = sd.parameterize(e.genericArgs);
+                        e.resolvedDef = generics.parameterize(sd, e.genericArgs);
                         e.resolvedType = getSlotType(e.resolvedDef);
                         genericOk = true;
                     }
@@ -756,24 +912,24 @@ public class ExprTypeResolver extends TypeResolver {
             else if (idExpr.resolvedDef instanceof FuncDef sd) {
                 if (sd.generiParamDefs != null) {
                     if (e.genericArgs.size() == sd.generiParamDefs.size()) {
-                        e.resolvedDef = sd.parameterize(e.genericArgs);
+                        e.resolvedDef = generics.parameterize(sd, e.genericArgs);
                         e.resolvedType = getSlotType(e.resolvedDef);
                         genericOk = true;
                     }
                 }
             }
             if (!genericOk) {
-                err("Generic args size not match", e.loc);
+                err("Generic args size not match", e.pos);
             }
         }
         else if (idExpr.resolvedDef instanceof StructDef sd) {
             if (sd.generiParamDefs != null) {
-                err("Miss generic args", idExpr.loc);
+                err("Miss generic args", idExpr.pos);
             }
         }
         else if (idExpr.resolvedDef instanceof FuncDef sd) {
             if (sd.generiParamDefs != null) {
-                err("Miss generic args", idExpr.loc);
+                err("Miss generic args", idExpr.pos);
             }
         }
     }
@@ -791,7 +947,7 @@ public class ExprTypeResolver extends TypeResolver {
                 e.resolvedType = f.prototype.returnType;
             }
             else {
-                err("Invalid call target", e.loc);
+                err("Invalid call target", e.pos);
             }
         }
     }
@@ -805,7 +961,7 @@ public class ExprTypeResolver extends TypeResolver {
             TokenKind curt = e.opToken;
             switch (curt) {
                 case isKeyword:
-                    e.resolvedType = Type.boolType(e.loc);
+                    e.resolvedType = TypeTable.boolType();
                     break;
                 case asKeyword:
                     if (e.rhs instanceof TypeExpr te) {
@@ -813,15 +969,15 @@ public class ExprTypeResolver extends TypeResolver {
                         Type to = te.type;
                         if (from.detail instanceof Type.PointerInfo p1 && to.detail instanceof Type.PointerInfo p2) {
                             if (p1.pointerAttr != Type.PointerAttr.raw && p2.pointerAttr == Type.PointerAttr.raw) {
-                                e.lhs.implicitTypeConvertTo = Type.pointerType(e.lhs.loc, from.genericArgs.get(0), p2.pointerAttr, p2.isNullable);
+                                e.lhs.implicitTypeConvertTo = Type.pointerType(e.lhs.pos, from.genericArgs.get(0), p2.pointerAttr, p2.isNullable);
                                 e.lhs.isPointerConvert = true;
                             }
                             else if (p1.pointerAttr != Type.PointerAttr.ref && p2.pointerAttr == Type.PointerAttr.ref) {
-                                e.lhs.implicitTypeConvertTo = Type.pointerType(e.lhs.loc, from.genericArgs.get(0), p2.pointerAttr, p2.isNullable);
+                                e.lhs.implicitTypeConvertTo = Type.pointerType(e.lhs.pos, from.genericArgs.get(0), p2.pointerAttr, p2.isNullable);
                                 e.lhs.isPointerConvert = true;
                             }
                             else if (p1.pointerAttr != p2.pointerAttr) {
-                                err("Unknow convert", e.loc);
+                                err("Unknow convert", e.pos);
                             }
                         }
                         e.resolvedType = to;
@@ -843,22 +999,22 @@ public class ExprTypeResolver extends TypeResolver {
                     }
                     else {
                         String operatorName = Buildin.operatorToName(TokenKind.cmp);
-                        AstNode rdef = resoveOnTarget(e.lhs, operatorName, e.loc, false);
+                        AstNode rdef = resoveOnTarget(e.lhs, operatorName, e.pos, false);
                         if (rdef == null) {
-                            err("Unknow operator:"+curt, e.loc);
+                            err("Unknow operator:"+curt, e.pos);
                         }
                         else if (rdef instanceof FuncDef f) {
                             e.resolvedOperator = f;
                         }
                         else {
-                            err("Invalid operator:"+curt, e.loc);
+                            err("Invalid operator:"+curt, e.pos);
                         }
                     }
-                    e.resolvedType = Type.boolType(e.loc);
+                    e.resolvedType = TypeTable.boolType();
                     break;
                 case doubleAmp:
                 case doublePipe:
-                    e.resolvedType = Type.boolType(e.loc);
+                    e.resolvedType = TypeTable.boolType();
                     break;
                 case leftShift:
                 case rightShift:
@@ -866,7 +1022,7 @@ public class ExprTypeResolver extends TypeResolver {
                 case caret:
                 case amp:
                 case percent:
-                    e.resolvedType = Type.intType(e.loc);
+                    e.resolvedType = TypeTable.intType();
                     break;
                 case plus:
                 case minus:
@@ -880,7 +1036,7 @@ public class ExprTypeResolver extends TypeResolver {
                     }
                     else if ((e.lhs.resolvedType.isFloat() && e.rhs.resolvedType.isInt()) ||
                             (e.lhs.resolvedType.isInt() && e.rhs.resolvedType.isFloat())) {
-                        e.resolvedType = Type.floatType(e.loc);
+                        e.resolvedType = TypeTable.floatType();
                     }
                     //pointer arithmetic: +,-
                     else if ((curt == plus || curt == minus) && e.lhs.resolvedType.isRawPointerType() && e.rhs.resolvedType.isInt()) {
@@ -901,7 +1057,7 @@ public class ExprTypeResolver extends TypeResolver {
                     }
                     else {
                         if (curt != TokenKind.assign) {
-                            err("Unsupport operator:"+curt, e.loc);
+                            err("Unsupport operator:"+curt, e.pos);
                         }
                     }
                     e.resolvedType = e.lhs.resolvedType;
@@ -916,21 +1072,21 @@ public class ExprTypeResolver extends TypeResolver {
     private void resolveMathOperator(TokenKind curt, Expr.BinaryExpr e) {
         String operatorName = Buildin.operatorToName(curt);
         if (operatorName == null) {
-            err("Unknow operator:"+curt, e.loc);
+            err("Unknow operator:"+curt, e.pos);
         }
-        AstNode rdef = resoveOnTarget(e.lhs, operatorName, e.loc, false);
+        AstNode rdef = resoveOnTarget(e.lhs, operatorName, e.pos, false);
         if (rdef == null) {
-            err("Unknow operator:"+curt, e.loc);
+            err("Unknow operator:"+curt, e.pos);
         }
         else if (rdef instanceof FuncDef f) {
             if ((f.flags & FConst.Operator) == 0) {
-                err("Expected operator", e.loc);
+                err("Expected operator", e.pos);
             }
             e.resolvedType = f.prototype.returnType;
             e.resolvedOperator = f;
         }
         else {
-            err("Invalid operator:"+curt, e.loc);
+            err("Invalid operator:"+curt, e.pos);
         }
     }
 
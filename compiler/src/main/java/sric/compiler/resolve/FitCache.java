@@ -0,0 +1,64 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler.resolve;
+
+import java.util.concurrent.ConcurrentHashMap;
+import sric.compiler.CompilerStats;
+import sric.compiler.ast.Type;
+
+/**
+ * Memoized Type.fit of a compilation, keyed by the identity of the type pair.
+ * The resolved types are shared by the expressions of a var, param or literal,
+ * so the same pair is checked at many call sites.
+ * Only used after ExprTypeResolver, the types are not modified any more.
+ *
+ * @author yangjiandong
+ */
+public class FitCache {
+
+    private static final class Key {
+        final Type from;
+        final Type to;
+
+        Key(Type from, Type to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(from) * 31 + System.identityHashCode(to);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key k && k.from == from && k.to == to;
+        }
+    }
+
+    private final ConcurrentHashMap<Key, Boolean> cache = new ConcurrentHashMap<>();
+
+    public boolean fit(Type from, Type to) {
+        Key key = new Key(from, to);
+        Boolean res = cache.get(key);
+        if (res != null) {
+            if (CompilerStats.enabled()) {
+                CompilerStats.count(CompilerStats.FIT_HIT);
+            }
+            return res;
+        }
+
+        boolean fit = from.fit(to);
+        cache.put(key, fit);
+        if (CompilerStats.enabled()) {
+            CompilerStats.count(CompilerStats.FIT_MISS);
+        }
+        return fit;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,151 @@
+//
+// Copyright (c) 2024, chunquedong
+// Licensed under the Academic Free License version 3.0
+//
+package sric.compiler.resolve;
+
+import java.util.Arrays;
+import sric.compiler.CompilerLog;
+import sric.compiler.ast.AstNode;
+
+/**
+ * Local vars and params of func bodies.
+ * Each def gets a slot in the order of declaration and each name maps to its innermost slot,
+ * so a name is found by one lookup instead of walking all block scopes.
+ * Leaving a block drops its slots and restores the shadowed defs.
+ *
+ * @author yangjiandong
+ */
+public class LocalTable {
+    //slots
+    private String[] names = new String[64];
+    private AstNode[] nodes = new AstNode[64];
+    private int[] depths = new int[64];
+    //outer slot of same name, -1 if none
+    private int[] shadows = new int[64];
+    //second def of same name in the same block
+    private AstNode[] dups = new AstNode[64];
+    private int size = 0;
+
+    //slot count at the enter of each block
+    private int[] marks = new int[16];
+    private int depth = 0;
+
+    //name to innermost slot, -1 if none. The names are never removed.
+    private String[] keys = new String[64];
+    private int[] heads = new int[64];
+    private int keyCount = 0;
+
+    public int depth() {
+        return depth;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void enter() {
+        if (depth == marks.length) {
+            marks = Arrays.copyOf(marks, depth * 2);
+        }
+        marks[depth++] = size;
+    }
+
+    public void exit() {
+        int mark = marks[--depth];
+        while (size > mark) {
+            --size;
+            heads[keyIndex(names[size])] = shadows[size];
+            names[size] = null;
+            nodes[size] = null;
+            dups[size] = null;
+        }
+    }
+
+    public void declare(String name, AstNode node) {
+        int k = keyIndex(name);
+        int head = heads[k];
+        if (head != -1 && depths[head] == depth) {
+            if (nodes[head] != node && dups[head] == null) {
+                dups[head] = node;
+            }
+            return;
+        }
+
+        if (size == names.length) {
+            int n = size * 2;
+            names = Arrays.copyOf(names, n);
+            nodes = Arrays.copyOf(nodes, n);
+            depths = Arrays.copyOf(depths, n);
+            shadows = Arrays.copyOf(shadows, n);
+            dups = Arrays.copyOf(dups, n);
+        }
+        names[size] = name;
+        nodes[size] = node;
+        depths[size] = depth;
+        shadows[size] = head;
+        heads[k] = size;
+        ++size;
+    }
+
+    public AstNode get(String name, long loc, CompilerLog log) {
+        int mask = keys.length - 1;
+        int i = name.hashCode() & mask;
+        while (keys[i] != null) {
+            if (keys[i] == name || keys[i].equals(name)) {
+                int slot = heads[i];
+                if (slot == -1) {
+                    return null;
+                }
+                if (dups[slot] != null) {
+                    log.err("Mulit define " + nodes[slot].loc() + "," + dups[slot].loc(), loc);
+                }
+                return nodes[slot];
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * index of the name in keys, added if absent
+     */
+    private int keyIndex(String name) {
+        int mask = keys.length - 1;
+        int i = name.hashCode() & mask;
+        while (keys[i] != null) {
+            if (keys[i] == name || keys[i].equals(name)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+
+        if ((keyCount + 1) * 2 > keys.length) {
+            rehash();
+            return keyIndex(name);
+        }
+        keys[i] = name;
+        heads[i] = -1;
+        ++keyCount;
+        return i;
+    }
+
+    private void rehash() {
+        String[] oldKeys = keys;
+        int[] oldHeads = heads;
+        keys = new String[oldKeys.length * 2];
+        heads = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; ++j) {
+            if (oldKeys[j] == null) {
+                continue;
+            }
+            int i = oldKeys[j].hashCode() & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            heads[i] = oldHeads[j];
+        }
+    }
+}
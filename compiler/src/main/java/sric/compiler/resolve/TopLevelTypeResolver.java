@@ -9,6 +9,7 @@ import java.util.HashMap;
 import sric.compiler.CompilePass;
 import sric.compiler.CompilerLog;
 import sric.compiler.Compiler;
+import sric.compiler.ModuleRegistry;
 import sric.compiler.ast.AstNode;
 import sric.compiler.ast.AstNode.*;
 import sric.compiler.ast.Expr.IdExpr;
@@ -36,13 +37,13 @@ public class TopLevelTypeResolver extends TypeResolver {
             for (Depend d : module.depends) {
                 if (idExpr.name.equals(d.name)) {
                     if (d.cache == null) {
-                        d.cache = compiler.importModule(d.name, d.version);
+                        d.cache = ModuleRegistry.importModule(compiler, d.name, d.version);
                     }
                     idExpr.resolvedDef = d.cache;
                     return;
                 }
             }
-            err("Unknow depends "+idExpr.name, idExpr.loc);
+            err("Unknow depends "+idExpr.name, idExpr.pos);
             return;
         }
         resolveImportId(idExpr.namespace);
@@ -51,23 +52,23 @@ public class TopLevelTypeResolver extends TypeResolver {
         }
 
         if (idExpr.namespace.resolvedDef instanceof SModule m) {
-            AstNode node = m.getScope().get(idExpr.name, idExpr.loc, log);
+            AstNode node = m.getScope().get(idExpr.name, idExpr.pos, log);
             if (node == null) {
-                err("Unknow symbol "+idExpr.name, idExpr.loc);
+                err("Unknow symbol "+idExpr.name, idExpr.pos);
             }
             idExpr.resolvedDef = node;
             return;
         }
         else if (idExpr.namespace.resolvedDef instanceof TypeDef m) {
-            AstNode node = m.getScope().get(idExpr.name, idExpr.loc, log);
+            AstNode node = m.getScope().get(idExpr.name, idExpr.pos, log);
             if (node == null) {
-                err("Unknow symbol "+idExpr.name, idExpr.loc);
+                err("Unknow symbol "+idExpr.name, idExpr.pos);
             }
             idExpr.resolvedDef = node;
             return;
         }
         else {
-            err("Unsupport :: for "+idExpr.namespace.name, idExpr.loc);
+            err("Unsupport :: for "+idExpr.namespace.name, idExpr.pos);
         }
     }
 
@@ -89,7 +90,7 @@ public class TopLevelTypeResolver extends TypeResolver {
                     importScope.addAll(mcope);
                 }
                 else {
-                    err("Unsupport ::* for "+i.id.name, i.loc);
+                    err("Unsupport ::* for "+i.id.name, i.pos);
                 }
             }
         }
@@ -118,11 +119,11 @@ public class TopLevelTypeResolver extends TypeResolver {
     @Override
     public void visitField(AstNode.FieldDef v) {
         if (v.parent instanceof EnumDef d) {
-            Type self = new Type(d.loc, d.name);
+            Type self = new Type(d.pos, d.name);
             self.id.resolvedDef = d;
             v.fieldType = self;
         }
-        resolveTopLevelType(v.fieldType, v.loc);
+        resolveTopLevelType(v.fieldType, v.pos);
     }
 
     @Override
@@ -130,19 +131,19 @@ public class TopLevelTypeResolver extends TypeResolver {
         Scope gpScope = null;
         if (v.generiParamDefs != null) {
             for (GenericParamDef gp : v.generiParamDefs) {
-                resolveTopLevelType(gp.bound, gp.loc);
+                resolveTopLevelType(gp.bound, gp.pos);
             }
-            gpScope = pushScope();
+            gpScope = new Scope();
             for (GenericParamDef gp : v.generiParamDefs) {
                 gpScope.put(gp.name, gp);
             }
             this.scopes.add(gpScope);
         }
         
-        resolveTopLevelType(v.prototype.returnType, v.loc);
+        resolveTopLevelType(v.prototype.returnType, v.pos);
         if (v.prototype.paramDefs != null) {
             for (AstNode.ParamDef p : v.prototype.paramDefs) {
-                resolveTopLevelType(p.paramType, p.loc);
+                resolveTopLevelType(p.paramType, p.pos);
             }
         }
         
@@ -157,7 +158,7 @@ public class TopLevelTypeResolver extends TypeResolver {
         if (v instanceof StructDef sd) {
             if (sd.generiParamDefs != null) {
                 for (GenericParamDef gp : sd.generiParamDefs) {
-                    resolveTopLevelType(gp.bound, gp.loc);
+                    resolveTopLevelType(gp.bound, gp.pos);
                 }
                 gpScope = new Scope();
                 for (GenericParamDef gp : sd.generiParamDefs) {
@@ -167,7 +168,7 @@ public class TopLevelTypeResolver extends TypeResolver {
             }
             if (sd.inheritances != null) {
                 for (Type inh : sd.inheritances) {
-                    this.resolveTopLevelType(inh, inh.loc);
+                    this.resolveTopLevelType(inh, inh.pos);
                 }
             }
         }
@@ -180,7 +181,7 @@ public class TopLevelTypeResolver extends TypeResolver {
     
     @Override
     public void visitTypeAlias(TypeAlias v) {
-        this.resolveTopLevelType(v.type, v.loc);
+        this.resolveTopLevelType(v.type, v.pos);
     }
 
     @Override
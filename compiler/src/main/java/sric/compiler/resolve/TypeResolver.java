@@ -22,25 +22,57 @@ public abstract class TypeResolver  extends CompilePass {
     
     protected ArrayList<Scope> scopes = new ArrayList<>();
     protected SModule module;
+    //where the generic instances are recorded
+    protected GenericTable generics;
+    
+    //block scopes to reuse
+    private ArrayList<Scope> scopePool = new ArrayList<>();
+    
+    //local vars and params, looked up before the scopes if not null
+    protected LocalTable locals = null;
     
     
     public TypeResolver(CompilerLog log, SModule module) {
         super(log);
         this.module = module;
+        this.generics = module.generics;
         this.log = log;
     }
         
-    protected Scope pushScope() {
+    /**
+     * get a empty scope from the pool, it's recycled by popScope
+     */
+    protected Scope newScope() {
+        if (scopePool.size() > 0) {
+            return scopePool.remove(scopePool.size()-1);
+        }
         Scope s = new Scope();
+        s.pooled = true;
+        return s;
+    }
+    
+    protected Scope pushScope() {
+        Scope s = newScope();
         scopes.add(s);
         return s;
     }
     
     protected Scope popScope() {
-        return scopes.remove(scopes.size()-1);
+        Scope s = scopes.remove(scopes.size()-1);
+        if (s.pooled) {
+            s.clear();
+            scopePool.add(s);
+        }
+        return s;
     }
     
-    private AstNode findSymbol(String name, Loc loc) {
+    private AstNode findSymbol(String name, long loc) {
+        if (locals != null) {
+            AstNode node = locals.get(name, loc, log);
+            if (node != null) {
+                return node;
+            }
+        }
         for (int i = scopes.size()-1; i >=0; --i) {
             Scope scope = scopes.get(i);
             AstNode node = scope.get(name, loc, log);
@@ -54,7 +86,7 @@ public abstract class TypeResolver  extends CompilePass {
     
     protected void resolveId(Expr.IdExpr idExpr) {
         if (idExpr.namespace == null) {
-            idExpr.resolvedDef = findSymbol(idExpr.name, idExpr.loc);
+            idExpr.resolvedDef = findSymbol(idExpr.name, idExpr.pos);
             return;
         }
         resolveId(idExpr.namespace);
@@ -62,27 +94,27 @@ public abstract class TypeResolver  extends CompilePass {
             return;
         }
         if (idExpr.namespace.resolvedDef instanceof SModule m) {
-            AstNode node = m.getScope().get(idExpr.name, idExpr.loc, log);
+            AstNode node = m.getScope().get(idExpr.name, idExpr.pos, log);
             if (node == null) {
-                err("Unknow symbol "+idExpr.name, idExpr.loc);
+                err("Unknow symbol "+idExpr.name, idExpr.pos);
             }
             idExpr.resolvedDef = node;
             return;
         }
         else if (idExpr.namespace.resolvedDef instanceof TypeDef m) {
-            AstNode node = m.getScope().get(idExpr.name, idExpr.loc, log);
+            AstNode node = m.getScope().get(idExpr.name, idExpr.pos, log);
             if (node == null) {
-                err("Unknow symbol "+idExpr.name, idExpr.loc);
+                err("Unknow symbol "+idExpr.name, idExpr.pos);
             }
             idExpr.resolvedDef = node;
             return;
         }
         else {
-            err("Unsupport :: for "+idExpr.namespace.name, idExpr.loc);
+            err("Unsupport :: for "+idExpr.namespace.name, idExpr.pos);
         }
     }
     
-    protected void resolveTopLevelType(Type type, Loc loc) {
+    protected void resolveTopLevelType(Type type, long loc) {
         if (type == null) {
             err("Type inference not support for top level node", loc);
             return;
@@ -91,28 +123,32 @@ public abstract class TypeResolver  extends CompilePass {
     }
 
     protected void resolveType(Type type, boolean asExpr) {
+        //the shared type is resolved already
+        if (type.isCanonical()) {
+            return;
+        }
         resolveId(type.id);
         if (type.id.resolvedDef != null) {
             if (type.id.resolvedDef instanceof GenericParamDef gpd) {
                 if (asExpr) {
-                    type.id.resolvedType = Type.metaType(type.loc, type);
+                    type.id.resolvedType = Type.metaType(type.pos, type);
                 }
                 type.resolvedAlias = gpd.bound;
             }
             else if (type.id.resolvedDef instanceof TypeDef) {
                 //ok
                 if (asExpr) {
-                    type.id.resolvedType = Type.metaType(type.loc, type);
+                    type.id.resolvedType = Type.metaType(type.pos, type);
                 }
             }
             else if (type.id.resolvedDef instanceof TypeAlias ta) {
                 type.id.resolvedDef = ta.type.id.resolvedDef;
-                type.id.resolvedType = Type.metaType(type.loc, type);
+                type.id.resolvedType = Type.metaType(type.pos, type);
                 type.resolvedAlias = ta.type;
             }
             else {
                 type.id.resolvedDef = null;
-                err("It's not a type: "+type.id.name, type.loc);
+                err("It's not a type: "+type.id.name, type.pos);
             }
         }
         else {
@@ -139,7 +175,7 @@ public abstract class TypeResolver  extends CompilePass {
                 }
 
                 if (!isConstexpr) {
-                    err("Array size must be constexpr", ainfo.sizeExpr.loc);
+                    err("Array size must be constexpr", ainfo.sizeExpr.pos);
                 }
             }
         }
@@ -153,18 +189,18 @@ public abstract class TypeResolver  extends CompilePass {
             if (type.id.resolvedDef instanceof StructDef sd) {
                 if (sd.generiParamDefs != null) {
                     if (type.genericArgs.size() == sd.generiParamDefs.size()) {
-                        type.id.resolvedDef = sd.parameterize(type.genericArgs);
+                        type.id.resolvedDef = generics.parameterize(sd, type.genericArgs);
                         genericOk = true;
                     }
                 }
             }
             if (!genericOk) {
-                err("Generic args mismatch", type.loc);
+                err("Generic args mismatch", type.pos);
             }
         }
         else if (type.id.resolvedDef instanceof StructDef sd) {
             if (sd.generiParamDefs != null) {
-                err("Miss generic args", type.loc);
+                err("Miss generic args", type.pos);
             }
         }
 
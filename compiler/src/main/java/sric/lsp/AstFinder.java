@@ -9,6 +9,7 @@ import sric.compiler.ast.AstNode;
 import sric.compiler.ast.AstNode.FileUnit;
 import sric.compiler.ast.Expr;
 import sric.compiler.ast.FConst;
+import sric.compiler.ast.LineTable;
 import sric.compiler.ast.Stmt;
 import sric.compiler.ast.Type;
 import sric.lsp.JsonRpc.*;
@@ -33,10 +34,11 @@ public class AstFinder extends CompilePass {
     }
     
     boolean isContains(AstNode v) {
+        int offset = LineTable.offset(v.pos);
         if (v.len == 0) {
-            return pos == v.loc.offset;
+            return pos == offset;
         }
-        if (pos >= v.loc.offset && pos < v.loc.offset + v.len) {
+        if (pos >= offset && pos < offset + v.len) {
             return true;
         }
         return false;
@@ -92,7 +94,7 @@ public class AstFinder extends CompilePass {
         
         visitFuncPrototype(v, v.prototype);
         
-        if (v.code != null) {
+        if (v.getCode() != null) {
             this.visit(v.code);
         }
     }
@@ -194,7 +196,7 @@ public class AstFinder extends CompilePass {
             }
         }
         else {
-            //err("Unkown stmt:"+v, v.loc);
+            //err("Unkown stmt:"+v, v.pos);
         }
     }
 
@@ -268,7 +270,7 @@ public class AstFinder extends CompilePass {
             this.visit(e.operand);
         }
         else {
-            //err("Unkown expr:"+v, v.loc);
+            //err("Unkown expr:"+v, v.pos);
         }
 
     }
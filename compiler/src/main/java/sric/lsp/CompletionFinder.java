@@ -55,14 +55,11 @@ public class CompletionFinder {
     }
     
     private void addScope(Scope scope, String prefix) {
-        for (HashMap.Entry<String, ArrayList<AstNode>> entry : scope.symbolTable.entrySet()) {
-            String name = entry.getKey();
+        scope.forEach((name, anode) -> {
             if (prefix == null || name.startsWith(prefix)) {
-                for (AstNode anode : entry.getValue()) {
-                    defs.add(anode);
-                }
+                defs.add(anode);
             }
-        }
+        });
     }
 
 }
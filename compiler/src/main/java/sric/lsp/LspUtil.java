@@ -19,11 +19,12 @@ public class LspUtil {
             return null;
         }
         
-        String uri = new File(node.loc.file).toURI().toString();
+        Loc loc = node.loc();
+        String uri = new File(loc.file).toURI().toString();
         
         Location location = new Location();
         location.uri = uri;
-        location.range = LspUtil.fromSrcPosLine(node.loc, node.len);
+        location.range = LspUtil.fromSrcPosLine(loc, node.len);
         return location;
     }
     
@@ -74,7 +74,7 @@ public class ReferenceFinder extends CompilePass {
 
         visitFuncPrototype(v, v.prototype);
         
-        if (v.code != null) {
+        if (v.getCode() != null) {
             this.visit(v.code);
         }
     }
@@ -160,7 +160,7 @@ public class ReferenceFinder extends CompilePass {
             }
         }
         else {
-            //err("Unkown stmt:"+v, v.loc);
+            //err("Unkown stmt:"+v, v.pos);
         }
     }
 
@@ -230,7 +230,7 @@ public class ReferenceFinder extends CompilePass {
             this.visit(e.operand);
         }
         else {
-            //err("Unkown expr:"+v, v.loc);
+            //err("Unkown expr:"+v, v.pos);
         }
 
     }
@@ -135,9 +135,7 @@ public class Workspace {
         ArrayList<SymbolInformation> list = new ArrayList<SymbolInformation>();
         for (var sm : moduleList.entrySet()) {
             Scope scope = sm.getValue().module.getScope();
-            for (HashMap.Entry<String, ArrayList<AstNode>> entry : scope.symbolTable.entrySet()) {
-                String name = entry.getKey();
-                
+            scope.forEach((name, anode) -> {
                 boolean ok = false;
                 if(contains) {
                     if (name.contains(normalizedQuery)) {
@@ -149,10 +147,8 @@ public class Workspace {
                         ok = true;
                     }
                 }
-                for (AstNode anode : entry.getValue()) {
-                    list.add(LspUtil.toSymbolInfo(anode));
-                }
-            }
+                list.add(LspUtil.toSymbolInfo(anode));
+            });
         }
 
         return list;
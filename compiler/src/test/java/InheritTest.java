@@ -3,6 +3,7 @@
 // Licensed under the Academic Free License version 3.0
 //
 import java.io.IOException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 
@@ -21,4 +22,41 @@ public class InheritTest {
         boolean res = compiler.run();
         assertTrue(res);
     }
+    
+    @Test
+    public void testHierarchy() throws IOException {
+        String file = "res/code/testInherit.sc";
+        String libPath = "res/lib";
+        
+        sric.compiler.Compiler compiler = sric.compiler.Compiler.makeDefault(file, libPath);
+        compiler.genCode = false;
+        assertTrue(compiler.run());
+        
+        java.util.HashMap<String, sric.compiler.ast.AstNode.TypeDef> defs = new java.util.HashMap<>();
+        for (sric.compiler.ast.AstNode.FileUnit unit : compiler.module.fileUnits) {
+            for (sric.compiler.ast.AstNode.TypeDef t : unit.typeDefs) {
+                defs.put(t.name, t);
+            }
+        }
+        sric.compiler.ast.AstNode.StructDef a = (sric.compiler.ast.AstNode.StructDef)defs.get("A");
+        sric.compiler.ast.AstNode.StructDef b = (sric.compiler.ast.AstNode.StructDef)defs.get("B");
+        assertTrue(a.hierarchyId >= 0 && b.hierarchyId >= 0);
+        assertTrue(a.isInheriteFrom(b));
+        assertTrue(a.isInheriteFrom(defs.get("I")));
+        assertTrue(!b.isInheriteFrom(a));
+        assertTrue(a.getInheriteScope() instanceof sric.compiler.ast.OverlayScope);
+        assertTrue(a.getAllFields() == a.getAllFields());
+        
+        //numbered again from 0 when the module is built again
+        sric.compiler.Compiler compiler2 = sric.compiler.Compiler.makeDefault(file, libPath);
+        compiler2.genCode = false;
+        assertTrue(compiler2.run());
+        for (sric.compiler.ast.AstNode.FileUnit unit : compiler2.module.fileUnits) {
+            for (sric.compiler.ast.AstNode.TypeDef t : unit.typeDefs) {
+                if (t.name.equals("A")) {
+                    assertEquals(a.hierarchyId, t.hierarchyId);
+                }
+            }
+        }
+    }
 }
@@ -2,7 +2,9 @@
 // Copyright (c) 2024, chunquedong
 // Licensed under the Academic Free License version 3.0
 //
+import java.io.File;
 import java.io.IOException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 
@@ -76,4 +78,391 @@ public class MiscTest {
         boolean res = compiler.run();
         assertTrue(res);
     }
+    
+    @Test
+    public void testModuleImage() throws IOException {
+        String file = "res/code/testStruct.sc";
+        String libPath = "res/lib";
+        
+        sric.compiler.Compiler compiler = sric.compiler.Compiler.makeDefault(file, libPath);
+        compiler.genCode = false;
+        boolean res = compiler.run();
+        assertTrue(res);
+        
+        File image = File.createTempFile("testStruct", ".scb");
+        image.deleteOnExit();
+        new sric.compiler.backend.ScbGenerator(compiler.log, image.getPath()).run(compiler.module);
+        
+        sric.compiler.ast.SModule module = new sric.compiler.ast.SModule();
+        module.name = compiler.module.name;
+        module.version = compiler.module.version;
+        assertTrue(sric.compiler.parser.ScbReader.map(image).read(module));
+        
+        var src = compiler.module.fileUnits.get(0);
+        var dst = module.fileUnits.get(0);
+        assertEquals(src.typeDefs.size(), dst.typeDefs.size());
+        assertEquals(src.fieldDefs.size(), dst.fieldDefs.size());
+        for (int i=0; i<src.typeDefs.size(); ++i) {
+            assertEquals(src.typeDefs.get(i).name, dst.typeDefs.get(i).name);
+            assertEquals(src.typeDefs.get(i).flags, dst.typeDefs.get(i).flags);
+        }
+    }
+    
+    @Test
+    public void testImageOpaqueExpr() throws IOException {
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("sric-image");
+        try {
+            String code = "struct Foo {\n    var a: Int = 1 + 2;\n}\nfun add(a: Int, b: Int = 1 + 2): Int {\n    return a + b;\n}\n";
+            sric.compiler.Compiler compiler = makeModule(dir, "1.0", code);
+            assertTrue(compiler.run());
+            File image = dir.resolve("lib/inc.scb").toFile();
+            assertTrue(image.exists());
+            
+            sric.compiler.ast.SModule module = new sric.compiler.ast.SModule();
+            module.name = "inc";
+            module.version = "1.0";
+            assertTrue(sric.compiler.parser.ScbReader.map(image).read(module));
+            var unit = module.fileUnits.get(0);
+            var foo = (sric.compiler.ast.AstNode.StructDef)unit.typeDefs.get(0);
+            assertTrue(foo.fieldDefs.get(0).initExpr instanceof sric.compiler.parser.ScbReader.OpaqueExpr);
+            assertTrue(unit.funcDefs.get(0).prototype.paramDefs.get(1).defualtValue != null);
+        }
+        finally {
+            deleteDir(dir);
+        }
+    }
+    
+    private static sric.compiler.Compiler makeModule(java.nio.file.Path dir, String version, String code) throws IOException {
+        java.nio.file.Path src = dir.resolve("src");
+        src.toFile().mkdirs();
+        java.nio.file.Files.writeString(src.resolve("module.scm"), "name = inc\nversion = " + version + "\ndepends = \nsrcDirs = ./\n");
+        java.nio.file.Files.writeString(src.resolve("inc.sc"), code);
+        String libPath = dir.resolve("lib").toString();
+        new File(libPath).mkdirs();
+        return sric.compiler.Compiler.fromProps(src.resolve("module.scm").toString(), libPath);
+    }
+    
+    @Test
+    public void testIncremental() throws IOException {
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("sric-inc");
+        try {
+            String code = "fun add(a: Int, b: Int): Int {\n    return a + b;\n}\n";
+            assertTrue(makeModule(dir, "1.0", code).run());
+            File[] libFiles = { dir.resolve("lib/inc.sc").toFile(), dir.resolve("lib/inc.meta").toFile(), dir.resolve("lib/inc.scb").toFile() };
+            File cppFile = dir.resolve("output/inc.cpp").toFile();
+            
+            //nothing changed, the build is skipped
+            for (File f : libFiles) f.setLastModified(1000);
+            cppFile.setLastModified(1000);
+            assertTrue(makeModule(dir, "1.0", code).run());
+            assertEquals(1000, cppFile.lastModified());
+            
+            //only the body changed, the interface files are kept
+            assertTrue(makeModule(dir, "1.0", code.replace("a + b", "b + a")).run());
+            assertTrue(cppFile.lastModified() != 1000);
+            for (File f : libFiles) {
+                assertEquals(1000, f.lastModified());
+            }
+            
+            //the module props changed
+            cppFile.setLastModified(1000);
+            assertTrue(makeModule(dir, "2.0", code).run());
+            assertTrue(cppFile.lastModified() != 1000);
+            assertTrue(dir.resolve("lib/inc.scb").toFile().lastModified() != 1000);
+        }
+        finally {
+            deleteDir(dir);
+        }
+    }
+    
+    @Test
+    public void testIncrementalOpaqueExpr() throws IOException {
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("sric-inc");
+        try {
+            String code = "var a: const Int = 1 + 2;\nstruct Foo {\n    var b: Int = 1 + 2;\n}\n";
+            assertTrue(makeModule(dir, "1.0", code).run());
+            File image = dir.resolve("lib/inc.scb").toFile();
+            assertTrue(image.exists());
+
+            //the initializer is not encoded, but the image is written and the build is skipped
+            File cppFile = dir.resolve("output/inc.cpp").toFile();
+            cppFile.setLastModified(1000);
+            assertTrue(makeModule(dir, "1.0", code).run());
+            assertEquals(1000, cppFile.lastModified());
+            assertTrue(image.exists());
+        }
+        finally {
+            deleteDir(dir);
+        }
+    }
+
+    @Test
+    public void testImageSameAsStub() throws IOException {
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("sric-image");
+        try {
+            String libPath = dir.resolve("lib").toString();
+            new File(libPath).mkdirs();
+            sric.compiler.Compiler std = sric.compiler.Compiler.fromProps("../library/std/module.scm", libPath);
+            assertTrue(std.run());
+            File image = new File(libPath, "sric.scb");
+            assertTrue(image.exists());
+            
+            //the dependent module imports the image, then the .sc stub
+            String[] outputs = new String[2];
+            for (int i=0; i<2; ++i) {
+                if (i == 1) {
+                    assertTrue(image.delete());
+                }
+                sric.compiler.Compiler compiler = sric.compiler.Compiler.fromProps("../library/test/module.scm", libPath);
+                compiler.incremental = false;
+                assertTrue(compiler.run());
+                java.nio.file.Path output = dir.resolve("output");
+                outputs[i] = java.nio.file.Files.readString(output.resolve("test.h")) + java.nio.file.Files.readString(output.resolve("test.cpp"));
+            }
+            assertEquals(outputs[0], outputs[1]);
+        }
+        finally {
+            deleteDir(dir);
+        }
+    }
+    
+    @Test
+    public void testModuleRegistry() throws IOException {
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("sric-registry");
+        try {
+            String code = "struct Box$<T> {\n    var v: T;\n}\n";
+            assertTrue(makeModule(dir, "1.0", code).run());
+            java.nio.file.Path app = dir.resolve("app.sc");
+            java.nio.file.Files.writeString(app, "import inc::*;\nfun main() {\n    var b = Box$<Int>{};\n}\n");
+            String libPath = dir.resolve("lib").toString();
+
+            sric.compiler.Compiler[] compilers = new sric.compiler.Compiler[2];
+            for (int i=0; i<2; ++i) {
+                compilers[i] = sric.compiler.Compiler.makeDefault(app.toString(), libPath);
+                compilers[i].genCode = false;
+                assertTrue(compilers[i].run());
+            }
+
+            //the second import returns the cached module
+            sric.compiler.ast.SModule inc = sric.compiler.ModuleRegistry.importModule(compilers[0], "inc", "1.0");
+            assertTrue(inc == sric.compiler.ModuleRegistry.importModule(compilers[1], "inc", "1.0"));
+
+            //the generic instances belong to each compilation, not the shared def
+            var box = inc.fileUnits.get(0).typeDefs.get(0);
+            assertEquals(1, compilers[0].module.generics.get(box).size());
+            assertEquals(1, compilers[1].module.generics.get(box).size());
+            assertTrue(compilers[0].module.generics.get(box).get(0) != compilers[1].module.generics.get(box).get(0));
+
+            //a changed lib file reloads the module
+            File meta = dir.resolve("lib/inc.meta").toFile();
+            meta.setLastModified(meta.lastModified() - 10000);
+            sric.compiler.ast.SModule reloaded = sric.compiler.ModuleRegistry.importModule(compilers[0], "inc", "1.0");
+            assertTrue(inc != reloaded);
+            assertTrue(reloaded == sric.compiler.ModuleRegistry.importModule(compilers[1], "inc", "1.0"));
+
+            assertTrue(dir.resolve("lib/inc.scb").toFile().delete());
+            assertTrue(reloaded != sric.compiler.ModuleRegistry.importModule(compilers[0], "inc", "1.0"));
+        }
+        finally {
+            deleteDir(dir);
+        }
+    }
+
+    @Test
+    public void testUpdateFileHierarchy() throws IOException {
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("sric-update");
+        try {
+            java.nio.file.Path src = dir.resolve("src");
+            src.toFile().mkdirs();
+            java.nio.file.Files.writeString(src.resolve("module.scm"), "name = inc\nversion = 1.0\ndepends = \nsrcDirs = ./\n");
+            java.nio.file.Files.writeString(src.resolve("a.sc"), "virtual struct B1 {\n    var a: Int;\n}\nstruct C1 : B1 {\n}\n");
+            java.nio.file.Files.writeString(src.resolve("b.sc"), "virtual struct B2 {\n    var b: Int;\n}\nstruct C2 : B2 {\n}\nstruct D : B1 {\n}\n");
+            String libPath = dir.resolve("lib").toString();
+            new File(libPath).mkdirs();
+            sric.compiler.Compiler compiler = sric.compiler.Compiler.fromProps(src.resolve("module.scm").toString(), libPath);
+            compiler.genCode = false;
+            assertTrue(compiler.run());
+
+            //like the LSP, the first file is re-added at the end and the ids of the others shift
+            var first = compiler.module.fileUnits.get(0);
+            assertTrue(compiler.updateFile(first.name, java.nio.file.Files.readString(java.nio.file.Path.of(first.name))));
+
+            java.util.HashMap<String, sric.compiler.ast.AstNode.StructDef> structs = new java.util.HashMap<>();
+            for (var unit : compiler.module.fileUnits) {
+                for (var t : unit.typeDefs) {
+                    structs.put(t.name, (sric.compiler.ast.AstNode.StructDef)t);
+                }
+            }
+            assertEquals(5, structs.size());
+            assertTrue(structs.get("C1").isInheriteFrom(structs.get("B1")));
+            assertTrue(structs.get("C2").isInheriteFrom(structs.get("B2")));
+            assertTrue(structs.get("D").isInheriteFrom(structs.get("B1")));
+            assertTrue(!structs.get("D").isInheriteFrom(structs.get("B2")));
+            assertTrue(structs.get("D").getAllFields().get("a").parent == structs.get("B1"));
+        }
+        finally {
+            deleteDir(dir);
+        }
+    }
+
+    private static String writeModule(java.nio.file.Path dir, String name, String depends, String code) throws IOException {
+        java.nio.file.Path src = dir.resolve(name);
+        src.toFile().mkdirs();
+        java.nio.file.Files.writeString(src.resolve("module.scm"), "name = " + name + "\nversion = 1.0\ndepends = " + depends + "\nsrcDirs = ./\n");
+        java.nio.file.Files.writeString(src.resolve(name + ".sc"), code);
+        return src.resolve("module.scm").toString();
+    }
+
+    @Test
+    public void testBuildScheduler() throws IOException {
+        java.nio.file.Path dir = java.nio.file.Files.createTempDirectory("sric-build");
+        try {
+            String libPath = dir.resolve("lib").toString();
+            new File(libPath).mkdirs();
+            String a = writeModule(dir, "a", "", "fun fa(): Int {\n    return 1;\n}\n");
+            String b = writeModule(dir, "b", "a 1.0", "import a::*;\nfun fb(): Int {\n    return fa();\n}\n");
+            String c = writeModule(dir, "c", "a 1.0, b 1.0", "import a::*;\nimport b::*;\nfun fc(): Int {\n    return fa() + fb();\n}\n");
+
+            //the .meta of the depends point to their sources
+            for (String path : new String[] { a, b }) {
+                sric.compiler.BuildScheduler scheduler = new sric.compiler.BuildScheduler(libPath);
+                assertTrue(scheduler.build(path));
+            }
+
+            //the depends are built first
+            sric.compiler.BuildScheduler scheduler = new sric.compiler.BuildScheduler(libPath);
+            scheduler.threads = 2;
+            assertTrue(scheduler.build(c));
+            assertEquals(3, scheduler.nodes.size());
+            String[] order = { "a", "b", "c" };
+            for (int i=0; i<order.length; ++i) {
+                var node = scheduler.nodes.get(i);
+                assertEquals(order[i], node.compiler.module.name);
+                assertTrue(node.success);
+            }
+
+            //the modules after a failed depend are skipped
+            java.nio.file.Files.writeString(dir.resolve("a/a.sc"), "fun fa(): Int {\n    return x;\n}\n");
+            scheduler = new sric.compiler.BuildScheduler(libPath);
+            scheduler.threads = 2;
+            assertTrue(!scheduler.build(c));
+            assertTrue(!scheduler.nodes.get(0).success);
+            assertTrue(scheduler.nodes.get(0).timeMs >= 0);
+            for (int i=1; i<scheduler.nodes.size(); ++i) {
+                assertEquals(-1, scheduler.nodes.get(i).timeMs);
+            }
+
+            //a depends on c through the .meta files
+            writeModule(dir, "a", "c 1.0", "fun fa(): Int {\n    return 1;\n}\n");
+            sric.compiler.BuildScheduler cyclic = new sric.compiler.BuildScheduler(libPath);
+            RuntimeException e = org.junit.jupiter.api.Assertions.assertThrows(RuntimeException.class, () -> cyclic.build(c));
+            assertTrue(e.getMessage().startsWith("Cyclic depends"));
+        }
+        finally {
+            deleteDir(dir);
+        }
+    }
+
+    private static void deleteDir(java.nio.file.Path dir) throws IOException {
+        try (var files = java.nio.file.Files.walk(dir)) {
+            files.sorted(java.util.Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+        }
+    }
+    
+    @Test
+    public void testScope() {
+        sric.compiler.ast.Scope scope = new sric.compiler.ast.Scope();
+        sric.compiler.CompilerLog log = new sric.compiler.CompilerLog();
+        java.util.ArrayList<sric.compiler.ast.AstNode.FieldDef> defs = new java.util.ArrayList<>();
+        for (int i=0; i<100; ++i) {
+            sric.compiler.ast.AstNode.FieldDef f = new sric.compiler.ast.AstNode.FieldDef(null, "v"+i);
+            defs.add(f);
+            scope.put(f.name, f);
+            scope.put(f.name, f);
+        }
+        assertEquals(100, scope.size());
+        for (int i=0; i<100; ++i) {
+            assertTrue(scope.get("v"+i, 0, log) == defs.get(i));
+        }
+        assertTrue(!log.hasError());
+        assertTrue(!scope.contains("x"));
+        
+        scope.put("v1", defs.get(2));
+        assertTrue(scope.get("v1", 0, log) == defs.get(1));
+        assertTrue(log.hasError());
+        
+        int[] count = new int[1];
+        scope.forEach((name, node) -> ++count[0]);
+        assertEquals(101, count[0]);
+        
+        scope.clear();
+        assertEquals(0, scope.size());
+        assertTrue(!scope.contains("v1"));
+    }
+    
+    @Test
+    public void testScopeReuse() {
+        sric.compiler.ast.Scope scope = new sric.compiler.ast.Scope();
+        scope.pooled = true;
+        sric.compiler.CompilerLog log = new sric.compiler.CompilerLog();
+        //grow past the initial capacity
+        for (int i=0; i<20; ++i) {
+            scope.put("v"+i, new sric.compiler.ast.AstNode.FieldDef(null, "v"+i));
+        }
+        assertEquals(20, scope.size());
+        for (int i=0; i<20; ++i) {
+            assertEquals("v"+i, ((sric.compiler.ast.AstNode.FieldDef)scope.get("v"+i, 0, log)).name);
+        }
+        
+        //same names after clear are new defs, not duplicates
+        scope.clear();
+        java.util.ArrayList<sric.compiler.ast.AstNode.FieldDef> defs = new java.util.ArrayList<>();
+        for (int i=0; i<10; ++i) {
+            sric.compiler.ast.AstNode.FieldDef f = new sric.compiler.ast.AstNode.FieldDef(null, "v"+i);
+            defs.add(f);
+            scope.put(f.name, f);
+        }
+        assertEquals(10, scope.size());
+        for (int i=0; i<10; ++i) {
+            assertTrue(scope.get("v"+i, 0, log) == defs.get(i));
+        }
+        assertTrue(!scope.contains("v15"));
+        assertTrue(!log.hasError());
+    }
+    
+    @Test
+    public void testLocalTable() {
+        sric.compiler.resolve.LocalTable table = new sric.compiler.resolve.LocalTable();
+        sric.compiler.CompilerLog log = new sric.compiler.CompilerLog();
+        var outer = new sric.compiler.ast.AstNode.FieldDef(null, "x");
+        var middle = new sric.compiler.ast.AstNode.FieldDef(null, "x");
+        var inner = new sric.compiler.ast.AstNode.FieldDef(null, "x");
+        table.declare("x", outer);
+        
+        table.enter();
+        table.declare("x", middle);
+        assertTrue(table.get("x", 0, log) == middle);
+        
+        //more slots and names than the initial tables
+        table.enter();
+        for (int i=0; i<100; ++i) {
+            table.declare("v"+i, new sric.compiler.ast.AstNode.FieldDef(null, "v"+i));
+        }
+        table.declare("x", inner);
+        assertTrue(table.get("x", 0, log) == inner);
+        assertEquals(103, table.size());
+        
+        table.exit();
+        assertTrue(table.get("x", 0, log) == middle);
+        assertTrue(table.get("v1", 0, log) == null);
+        table.exit();
+        assertTrue(table.get("x", 0, log) == outer);
+        assertEquals(1, table.size());
+        assertTrue(!log.hasError());
+        
+        //a second def in the same block
+        table.declare("x", middle);
+        table.get("x", 0, log);
+        assertTrue(log.hasError());
+    }
 }
@@ -5,6 +5,8 @@
 
 import java.io.IOException;
 import java.io.File;
+import java.util.ArrayList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
@@ -50,4 +52,30 @@ public class NegativeTest {
             GoldenTest.verifyGolden(str, "negative", name+".cpp");
         }
     }
+    
+    @Test
+    public void testParallel() throws IOException {
+        String libPath = "res/lib";
+        ArrayList<String> sources = new ArrayList<String>();
+        sources.add("res/parallel");
+        for (File file : new File("res/negative").listFiles()) {
+            if (file.getName().endsWith(".sc")) {
+                sources.add(file.getPath());
+            }
+        }
+        
+        int[] parallelism = new int[] { 1, 4 };
+        for (String source : sources) {
+            String[] logs = new String[2];
+            for (int i=0; i<2; ++i) {
+                sric.compiler.Compiler compiler = sric.compiler.Compiler.makeDefault(source, libPath);
+                compiler.genCode = false;
+                compiler.parallelism = parallelism[i];
+                boolean res = compiler.run();
+                assertFalse(res, source);
+                logs[i] = compiler.log.toString();
+            }
+            assertEquals(logs[0], logs[1], source);
+        }
+    }
 }
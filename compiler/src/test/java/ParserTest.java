@@ -9,14 +9,18 @@ import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 import sric.compiler.CompilerLog;
 import sric.compiler.Util;
 import sric.compiler.ast.AstNode.FileUnit;
+import sric.compiler.ast.AstNode.FuncDef;
+import sric.compiler.ast.LineTable;
 import sric.compiler.ast.Token;
 import sric.compiler.backend.CppGenerator;
 import sric.compiler.backend.ScLibGenerator;
+import sric.compiler.parser.ChunkParser;
 import sric.compiler.parser.DeepParser;
 import sric.compiler.parser.Parser;
 import sric.compiler.parser.Tokenizer;
@@ -72,4 +76,99 @@ public class ParserTest {
             GoldenTest.verifyGolden(str, "parser", name+".sc");
         }
     }
+    
+    private static String parseToString(File file, boolean stream) throws IOException {
+        CompilerLog log = new CompilerLog();
+        FileUnit unit = new FileUnit(file.getPath());
+        Parser parser = new DeepParser(log, Files.readString(file.toPath()).toCharArray(), unit, null, stream);
+        parser.parse();
+        return toString(unit, log);
+    }
+    
+    private static String toString(FileUnit unit, CompilerLog log) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ScLibGenerator generator = new ScLibGenerator(log, new PrintStream(out));
+        unit.walkChildren(generator);
+        return log.toString() + out.toString("UTF-8");
+    }
+    
+    @Test
+    public void testStream() throws IOException {
+        File[] list = new File("res/code").listFiles();
+        for (File file : list) {
+            if (!file.getName().endsWith(".sc")) {
+                continue;
+            }
+            assertEquals(parseToString(file, false), parseToString(file, true), file.getName());
+        }
+    }
+    
+    @Test
+    public void testLazyBody() throws IOException {
+        String file = "res/code/testStruct.sc";
+        char[] src = Files.readString(Path.of(file)).toCharArray();
+        
+        FileUnit unit = new FileUnit(file);
+        new DeepParser(new CompilerLog(), src, unit, null).parse();
+        
+        CompilerLog log = new CompilerLog();
+        FileUnit lazy = new FileUnit(file);
+        Parser parser = new DeepParser(log, src, lazy, null);
+        parser.lazyBody = true;
+        parser.parse();
+        assertTrue(log.errors.size() == 0);
+        
+        assertEquals(unit.funcDefs.size(), lazy.funcDefs.size());
+        for (int i = 0; i < unit.funcDefs.size(); ++i) {
+            FuncDef f = unit.funcDefs.get(i);
+            FuncDef lf = lazy.funcDefs.get(i);
+            assertEquals(f.code == null, lf.lazyCode == null);
+            assertEquals(f.hasCode(), lf.hasCode());
+            if (f.code != null) {
+                assertEquals(f.code.stmts.size(), lf.getCode().stmts.size());
+                assertEquals(LineTable.offset(f.code.pos), LineTable.offset(lf.code.pos));
+                assertEquals(f.code.len, lf.code.len);
+            }
+        }
+    }
+    
+    @Test
+    public void testReparseLines() throws IOException {
+        String file = "res/code/testStruct.sc";
+        char[] src = Files.readString(Path.of(file)).toCharArray();
+        
+        FileUnit unit = new FileUnit(file);
+        new DeepParser(new CompilerLog(), src, unit, null).parse();
+        FileUnit unit2 = new FileUnit(file);
+        new DeepParser(new CompilerLog(), ("\n\n" + new String(src)).toCharArray(), unit2, null).parse();
+        
+        //each parse has its own table, the old unit still decodes against its lines
+        assertTrue(unit.lines.id != unit2.lines.id);
+        FuncDef f = unit2.funcDefs.get(unit2.funcDefs.size()-1);
+        assertEquals(unit.funcDefs.get(unit.funcDefs.size()-1).loc().line + 2, f.loc().line);
+        assertTrue(f.loc().line > 3);
+    }
+    
+    @Test
+    public void testChunk() throws IOException {
+        int minChunkTokens = ChunkParser.minChunkTokens;
+        ChunkParser.minChunkTokens = 8;
+        java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(2);
+        try {
+            File[] list = new File("res/code").listFiles();
+            for (File file : list) {
+                if (!file.getName().endsWith(".sc")) {
+                    continue;
+                }
+                CompilerLog log = new CompilerLog();
+                FileUnit unit = new FileUnit(file.getPath());
+                new ChunkParser(log, Files.readString(file.toPath()).toCharArray(), unit, null).parse(executor, 4);
+                assertEquals(parseToString(file, false), toString(unit, log), file.getName());
+            }
+        }
+        finally {
+            executor.shutdownNow();
+            ChunkParser.minChunkTokens = minChunkTokens;
+        }
+    }
 }
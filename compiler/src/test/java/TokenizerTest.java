@@ -3,6 +3,9 @@
 // Licensed under the Academic Free License version 3.0
 //
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -14,6 +17,8 @@ import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 import sric.compiler.CompilerLog;
 import sric.compiler.ast.Token;
+import sric.compiler.parser.NameTable;
+import sric.compiler.parser.SourceLoader;
 import sric.compiler.parser.Tokenizer;
 
 /**
@@ -57,4 +62,47 @@ public class TokenizerTest {
         log.printError();
         assertTrue(log.errors.size() == 0);
     }
+    
+    @Test
+    public void testNameTable() throws IOException {
+        Path path = Path.of("res/code/testExpr.sc");
+        String src = Files.readString(path);
+        
+        CompilerLog log = new CompilerLog();
+        NameTable names = new NameTable();
+        ArrayList<Token> toks = new Tokenizer(log, path.toString(), src.toCharArray(), names).tokenize();
+        ArrayList<Token> expected = new Tokenizer(log, path.toString(), src).tokenize();
+        assertEquals(expected.size(), toks.size());
+        
+        for (int i = 0; i < toks.size(); ++i) {
+            Token t = toks.get(i);
+            assertEquals(expected.get(i).kind, t.kind);
+            assertEquals(expected.get(i).val, t.val);
+            if (t.kind == Token.TokenKind.identifier) {
+                assertSame(names.intern((String)t.val), t.val);
+            }
+        }
+        assertTrue(log.errors.size() == 0);
+    }
+    
+    @Test
+    public void testSourceLoader() throws IOException {
+        String src = "var a = \"中文\" //é\nvar b = 1;\n";
+        char[] chars = SourceLoader.decode(ByteBuffer.wrap(src.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(src, new String(chars));
+        
+        Path path = Path.of("res/code/testExpr.sc");
+        assertEquals(Files.readString(path), new String(SourceLoader.load(path.toFile())));
+        int threshold = SourceLoader.mapThreshold;
+        SourceLoader.mapThreshold = 0;
+        try {
+            assertEquals(Files.readString(path), new String(SourceLoader.load(path.toFile())));
+        }
+        finally {
+            SourceLoader.mapThreshold = threshold;
+        }
+        
+        byte[] bad = { 'a', (byte)0xe4, (byte)0xb8, 'b' };
+        assertThrows(CharacterCodingException.class, () -> SourceLoader.decode(ByteBuffer.wrap(bad)));
+    }
 }